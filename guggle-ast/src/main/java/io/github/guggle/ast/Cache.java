@@ -15,4 +15,29 @@ public @interface Cache {
     long interval() default Long.MAX_VALUE;
     TimeUnit units() default TimeUnit.MINUTES;
     int maxSize() default Integer.MAX_VALUE;
+    Storage storage() default Storage.SHARED;
+    //how long past the interval ON_DEMAND entries may still be served while they reload, in units, -1 for one more interval
+    long maxStale() default -1L;
+    //XFetch beta, timed entries are reloaded in the background ahead of their deadline, 0 to disable
+    double earlyRefresh() default 0.0d;
+    //fraction of the interval each entry's lifetime is randomly shortened by, 0 to disable
+    double jitter() default 0.0d;
+    //how long a null result is remembered instead of being cached like any other value, in units, -1 to disable
+    long negativeTtl() default -1L;
+    //how long a failed load is rethrown before it is tried again, doubling per consecutive failure, in units, -1 to disable
+    long failureTtl() default -1L;
+    //cap on the failure backoff, in units, -1 for 32 times failureTtl
+    long maxBackoff() default -1L;
+    //false to skip recording CacheStats for this method
+    boolean recordStats() default true;
+    //bytes of off-heap second level behind the maxSize bounded heap with Storage.TIERED, or of the
+    //table shared by the JVMs on a host with Storage.HOST_SHARED, -1 for none or the default
+    long offHeapBytes() default -1L;
+    //bound on the total weight of the entries, bytes unless the view is given its own Weigher,
+    //takes over from maxSize, -1 to bound by maxSize alone
+    long maxWeight() default -1L;
+    //how long an entry may go unread, in units, on top of the interval with Expires.FIXED, -1 for no limit
+    long idle() default -1L;
+    //works out each entry's own deadlines, takes over from expires, interval and idle, Expiry itself for none
+    Class<? extends Expiry> expiry() default Expiry.class;
 }
@@ -50,6 +50,11 @@ public class AbstractGeneration extends SearchImmutableGeneration {
         return className("Immutable");
     }
 
+    @Override
+    public String getCodecClassName() {
+        return className("Codec");
+    }
+
     @Override
     public InnerClassNode getBaseNode() {
         if(baseNode == null) {
@@ -5,6 +5,7 @@ import org.codehaus.groovy.ast.tools.GenericsUtils;
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.ast.stmt.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.*;
 import io.github.guggle.api.*;
 import io.github.guggle.utils.*;
@@ -13,7 +14,7 @@ class CacheGeneration extends AbstractGeneration {
 
     final String functionClassName;
     final String forwardingMethodName;
-    final ConstructorCallExpression lifetimeConstructorCall;
+    final Expression lifetimeExpression;
     final ClassNode returnType;
     final Parameter[] parameters;
     
@@ -25,11 +26,11 @@ class CacheGeneration extends AbstractGeneration {
     FieldNode cacheFieldNode;
     CacheInfo cacheInfo;
     
-    public CacheGeneration(final MethodNode methodNode, final ConstructorCallExpression lifetimeConstructorCall) {
+    public CacheGeneration(final MethodNode methodNode, final Expression lifetimeExpression) {
         super(methodNode);
         this.returnType = methodNode.getReturnType();
         this.parameters = methodNode.getParameters();
-        this.lifetimeConstructorCall = lifetimeConstructorCall;
+        this.lifetimeExpression = lifetimeExpression;
         this.forwardingMethodName = fieldName("_", "");
         this.functionFieldName = fieldName("", "Function");
         this.functionClassName = className("Function");
@@ -40,6 +41,20 @@ class CacheGeneration extends AbstractGeneration {
         return prefix + methodName + suffix;
     }
 
+    public boolean isAsync() {
+        return returnType.getName().equals(CompletableFuture.class.getName());
+    }
+
+    //what the returned future completes with, Object when it isn't spelled out
+    public ClassNode getAsyncValueType() {
+        final GenericsType[] generics = returnType.getGenericsTypes();
+        if(generics == null || generics.length != 1 || generics[0].isWildcard() || generics[0].isPlaceholder()) {
+            return ClassHelper.OBJECT_TYPE;
+        }
+
+        return generics[0].getType().getPlainNodeReference();
+    }
+
     public Expression getTemporaryCode() {
         if(returnType == ClassHelper.boolean_TYPE) {
             return constX(false, true);
@@ -181,6 +196,10 @@ class CacheGeneration extends AbstractGeneration {
             else if(returnType == ClassHelper.long_TYPE) _valueMethod = "value";
             else if(returnType == ClassHelper.float_TYPE) _valueMethod = "floatValue";
             else if(returnType == ClassHelper.double_TYPE) _valueMethod = "value";
+            else if(isAsync()) {
+                _valueMethod = "valueAsync";
+                _valueNeedsCast = true;
+            }
             else {
                 _valueMethod = "value";
                 _valueNeedsCast = true;
@@ -196,7 +215,7 @@ class CacheGeneration extends AbstractGeneration {
             _cacheFactoryArgs.addExpression(classX(getBaseNode()));
             _cacheFactoryArgs.addExpression(methodIdFieldExpr);
             _cacheFactoryArgs.addExpression(fieldX(functionFieldNode));
-            _cacheFactoryArgs.addExpression(lifetimeConstructorCall);
+            _cacheFactoryArgs.addExpression(lifetimeExpression);
             
             if(returnType == ClassHelper.boolean_TYPE ||
                returnType == ClassHelper.byte_TYPE ||
@@ -217,6 +236,15 @@ class CacheGeneration extends AbstractGeneration {
                 GenericsType[] generics = new GenericsType[] { new GenericsType(getBaseNode()) };
                 _cacheTypeNode = GenericsUtils.makeClassSafeWithGenerics(ClassHelper.makeWithoutCaching(DoubleCacheView.class, false), generics);
             }
+            else if(isAsync()) {
+                final ClassNode valueType = getAsyncValueType();
+                _cacheMethodName = "asyncObjectView";
+                _cacheFactoryArgs.addExpression(classX(valueType));
+                GenericsType[] generics = new GenericsType[2];
+                generics[0] = new GenericsType(getBaseNode());
+                generics[1] = new GenericsType(copy(valueType));
+                _cacheTypeNode = GenericsUtils.makeClassSafeWithGenerics(ClassHelper.makeWithoutCaching(ObjectCacheView.class, false), generics);
+            }
             else {
                 _cacheMethodName = "objectView";
                 _cacheFactoryArgs.addExpression(classX(returnType));
@@ -27,6 +27,18 @@ public class CacheTransformation extends AbstractASTTransformation {
     long interval;
     TimeUnit timeUnit;
     int maxSize;
+    Storage storage;
+    long maxStale;
+    double earlyRefresh;
+    double jitter;
+    long negativeTtl;
+    long failureTtl;
+    long maxBackoff;
+    boolean recordStats;
+    long offHeapBytes;
+    long maxWeight;
+    long idle;
+    ClassNode expiry;
 
     InnerClassNode base;
     InnerClassNode immutable;
@@ -52,93 +64,188 @@ public class CacheTransformation extends AbstractASTTransformation {
         this.interval = populateInterval();
         this.timeUnit = populateTimeUnit();
         this.maxSize = populateMaxSize();
-
-        final CacheGeneration generator = new CacheGeneration(methodNode, lifetimeConstructor());
+        this.storage = populateStorage();
+        this.maxStale = populateMaxStale();
+        this.earlyRefresh = populateEarlyRefresh();
+        this.jitter = populateJitter();
+        this.negativeTtl = populateDuration("negativeTtl");
+        this.failureTtl = populateDuration("failureTtl");
+        this.maxBackoff = populateDuration("maxBackoff");
+        this.recordStats = populateRecordStats();
+        this.offHeapBytes = populateOffHeapBytes();
+        this.maxWeight = populateMaxWeight();
+        this.idle = populateIdle();
+        this.expiry = populateExpiry();
+
+        final CacheGeneration generator = new CacheGeneration(methodNode, lifetimeExpression());
         generator.pre();
         generator.generate();
         generator.post();
         sourceUnit.getAST().addClass(generator.baseNode);
         sourceUnit.getAST().addClass(generator.immutableNode);
         sourceUnit.getAST().addClass(generator.searchNode);
+        sourceUnit.getAST().addClass(generator.codecNode);
         sourceUnit.getAST().addClass(generator.functionNode);
     }
 
-    Expires populateExpires() {
-        final Expression e = annotationNode.getMember("expires");
+    <E extends Enum<E>> E enumMember(final String name, final Class<E> type, final E defaultValue) {
+        final Expression e = annotationNode.getMember(name);
         if(e == null) {
-            return Expires.NEVER;
+            return defaultValue;
         }
         else {
             final PropertyExpression pe = (PropertyExpression) e;
-            final ConstantExpression ce = (ConstantExpression) pe.getProperty();
-            return Expires.valueOf((String) ce.getValue());
+            return Enum.valueOf(type, pe.getPropertyAsString());
         }
     }
 
-    Refresh populateRefresh() {
-        final Expression e = annotationNode.getMember("refresh");
+    Object constantMember(final String name, final Object defaultValue) {
+        final Expression e = annotationNode.getMember(name);
         if(e == null) {
-            return Refresh.NONE;
+            return defaultValue;
         }
         else {
-            final PropertyExpression pe = (PropertyExpression) e;
-            final ConstantExpression ce = (ConstantExpression) pe.getProperty();
-            return Refresh.valueOf((String) ce.getValue());
+            final ConstantExpression ce = (ConstantExpression) e;
+            return ce.getValue();
         }
     }
 
+    Expires populateExpires() {
+        return enumMember("expires", Expires.class, Expires.NEVER);
+    }
+
+    Refresh populateRefresh() {
+        return enumMember("refresh", Refresh.class, Refresh.NONE);
+    }
+
     long populateInterval() {
-        final Expression e = annotationNode.getMember("interval");
-        if(e == null) {
-            return Long.MAX_VALUE;
-        }
-        else {
-            final PropertyExpression pe = (PropertyExpression) e;
-            final ConstantExpression ce = (ConstantExpression) pe.getProperty();
-            return Long.parseLong((String) ce.getValue());
-        }
+        return ((Number) constantMember("interval", Long.MAX_VALUE)).longValue();
     }
 
     TimeUnit populateTimeUnit() {
-        final Expression e = annotationNode.getMember("timeUnit");
-        if(e == null) {
-            return TimeUnit.MILLISECONDS;
-        }
-        else {
-            final PropertyExpression pe = (PropertyExpression) e;
-            final ConstantExpression ce = (ConstantExpression) pe.getProperty();
-            return TimeUnit.valueOf((String) ce.getValue());
-        }
+        return enumMember("units", TimeUnit.class, TimeUnit.MINUTES);
     }
 
     int populateMaxSize() {
-        final Expression e = annotationNode.getMember("maxSize");
-        if(e == null) {
-            return Integer.MAX_VALUE;
-        }
-        else {
-            final PropertyExpression pe = (PropertyExpression) e;
-            final ConstantExpression ce = (ConstantExpression) pe.getProperty();
-            return Integer.parseInt((String) ce.getValue());
+        return ((Number) constantMember("maxSize", Integer.MAX_VALUE)).intValue();
+    }
+
+    Storage populateStorage() {
+        return enumMember("storage", Storage.class, Storage.SHARED);
+    }
+
+    long populateMaxStale() {
+        return ((Number) constantMember("maxStale", -1L)).longValue();
+    }
+
+    double populateEarlyRefresh() {
+        return ((Number) constantMember("earlyRefresh", 0.0d)).doubleValue();
+    }
+
+    double populateJitter() {
+        return ((Number) constantMember("jitter", 0.0d)).doubleValue();
+    }
+
+    boolean populateRecordStats() {
+        return (Boolean) constantMember("recordStats", Boolean.TRUE);
+    }
+
+    long populateOffHeapBytes() {
+        return ((Number) constantMember("offHeapBytes", -1L)).longValue();
+    }
+
+    long populateMaxWeight() {
+        return ((Number) constantMember("maxWeight", -1L)).longValue();
+    }
+
+    long populateIdle() {
+        return ((Number) constantMember("idle", -1L)).longValue();
+    }
+
+    //null for the default, no Expiry
+    ClassNode populateExpiry() {
+        final Expression e = annotationNode.getMember("expiry");
+        return (e instanceof ClassExpression) ? e.getType() : null;
+    }
+
+    long populateDuration(final String name) {
+        return ((Number) constantMember(name, -1L)).longValue();
+    }
+
+    MethodCallExpression builderCall(final Expression receiver, final String name, final Expression arguments) {
+        final MethodCallExpression mcall = new MethodCallExpression(receiver, name, arguments);
+        mcall.setImplicitThis(false);
+        return mcall;
+    }
+
+    //a duration member in the annotation's units, skipped when negative
+    Expression durationCall(final Expression builder, final String name, final long val) {
+        if(val < 0L) {
+            return builder;
         }
+
+        final ClassNode timeUnitNode = ClassHelper.makeWithoutCaching(TimeUnit.class, false);
+        return builderCall(builder, name, args(constX(val, true), propX(classX(timeUnitNode), timeUnit.name())));
     }
 
-    ConstructorCallExpression lifetimeConstructor() {
-        final ArgumentListExpression alist = new ArgumentListExpression();
+    Expression lifetimeExpression() {
+        final ClassNode lifetimeNode = ClassHelper.makeWithoutCaching(Lifetime.class, false);
+        Expression builder = new StaticMethodCallExpression(lifetimeNode, "builder", ArgumentListExpression.EMPTY_ARGUMENTS);
 
         final ClassNode expiresNode = ClassHelper.makeWithoutCaching(Expires.class, false);
-        alist.addExpression(propX(classX(expiresNode), expires.name()));
+        builder = builderCall(builder, "expires", propX(classX(expiresNode), expires.name()));
 
         final ClassNode refreshNode = ClassHelper.makeWithoutCaching(Refresh.class, false);
-        alist.addExpression(propX(classX(refreshNode), refresh.name()));
+        builder = builderCall(builder, "refresh", propX(classX(refreshNode), refresh.name()));
 
-        alist.addExpression(constX(interval, true));
         final ClassNode timeUnitNode = ClassHelper.makeWithoutCaching(TimeUnit.class, false);
-        alist.addExpression(propX(classX(TimeUnit.class), timeUnit.name()));
+        builder = builderCall(builder, "units", args(constX(interval, true), propX(classX(timeUnitNode), timeUnit.name())));
 
-        alist.addExpression(constX(maxSize, false));
+        builder = builderCall(builder, "maxSize", constX(maxSize, false));
 
-        final ClassNode lifetimeNode = ClassHelper.makeWithoutCaching(Lifetime.class, false);
-        return new ConstructorCallExpression(lifetimeNode, alist);
+        final ClassNode storageNode = ClassHelper.makeWithoutCaching(Storage.class, false);
+        builder = builderCall(builder, "storage", propX(classX(storageNode), storage.name()));
+
+        if(maxStale >= 0L) {
+            builder = builderCall(builder, "maxStale", args(constX(maxStale, true), propX(classX(timeUnitNode), timeUnit.name())));
+        }
+
+        if(earlyRefresh > 0.0d) {
+            builder = builderCall(builder, "earlyRefresh", args(constX(Double.valueOf(earlyRefresh))));
+        }
+
+        if(jitter > 0.0d) {
+            builder = builderCall(builder, "jitter", args(constX(Double.valueOf(jitter))));
+        }
+
+        builder = durationCall(builder, "negativeTtl", negativeTtl);
+        builder = durationCall(builder, "failureTtl", failureTtl);
+        builder = durationCall(builder, "maxBackoff", maxBackoff);
+
+        if(!recordStats) {
+            builder = builderCall(builder, "recordStats", args(constX(Boolean.FALSE)));
+        }
+
+        if(offHeapBytes > 0L) {
+            builder = builderCall(builder, "offHeapBytes", args(constX(Long.valueOf(offHeapBytes))));
+        }
+
+        if(maxWeight > 0L) {
+            builder = builderCall(builder, "maxWeight", args(constX(Long.valueOf(maxWeight))));
+        }
+
+        final ClassNode expiryNode = ClassHelper.makeWithoutCaching(Expiry.class, false);
+        if(expiry != null) {
+            builder = builderCall(builder, "expiry", args(ctorX(expiry)));
+        }
+        else if(idle >= 0L) {
+            //the interval only bounds an entry from when it was written with Expires.FIXED
+            final long afterWrite = (expires == Expires.FIXED) ? timeUnit.toMillis(interval) : Expiry.NEVER;
+            final Expression writeOrAccess = new StaticMethodCallExpression(expiryNode, "writeOrAccess",
+                                                                            args(constX(afterWrite, true), constX(timeUnit.toMillis(idle), true)));
+            builder = builderCall(builder, "expiry", args(writeOrAccess));
+        }
+
+        return builderCall(builder, "build", ArgumentListExpression.EMPTY_ARGUMENTS);
     }
 }
@@ -50,6 +50,8 @@ public class RichKeyTransformation extends AbstractASTTransformation {
         sig.enhanceAbstract();
         sig.searchClass();
         sig.immutableClass();
+        sig.codecClass();
+        sourceUnit.getAST().addClass(sig.codecNode);
     }
 
     void initNodes(ASTNode[] astNodes) {
@@ -1,9 +1,16 @@
 package io.github.guggle.ast.transformations;
 
+import io.github.guggle.api.Codec;
+import io.github.guggle.api.Codecs;
+import io.github.guggle.api.Components;
 import io.github.guggle.api.MethodId;
 import io.github.guggle.api.Permanent;
 import io.github.guggle.utils.*;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.builder.*;
@@ -27,6 +34,8 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
     
     InnerClassNode immutableNode;
     InnerClassNode searchNode;
+    InnerClassNode codecNode;
+    MethodNode searchSetter;
     
     public SearchImmutableGeneration(final ClassNode targetClassNode,
                                      final FieldInfo[] fieldInfos) {
@@ -52,12 +61,17 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
         return targetClassName +"$Immutable";
     }
 
+    public String getCodecClassName() {
+        return targetClassName + "$Codec";
+    }
+
     public void pre() { }
     
     public void generate() {
         enhanceAbstract();
         immutableClass();
         searchClass();
+        codecClass();
     }
     
     public void post() { }
@@ -75,10 +89,10 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
         }
 
         MethodNode[] ret = new MethodNode[count];
-        for(int i = 0; i < getBaseNode().getMethods().size(); ++i) {
-            final MethodNode mn = getBaseNode().getMethods().get(i);
+        int index = 0;
+        for(MethodNode mn : getBaseNode().getMethods()) {
             if(mn.isAbstract() && FieldInfo.isAccessor(mn)) {
-                ret[i] = mn;
+                ret[index++] = mn;
             }
         }
 
@@ -344,6 +358,7 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
         final FieldNode[] fieldNodes = addFieldNodes(searchNode, false);
         final MethodNode[] accessors = addAccessors(searchNode, fieldNodes);
         final MethodNode setter = addSetter(searchNode, fieldNodes);
+        searchSetter = setter;
         addSetters(searchNode, fieldNodes);
         
         final ArgumentListExpression fieldArgs = new ArgumentListExpression();
@@ -356,6 +371,175 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
                                             returnS(ctorX(immutableNode, fieldArgs))));
     }
 
+    //Fields are written in declaration order, primitives straight into the buffer,
+    //strings length prefixed and anything else through its own codec. Reading into
+    //a $Mutable reuses it, so probing with a decoded key doesn't allocate. The codec
+    //also splits keys into their fields and back for the weak keyed views.
+    public void codecClass() {
+        final ClassNode codecInterface = ClassHelper.makeWithoutCaching(Codec.class, false);
+        final ClassNode componentsInterface = ClassHelper.makeWithoutCaching(Components.class, false);
+        final ClassNode bufferNode = ClassHelper.makeWithoutCaching(ByteBuffer.class);
+        codecNode = new InnerClassNode(targetClassNode, getCodecClassName(),
+                                       ACC_PUBLIC | ACC_STATIC, ClassHelper.OBJECT_TYPE,
+                                       new ClassNode[] { codecInterface, componentsInterface }, MixinNode.EMPTY_ARRAY);
+
+        final Parameter val = param(ClassHelper.OBJECT_TYPE, "val");
+        final Parameter buf = param(bufferNode, "buf");
+        final VariableExpression sized = new VariableExpression("typed", getBaseNode());
+        final VariableExpression typed = new VariableExpression("typed", getBaseNode());
+
+        int fixed = 0;
+        Expression size = null;
+        final BlockStatement writes = block(declS(typed, castToBase(val)));
+        for(FieldInfo fi : fieldInfos) {
+            final Expression getter = getterCall(sized, fi);
+            final String name = fi.getType().getName();
+            final int width = primitiveWidth(name);
+            if(width > 0) {
+                fixed += width;
+            }
+            else {
+                final Expression variable = isString(fi) ?
+                    codecsCall("sizeOfString", getter) :
+                    codecsCall("sizeOfObject", classX(copy(fi.getType())), getter);
+                size = (size == null) ? variable : plusX(size, variable);
+            }
+
+            final Expression written;
+            if(name.equals("boolean")) {
+                written = codecsCall("putBoolean", varX(buf), getterCall(typed, fi));
+            }
+            else if(width > 0) {
+                written = bufferCall(varX(buf), "put" + bufferSuffix(name), getterCall(typed, fi));
+            }
+            else if(isString(fi)) {
+                written = codecsCall("putString", varX(buf), getterCall(typed, fi));
+            }
+            else {
+                written = codecsCall("putObject", varX(buf), classX(copy(fi.getType())), getterCall(typed, fi));
+            }
+
+            writes.addStatement(stmt(written));
+        }
+
+        size = (size == null) ? constX(fixed, true) : plusX(constX(fixed, true), size);
+        codecNode.addMethod(new MethodNode("sizeOf", ACC_PUBLIC, ClassHelper.int_TYPE,
+                                           params(val), ClassNode.EMPTY_ARRAY,
+                                           block(declS(sized, castToBase(val)), returnS(size))));
+        codecNode.addMethod(new MethodNode("write", ACC_PUBLIC, ClassHelper.VOID_TYPE,
+                                           params(val, buf), ClassNode.EMPTY_ARRAY, writes));
+        codecNode.addMethod(new MethodNode("read", ACC_PUBLIC, ClassHelper.OBJECT_TYPE,
+                                           params(buf), ClassNode.EMPTY_ARRAY,
+                                           returnS(ctorX(immutableNode, readArgs(buf)))));
+
+        final Parameter reuse = param(ClassHelper.OBJECT_TYPE, "reuse");
+        final CastExpression search = new CastExpression(searchNode, varX(reuse));
+        search.setStrict(true);
+        final MethodCallExpression fill = new MethodCallExpression(search, "set", readArgs(buf));
+        fill.setImplicitThis(false);
+        fill.setMethodTarget(searchSetter);
+        codecNode.addMethod(new MethodNode("read", ACC_PUBLIC, ClassHelper.OBJECT_TYPE,
+                                           params(buf, reuse), ClassNode.EMPTY_ARRAY,
+                                           block(ifS(isInstanceOfX(varX(reuse), searchNode), returnS(fill)),
+                                                 returnS(ctorX(immutableNode, readArgs(buf))))));
+
+        final List<Expression> getters = new ArrayList<>();
+        final Parameter parts = param(ClassHelper.OBJECT_TYPE.makeArray(), "parts");
+        final ArgumentListExpression assembled = new ArgumentListExpression();
+        for(int i = 0; i < fieldInfos.length; ++i) {
+            getters.add(getterCall(typed, fieldInfos[i]));
+            assembled.addExpression(castX(copy(fieldInfos[i].getType()), indexX(varX(parts), constX(i, true))));
+        }
+
+        codecNode.addMethod(new MethodNode("components", ACC_PUBLIC, ClassHelper.OBJECT_TYPE.makeArray(),
+                                           params(val), ClassNode.EMPTY_ARRAY,
+                                           block(declS(typed, castToBase(val)),
+                                                 returnS(new ArrayExpression(ClassHelper.OBJECT_TYPE, getters)))));
+        codecNode.addMethod(new MethodNode("fromComponents", ACC_PUBLIC, ClassHelper.OBJECT_TYPE,
+                                           params(parts), ClassNode.EMPTY_ARRAY,
+                                           returnS(ctorX(immutableNode, assembled))));
+
+        //registered when the key class is initialized, Codecs.of makes sure that happens
+        final Statement register = stmt(codecsCall("register", classX(getBaseNode()), ctorX(codecNode)));
+        getBaseNode().addStaticInitializerStatements(Collections.singletonList(register), false);
+    }
+
+    CastExpression castToBase(final Parameter val) {
+        final CastExpression ret = new CastExpression(getBaseNode(), varX(val));
+        ret.setStrict(true);
+        return ret;
+    }
+
+    ArgumentListExpression readArgs(final Parameter buf) {
+        final ArgumentListExpression ret = new ArgumentListExpression();
+        for(FieldInfo fi : fieldInfos) {
+            final String name = fi.getType().getName();
+            if(name.equals("boolean")) {
+                ret.addExpression(codecsCall("getBoolean", varX(buf)));
+            }
+            else if(primitiveWidth(name) > 0) {
+                ret.addExpression(bufferCall(varX(buf), "get" + bufferSuffix(name)));
+            }
+            else if(isString(fi)) {
+                ret.addExpression(codecsCall("getString", varX(buf)));
+            }
+            else {
+                final CastExpression cast = new CastExpression(copy(fi.getType()), codecsCall("getObject", varX(buf), classX(copy(fi.getType()))));
+                cast.setStrict(true);
+                ret.addExpression(cast);
+            }
+        }
+
+        return ret;
+    }
+
+    MethodCallExpression getterCall(final VariableExpression receiver, final FieldInfo fi) {
+        final MethodCallExpression ret = new MethodCallExpression(receiver, fi.getGetterName(), ArgumentListExpression.EMPTY_ARGUMENTS);
+        ret.setImplicitThis(false);
+        getBaseNode().getMethods(fi.getGetterName()).stream()
+            .filter(m -> m.getParameters().length == 0).findFirst().ifPresent(ret::setMethodTarget);
+        return ret;
+    }
+
+    static MethodCallExpression codecsCall(final String name, final Expression... arguments) {
+        final ClassNode codecsNode = ClassHelper.makeWithoutCaching(Codecs.class);
+        final MethodCallExpression ret = new MethodCallExpression(classX(codecsNode), name, args(arguments));
+        ret.setImplicitThis(false);
+        codecsNode.getMethods(name).stream()
+            .filter(m -> m.getParameters().length == arguments.length).findFirst().ifPresent(ret::setMethodTarget);
+        return ret;
+    }
+
+    static MethodCallExpression bufferCall(final Expression buffer, final String name, final Expression... arguments) {
+        final ClassNode bufferNode = ClassHelper.makeWithoutCaching(ByteBuffer.class);
+        final MethodCallExpression ret = new MethodCallExpression(buffer, name, args(arguments));
+        ret.setImplicitThis(false);
+        //the relative forms, put(byte) and get() rather than the indexed or bulk overloads
+        bufferNode.getMethods(name).stream()
+            .filter(m -> m.getParameters().length == arguments.length)
+            .filter(m -> arguments.length == 0 || ClassHelper.isPrimitiveType(m.getParameters()[0].getType()))
+            .findFirst().ifPresent(ret::setMethodTarget);
+        return ret;
+    }
+
+    static boolean isString(final FieldInfo fi) {
+        return fi.getType().getName().equals("java.lang.String");
+    }
+
+    static int primitiveWidth(final String name) {
+        switch(name) {
+        case "boolean": case "byte": return 1;
+        case "short": case "char": return 2;
+        case "int": case "float": return 4;
+        case "long": case "double": return 8;
+        default: return 0;
+        }
+    }
+
+    static String bufferSuffix(final String name) {
+        return name.equals("byte") ? "" : name.substring(0,1).toUpperCase() + name.substring(1);
+    }
+
     public void enhanceAbstract() {
         addEquals();
         addHashCode();
@@ -363,5 +547,11 @@ public class SearchImmutableGeneration extends AbstractASTTransformation {
         if(!getBaseNode().implementsInterface(permClassNode)) {
             getBaseNode().addInterface(permClassNode);
         }
+
+        //lets keys be written to a persistent cache tier
+        final ClassNode serializableNode = ClassHelper.makeWithoutCaching(Serializable.class, false);
+        if(!getBaseNode().implementsInterface(serializableNode)) {
+            getBaseNode().addInterface(serializableNode);
+        }
     }
 }
@@ -2,6 +2,11 @@ package io.github.guggle.ast;
 
 import groovy.transform.CompileStatic;
 import groovy.transform.Immutable;
+import io.github.guggle.api.Expires;
+import io.github.guggle.api.Refresh;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Immutable @CompileStatic
 class BasicValue {
@@ -73,4 +78,51 @@ class CacheValue1 extends TestCache {
         place(tuple, ret);
         return ret;
     }
+
+    @Cache
+    public CompletableFuture<String> asyncToString(final int i) {
+        def tuple = new Tuple(CacheValue1, 'asyncToString', i);
+        def ret = i as String;
+        println("Called asyncToString(${i})");
+        testKey(tuple);
+        place(tuple, ret);
+        return CompletableFuture.completedFuture(ret);
+    }
+
+    @Cache(units=TimeUnit.SECONDS, failureTtl=60L)
+    public String failingToString(final int i) {
+        def tuple = new Tuple(CacheValue1, 'failingToString', i);
+        println("Called failingToString(${i})");
+        testKey(tuple);
+        place(tuple, null);
+        throw new IllegalStateException("failingToString(${i})");
+    }
+}
+
+@CompileStatic
+class TimedValue {
+    static final AtomicInteger fixedCalls = new AtomicInteger();
+    static final AtomicInteger staleCalls = new AtomicInteger();
+    static final AtomicInteger earlyCalls = new AtomicInteger();
+
+    @Cache(expires=Expires.FIXED, interval=10L, units=TimeUnit.SECONDS)
+    public String fixed(final int i) {
+        return "${i}-${fixedCalls.incrementAndGet()}".toString();
+    }
+
+    @Cache(expires=Expires.FIXED, refresh=Refresh.ON_DEMAND, interval=10L, units=TimeUnit.SECONDS, maxStale=5L)
+    public String stale(final int i) {
+        return "${i}-${staleCalls.incrementAndGet()}".toString();
+    }
+
+    @Cache(expires=Expires.FIXED, interval=10L, units=TimeUnit.SECONDS, earlyRefresh=1_000_000.0d)
+    public String early(final int i) {
+        Thread.sleep(20L);
+        return "${i}-${earlyCalls.incrementAndGet()}".toString();
+    }
+
+    @Cache(expires=Expires.FIXED, interval=100L, units=TimeUnit.SECONDS, jitter=0.5d)
+    public String jittered(final int i) {
+        return i as String;
+    }
 }
@@ -1,9 +1,25 @@
 package io.github.guggle.ast;
 
+import io.github.guggle.api.CacheRegistry;
+import io.github.guggle.utils.ManualTicker;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import spock.lang.*;
+import spock.util.concurrent.PollingConditions;
 
 class CacheSpec extends Specification {
 
+    def previous = CacheRegistry.instance().getTicker();
+    def ticker = new ManualTicker(System.currentTimeMillis());
+
+    def setup() {
+        CacheRegistry.instance().setTicker(ticker);
+    }
+
+    def cleanup() {
+        CacheRegistry.instance().setTicker(previous);
+    }
+
     def 'basic object caching'() {
         setup:
         def cv1 = new CacheValue1();
@@ -39,4 +55,127 @@ class CacheSpec extends Specification {
         o.doubleMultiplyBy2(1.0d) == 2.0d;
         o.doubleMultiplyBy2(1.0d) == 2.0d
     }
+
+    def 'basic async caching'() {
+        setup:
+        def o = new CacheValue1();
+
+        expect:
+        o.asyncToString(1).get() == "1";
+        o.asyncToString(1).get() == "1";
+    }
+
+    def 'failures are remembered'() {
+        setup:
+        def o = new CacheValue1();
+
+        when:
+        o.failingToString(1);
+
+        then:
+        def first = thrown(IllegalStateException);
+
+        when:
+        o.failingToString(1);
+
+        then:
+        def second = thrown(IllegalStateException);
+        second.is(first);
+    }
+
+    def 'hits and misses are counted'() {
+        setup:
+        def o = new CacheValue1();
+        def before = CacheRegistry.instance().stats();
+
+        when:
+        o.myToString(77);
+        o.myToString(77);
+        def after = CacheRegistry.instance().stats();
+
+        then:
+        after.misses - before.misses == 1;
+        after.hits - before.hits == 1;
+        after.loadSuccesses - before.loadSuccesses == 1;
+    }
+
+    def 'an entry past its interval is reloaded and missed before any sweep'() {
+        setup:
+        def o = new TimedValue();
+        def first = o.fixed(1);
+        def key = o.fixedCache.keys().findFirst().get();
+
+        when:
+        ticker.advance(11L, TimeUnit.SECONDS);
+
+        then:
+        o.fixedCache.get(key) == null;
+        o.fixed(1) != first;
+    }
+
+    def 'a stale entry is served while it reloads, but not past maxStale'() {
+        setup:
+        def o = new TimedValue();
+        def conditions = new PollingConditions(timeout: 5);
+        def first = o.stale(1);
+
+        when:
+        ticker.advance(12L, TimeUnit.SECONDS);
+
+        then:
+        o.stale(1) == first;
+        conditions.eventually {
+            assert o.stale(1) != first;
+        }
+
+        when:
+        def reloaded = o.stale(1);
+        def calls = TimedValue.staleCalls.get();
+        ticker.advance(16L, TimeUnit.SECONDS);
+
+        then:
+        o.stale(1) != reloaded;
+        TimedValue.staleCalls.get() == calls + 1;
+    }
+
+    def 'entries are reloaded in the background ahead of their deadline'() {
+        setup:
+        def o = new TimedValue();
+        def conditions = new PollingConditions(timeout: 5);
+        def first = o.early(1);
+
+        expect:
+        //the chance of reloading early is near certain with such a large beta
+        o.early(1) == first;
+        conditions.eventually {
+            assert o.early(1) != first;
+        }
+    }
+
+    def 'jitter spreads out when entries expire'() {
+        setup:
+        def o = new TimedValue();
+        (0..<200).each { o.jittered(it); }
+        def keys = o.jitteredCache.keys().collect(Collectors.toList());
+
+        when:
+        ticker.advance(49L, TimeUnit.SECONDS);
+
+        then:
+        keys.every { o.jitteredCache.get(it) != null };
+
+        when:
+        ticker.advance(26L, TimeUnit.SECONDS);
+        def live = keys.count { o.jitteredCache.get(it) != null };
+
+        then:
+        live > 0;
+        live < 200;
+
+        when:
+        ticker.advance(26L, TimeUnit.SECONDS);
+
+        then:
+        keys.every { o.jitteredCache.get(it) == null };
+    }
 }
@@ -2,6 +2,8 @@ package io.github.guggle.ast;
 
 import spock.lang.*;
 import groovy.transform.CompileStatic;
+import io.github.guggle.api.Codecs;
+import java.nio.ByteBuffer;
 
 @CompileStatic
 abstract class MyKey {
@@ -30,4 +32,18 @@ class RichKeySpec extends Specification {
         immCopied.is(imm);
     }
 
+    def 'generated codec round trips'() {
+        setup:
+        def codec = Codecs.of(MyKey);
+        MyKey imm = new MyKey.Immutable("f\u00f6\u2603", 7, true);
+        def buf = ByteBuffer.allocate(codec.sizeOf(imm));
+        codec.write(imm, buf);
+        MyKey.Mutable mut = new MyKey.Mutable();
+
+        expect:
+        buf.remaining() == 0;
+        codec.read(buf.flip()) == imm;
+        codec.read(buf.flip(), mut).is(mut);
+        mut == imm;
+    }
 }
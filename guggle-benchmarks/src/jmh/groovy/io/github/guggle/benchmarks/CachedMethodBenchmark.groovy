@@ -0,0 +1,59 @@
+package io.github.guggle.benchmarks;
+
+import groovy.transform.CompileStatic;
+import io.github.guggle.ast.Cache;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.*;
+
+//A generated @Cache method against the ConcurrentHashMap.computeIfAbsent it would
+//replace if written by hand, both answering from a warm cache.
+@CompileStatic
+@State(Scope.Thread)
+class CachedMethodBenchmark {
+
+    static final int KEYS = 1 << 16;
+    static final int MASK = KEYS - 1;
+
+    final ConcurrentHashMap<Integer,String> map = new ConcurrentHashMap<>();
+    final Function<Integer,String> compute = { Integer i -> Integer.toString(i) } as Function<Integer,String>;
+    int index;
+
+    @Cache
+    String cached(final int i) {
+        return Integer.toString(i);
+    }
+
+    @Cache
+    int cachedInt(final int i) {
+        return i * 2;
+    }
+
+    String mapped(final int i) {
+        return map.computeIfAbsent(i, compute);
+    }
+
+    @Setup
+    void setup() {
+        for(int i = 0; i < KEYS; ++i) {
+            cached(i);
+            cachedInt(i);
+            mapped(i);
+        }
+    }
+
+    @Benchmark
+    String cachedHit() {
+        return cached(index++ & MASK);
+    }
+
+    @Benchmark
+    int cachedIntHit() {
+        return cachedInt(index++ & MASK);
+    }
+
+    @Benchmark
+    String mapHit() {
+        return mapped(index++ & MASK);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.guggle.benchmarks;
+
+import groovy.transform.CompileStatic;
+import io.github.guggle.api.Codec;
+import io.github.guggle.api.Codecs;
+import io.github.guggle.ast.ImmutableKey;
+import io.github.guggle.ast.MutableKey;
+import java.nio.ByteBuffer;
+import org.openjdk.jmh.annotations.*;
+
+@CompileStatic
+abstract class SampleKey {
+    abstract long getAccount();
+    abstract int getRegion();
+    abstract String getName();
+
+    @MutableKey static class Mutable {}
+    @ImmutableKey static class Immutable {}
+}
+
+//The codec generated for a key class against ObjectOutputStream/ObjectInputStream,
+//which is what the persistent tier would otherwise fall back on.
+@CompileStatic
+@State(Scope.Thread)
+class KeyCodecBenchmark {
+
+    final SampleKey key = new SampleKey.Immutable(1234567890123L, 42, "customer-0042");
+    final SampleKey.Mutable search = new SampleKey.Mutable();
+    final Codec<SampleKey> codec = Codecs.of(SampleKey);
+    final Codec<SampleKey> serializing = Codecs.serializing(SampleKey.classLoader);
+    final ByteBuffer buffer = ByteBuffer.allocate(4096);
+    final ByteBuffer encoded = ByteBuffer.allocate(4096);
+    final ByteBuffer serialized = ByteBuffer.allocate(4096);
+
+    @Setup
+    void setup() {
+        codec.write(key, encoded);
+        encoded.flip();
+        serializing.write(key, serialized);
+        serialized.flip();
+    }
+
+    @Benchmark
+    ByteBuffer codecWrite() {
+        buffer.clear();
+        codec.write(key, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    SampleKey codecRead() {
+        encoded.rewind();
+        return codec.read(encoded);
+    }
+
+    @Benchmark
+    SampleKey codecReadIntoMutable() {
+        encoded.rewind();
+        return codec.read(encoded, search);
+    }
+
+    @Benchmark
+    ByteBuffer serializationWrite() {
+        buffer.clear();
+        serializing.sizeOf(key);
+        serializing.write(key, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    SampleKey serializationRead() {
+        serialized.rewind();
+        return serializing.read(serialized);
+    }
+}
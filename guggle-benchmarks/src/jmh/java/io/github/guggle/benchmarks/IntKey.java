@@ -0,0 +1,27 @@
+package io.github.guggle.benchmarks;
+
+import io.github.guggle.api.Permanent;
+
+//Shaped like the key @Cache generates for a single int argument.
+public final class IntKey implements Permanent<IntKey> {
+
+    public final int id;
+
+    public IntKey(final int id) {
+        this.id = id;
+    }
+
+    public IntKey permanent() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return (o instanceof IntKey) && ((IntKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id * 0x9E3779B9;
+    }
+}
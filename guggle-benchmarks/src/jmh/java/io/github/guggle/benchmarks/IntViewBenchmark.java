@@ -0,0 +1,67 @@
+package io.github.guggle.benchmarks;
+
+import io.github.guggle.api.*;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+//IntView.value() when the key is cached and when every call has to load,
+//for both the shared map and the primitive table.
+@State(Scope.Benchmark)
+public class IntViewBenchmark {
+
+    private static final int KEYS = 1 << 16;
+    private static final int MASK = KEYS - 1;
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    @Param({ "SHARED", "PRIMITIVE" })
+    public Storage storage;
+
+    private IntCacheView<IntKey> hits;
+    private IntCacheView<IntKey> misses;
+    private IntKey[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+        int next = Integer.MIN_VALUE;
+    }
+
+    @Setup
+    public void setup() {
+        final CacheRegistry registry = CacheRegistry.instance();
+        hits = registry.intView(IntKey.class, methodId("hits"), (k) -> k.id * 2,
+                                Lifetime.builder().storage(storage).build());
+        //bounded, so misses on ever new keys also pay for evicting old ones
+        misses = registry.intView(IntKey.class, methodId("misses"), (k) -> k.id * 2,
+                                  Lifetime.builder().storage(storage).maxSize(KEYS).build());
+
+        keys = new IntKey[KEYS];
+        for(int i = 0; i < KEYS; ++i) {
+            keys[i] = new IntKey(i);
+            hits.value(keys[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        hits.clear();
+        misses.clear();
+    }
+
+    @Benchmark
+    public int hit(final Cursor cursor) {
+        return hits.value(keys[cursor.index++ & MASK]);
+    }
+
+    @Benchmark
+    public int miss(final Cursor cursor) {
+        return misses.value(new IntKey(cursor.next++));
+    }
+
+    private MethodId methodId(final String name) {
+        //a fresh id per trial, a reconfigured storage must not reuse the previous view
+        return new MethodId(IntViewBenchmark.class, name + storage + ids.incrementAndGet(),
+                            Collections.<Class>singletonList(int.class));
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.guggle.benchmarks;
+
+import io.github.guggle.api.*;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.*;
+
+//ObjectView.value() hits from a growing number of threads, each walking its own
+//random order over the same keys, to show how reads scale.
+@State(Scope.Benchmark)
+public class ObjectViewBenchmark {
+
+    private static final int KEYS = 1 << 16;
+    private static final int MASK = KEYS - 1;
+
+    @Param({ "SHARED", "DEDICATED" })
+    public Storage storage;
+
+    private ObjectCacheView<IntKey,String> view;
+    private IntKey[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final int[] order = new int[KEYS];
+        int index;
+
+        @Setup
+        public void setup() {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for(int i = 0; i < KEYS; ++i) {
+                order[i] = random.nextInt(KEYS);
+            }
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final MethodId methodId = new MethodId(ObjectViewBenchmark.class, "value" + storage,
+                                               Collections.<Class>singletonList(int.class));
+        view = CacheRegistry.instance().objectView(IntKey.class, methodId, (k) -> Integer.toString(k.id),
+                                                   Lifetime.builder().storage(storage).build(), String.class);
+        keys = new IntKey[KEYS];
+        for(int i = 0; i < KEYS; ++i) {
+            keys[i] = new IntKey(i);
+            view.value(keys[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1(final Cursor cursor) {
+        return view.value(keys[cursor.order[cursor.index++ & MASK]]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String threads4(final Cursor cursor) {
+        return view.value(keys[cursor.order[cursor.index++ & MASK]]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String threads16(final Cursor cursor) {
+        return view.value(keys[cursor.order[cursor.index++ & MASK]]);
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.guggle.benchmarks;
+
+import io.github.guggle.api.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import org.openjdk.jmh.annotations.*;
+
+//Startup cost of many cached methods. register() has THREADS threads register the
+//same METHODS never seen before ids at once, like classes sharing cached helpers
+//being loaded in parallel, registered() is the lookup every later call pays.
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+    private static final int METHODS = 4_000;
+    private static final int THREADS = 16;
+    private static final int MASK = 1_023;
+    private static final AtomicInteger rounds = new AtomicInteger();
+    private static final ToIntFunction<IntKey> FUNCTION = (k) -> k.id;
+    private static final Lifetime LIFETIME = Lifetime.builder().build();
+
+    private ExecutorService pool;
+    private MethodId[] registered;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Setup
+    public void setup() {
+        pool = Executors.newFixedThreadPool(THREADS);
+        registered = new MethodId[MASK + 1];
+        for(int i = 0; i < registered.length; ++i) {
+            registered[i] = methodId("registered", i);
+            CacheRegistry.instance().intView(IntKey.class, registered[i], FUNCTION, LIFETIME);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int register() throws Exception {
+        //a fresh set of ids every round, otherwise only the first one registers anything
+        final String round = "round" + rounds.incrementAndGet() + "_";
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> futures = new ArrayList<>(THREADS);
+        for(int t = 0; t < THREADS; ++t) {
+            final int offset = t * 97;
+            futures.add(pool.submit(() -> {
+                        start.await();
+                        int ret = 0;
+                        for(int i = 0; i < METHODS; ++i) {
+                            final MethodId methodId = methodId(round, (i + offset) % METHODS);
+                            ret += CacheRegistry.instance().intView(IntKey.class, methodId, FUNCTION, LIFETIME).hashCode();
+                        }
+
+                        return ret;
+                    }));
+        }
+
+        start.countDown();
+        int ret = 0;
+        for(Future<Integer> f : futures) {
+            ret += f.get();
+        }
+
+        return ret;
+    }
+
+    @Benchmark
+    public IntCacheView<IntKey> registered(final Cursor cursor) {
+        return CacheRegistry.instance().intView(IntKey.class, registered[cursor.index++ & MASK], FUNCTION, LIFETIME);
+    }
+
+    private static MethodId methodId(final String prefix, final int i) {
+        return new MethodId(RegistrationBenchmark.class, prefix + i, Collections.<Class>singletonList(int.class));
+    }
+}
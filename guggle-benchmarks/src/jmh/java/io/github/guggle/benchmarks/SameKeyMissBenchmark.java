@@ -0,0 +1,39 @@
+package io.github.guggle.benchmarks;
+
+import io.github.guggle.api.*;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Threads that miss on the same key at the same time share one load through inFlight.
+//Every THREADS consecutive calls ask for the same new key, so nearly every call is
+//either the one load for its key or a wait on it.
+@State(Scope.Benchmark)
+public class SameKeyMissBenchmark {
+
+    private static final int THREADS = 8;
+
+    @Param({ "0", "1000" })
+    public long loadTokens;
+
+    private final AtomicLong tickets = new AtomicLong();
+    private ObjectCacheView<IntKey,String> view;
+
+    @Setup
+    public void setup() {
+        final MethodId methodId = new MethodId(SameKeyMissBenchmark.class, "miss" + loadTokens,
+                                               Collections.<Class>singletonList(int.class));
+        final long tokens = loadTokens;
+        view = CacheRegistry.instance().objectView(IntKey.class, methodId, (k) -> {
+                Blackhole.consumeCPU(tokens);
+                return Integer.toString(k.id);
+            }, Lifetime.builder().storage(Storage.DEDICATED).maxSize(1 << 12).build(), String.class);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public String sameKey() {
+        return view.value(new IntKey((int) (tickets.getAndIncrement() / THREADS)));
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.*;
+import io.github.guggle.benchmarks.IntKey;
+import io.github.guggle.utils.ManualTicker;
+import io.github.guggle.utils.TimeUnits;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//How long the sweeper takes over large views, once with every entry due and once with
+//nothing due at all. Time only moves when the benchmark moves it, and the background
+//sweep is pushed an hour out so it never runs in the middle of a measurement.
+public class SweepBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Filled {
+        @Param({ "1000000", "10000000" })
+        public int entries;
+
+        @Param({ "SHARED", "PRIMITIVE" })
+        public Storage storage;
+
+        ManualTicker ticker;
+        AllCaches registry;
+        IntCacheView<IntKey> view;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            registry = (AllCaches) AllCaches.instance();
+            //started after the registry so it never reads before the cache epoch
+            ticker = new ManualTicker();
+            registry.setExpirationInterval(TimeUnits.minutes(60L));
+            registry.setTicker(ticker);
+            final MethodId methodId = new MethodId(SweepBenchmark.class, "sweep" + storage + entries,
+                                                   Collections.<Class>singletonList(int.class));
+            final Lifetime lifetime = Lifetime.builder()
+                .expires(Expires.FIXED)
+                .units(1L, TimeUnit.HOURS)
+                .storage(storage)
+                .build();
+            view = registry.intView(IntKey.class, methodId, (k) -> k.id, lifetime);
+            filled();
+        }
+
+        void filled() { }
+
+        void fill() {
+            for(int i = 0; i < entries; ++i) {
+                view.put(new IntKey(i), i);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            view.clear();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AllDue extends Filled {
+        @Setup(Level.Iteration)
+        public void due() {
+            fill();
+            ticker.advance(2L, TimeUnit.HOURS);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NothingDue extends Filled {
+        @Override
+        void filled() {
+            fill();
+        }
+    }
+
+    //sweeps are budgeted per tick, keep going until nothing is left overdue
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long allDue(final AllDue state) {
+        long delay;
+        do {
+            delay = state.registry.sweep(AllCaches.now());
+        } while(delay == 0L);
+
+        return delay;
+    }
+
+    @Benchmark
+    public long nothingDue(final NothingDue state) {
+        return state.registry.sweep(AllCaches.now());
+    }
+}
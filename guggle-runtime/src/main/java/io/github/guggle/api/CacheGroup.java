@@ -0,0 +1,42 @@
+package io.github.guggle.api;
+
+//A budget shared by the cached methods put in the group, either a number of entries or
+//a total weight as counted by each member's Weigher. It takes over from the members' own
+//maxSize and maxWeight and is divided between them by how many hits more room would get
+//each of them.
+public final class CacheGroup {
+
+    private final String name;
+    private final long budget;
+    private final boolean weighted;
+
+    private CacheGroup(final String name, final long budget, final boolean weighted) {
+        if(budget <= 0L) {
+            throw new IllegalArgumentException("Cache group " + name + " needs a positive budget, not " + budget);
+        }
+
+        this.name = name;
+        this.budget = budget;
+        this.weighted = weighted;
+    }
+
+    public static CacheGroup entries(final String name, final long maxSize) {
+        return new CacheGroup(name, maxSize, false);
+    }
+
+    public static CacheGroup weight(final String name, final long maxWeight) {
+        return new CacheGroup(name, maxWeight, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+}
@@ -4,8 +4,11 @@ import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
 import java.util.function.ToLongFunction;
 import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.nio.file.Path;
 import io.github.guggle.cache.AllCaches;
+import io.github.guggle.utils.Ticker;
 import io.github.guggle.utils.TimeUnits;
 
 public interface CacheRegistry {
@@ -20,9 +23,45 @@ public interface CacheRegistry {
 
     void backing(ConcurrentMap<Object,Object> val);
 
+    int priority(MethodId methodId);
+
+    void priority(MethodId methodId, int val);
+
+    CacheGroup cacheGroup(String name);
+
+    void cacheGroup(CacheGroup val);
+
+    String group(MethodId methodId);
+
+    void group(MethodId methodId, String name);
+
+    Ticker getTicker();
+
+    void setTicker(Ticker val);
+
+    Path getPersistentDirectory();
+
+    void setPersistentDirectory(Path val);
+
+    InvalidationBus getInvalidationBus();
+
+    void setInvalidationBus(InvalidationBus val);
+
+    TimeUnits getInvalidationInterval();
+
+    void setInvalidationInterval(TimeUnits val);
+
+    Double getMemoryThreshold();
+
+    void setMemoryThreshold(Double val);
+
     TimeUnits getExpirationInterval();
 
     void setExpirationInterval(TimeUnits timeUnits);
+
+    CacheStats stats(MethodId methodId);
+
+    CacheStats stats();
     
     public <K extends Permanent<K>> DoubleCacheView<K> doubleView(Class<K> keyType, MethodId methodId, ToDoubleFunction<K> func, Lifetime lifetime);
 
@@ -32,6 +71,8 @@ public interface CacheRegistry {
 
     public <K extends Permanent<K>, V> ObjectCacheView<K,V> objectView(Class<K> keyType, MethodId methodId, Function<K,V> func, Lifetime lifetime, Class<V> valueType);
 
+    public <K extends Permanent<K>, V> ObjectCacheView<K,V> asyncObjectView(Class<K> keyType, MethodId methodId, Function<K,CompletableFuture<V>> func, Lifetime lifetime, Class<V> valueType);
+
     public static CacheRegistry instance() {
         return AllCaches.instance();
     }
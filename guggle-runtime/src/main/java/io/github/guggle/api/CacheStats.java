@@ -0,0 +1,107 @@
+package io.github.guggle.api;
+
+public final class CacheStats {
+
+    public static final CacheStats EMPTY = new CacheStats(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+
+    private final long hits;
+    private final long misses;
+    private final long loadSuccesses;
+    private final long loadFailures;
+    private final long totalLoadNanos;
+    private final long maxLoadNanos;
+    private final long evictions;
+    private final long expirations;
+    private final long inFlightWaits;
+
+    public CacheStats(final long hits,
+                      final long misses,
+                      final long loadSuccesses,
+                      final long loadFailures,
+                      final long totalLoadNanos,
+                      final long maxLoadNanos,
+                      final long evictions,
+                      final long expirations,
+                      final long inFlightWaits) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loadSuccesses = loadSuccesses;
+        this.loadFailures = loadFailures;
+        this.totalLoadNanos = totalLoadNanos;
+        this.maxLoadNanos = maxLoadNanos;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.inFlightWaits = inFlightWaits;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getRequests() {
+        return hits + misses;
+    }
+
+    public double getHitRate() {
+        final long requests = getRequests();
+        return (requests == 0L) ? 1.0d : (double) hits / requests;
+    }
+
+    public long getLoadSuccesses() {
+        return loadSuccesses;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    public long getMaxLoadNanos() {
+        return maxLoadNanos;
+    }
+
+    public double getAverageLoadNanos() {
+        final long loads = loadSuccesses + loadFailures;
+        return (loads == 0L) ? 0.0d : (double) totalLoadNanos / loads;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getInFlightWaits() {
+        return inFlightWaits;
+    }
+
+    public CacheStats plus(final CacheStats rhs) {
+        return new CacheStats(hits + rhs.hits,
+                              misses + rhs.misses,
+                              loadSuccesses + rhs.loadSuccesses,
+                              loadFailures + rhs.loadFailures,
+                              totalLoadNanos + rhs.totalLoadNanos,
+                              Math.max(maxLoadNanos, rhs.maxLoadNanos),
+                              evictions + rhs.evictions,
+                              expirations + rhs.expirations,
+                              inFlightWaits + rhs.inFlightWaits);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats(hits=" + hits + ", misses=" + misses +
+            ", loadSuccesses=" + loadSuccesses + ", loadFailures=" + loadFailures +
+            ", totalLoadNanos=" + totalLoadNanos + ", maxLoadNanos=" + maxLoadNanos +
+            ", evictions=" + evictions + ", expirations=" + expirations +
+            ", inFlightWaits=" + inFlightWaits + ")";
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.guggle.api;
+
+import java.util.Map;
+
+//Pushes values put into a view on to wherever they really live. Write-through
+//calls write before the put returns, write-behind hands over batches holding
+//only the latest value put for each key.
+public interface CacheWriter<K,V> {
+    void write(K key, V value);
+
+    default void writeAll(final Map<K,V> entries) {
+        entries.forEach(this::write);
+    }
+
+    //a write-behind batch that kept failing and is given up on, keys put again since aren't in it
+    default void dropped(final Map<K,V> entries, final RuntimeException cause) {
+    }
+}
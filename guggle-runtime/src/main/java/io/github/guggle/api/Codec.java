@@ -0,0 +1,16 @@
+package io.github.guggle.api;
+
+import java.nio.ByteBuffer;
+
+//Binary form of a key or value for the off-heap, on-disk and cross-process tiers.
+//write must put exactly sizeOf(val) bytes at the buffer's position.
+public interface Codec<T> {
+    int sizeOf(T val);
+    void write(T val, ByteBuffer buf);
+    T read(ByteBuffer buf);
+
+    //codecs for generated keys fill a $Mutable search key in place instead of allocating
+    default T read(ByteBuffer buf, T reuse) {
+        return read(buf);
+    }
+}
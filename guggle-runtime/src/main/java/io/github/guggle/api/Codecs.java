@@ -0,0 +1,346 @@
+package io.github.guggle.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//Registry of binary codecs by class. Key classes generated for @Cache, @ImmutableKey
+//and @MutableKey register their own codec when they are initialized, strings, boxed
+//primitives, byte arrays and enums are built in and anything else falls back to
+//Java serialization.
+public final class Codecs {
+
+    private static final ConcurrentMap<Class<?>,Codec<?>> codecs = new ConcurrentHashMap<>();
+
+    static {
+        builtIn(String.class, new Codec<String>() {
+                public int sizeOf(final String val) { return sizeOfString(val); }
+                public void write(final String val, final ByteBuffer buf) { putString(buf, val); }
+                public String read(final ByteBuffer buf) { return getString(buf); } });
+        builtIn(Integer.class, int.class, new Codec<Integer>() {
+                public int sizeOf(final Integer val) { return 4; }
+                public void write(final Integer val, final ByteBuffer buf) { buf.putInt(val); }
+                public Integer read(final ByteBuffer buf) { return buf.getInt(); } });
+        builtIn(Long.class, long.class, new Codec<Long>() {
+                public int sizeOf(final Long val) { return 8; }
+                public void write(final Long val, final ByteBuffer buf) { buf.putLong(val); }
+                public Long read(final ByteBuffer buf) { return buf.getLong(); } });
+        builtIn(Double.class, double.class, new Codec<Double>() {
+                public int sizeOf(final Double val) { return 8; }
+                public void write(final Double val, final ByteBuffer buf) { buf.putDouble(val); }
+                public Double read(final ByteBuffer buf) { return buf.getDouble(); } });
+        builtIn(Float.class, float.class, new Codec<Float>() {
+                public int sizeOf(final Float val) { return 4; }
+                public void write(final Float val, final ByteBuffer buf) { buf.putFloat(val); }
+                public Float read(final ByteBuffer buf) { return buf.getFloat(); } });
+        builtIn(Short.class, short.class, new Codec<Short>() {
+                public int sizeOf(final Short val) { return 2; }
+                public void write(final Short val, final ByteBuffer buf) { buf.putShort(val); }
+                public Short read(final ByteBuffer buf) { return buf.getShort(); } });
+        builtIn(Character.class, char.class, new Codec<Character>() {
+                public int sizeOf(final Character val) { return 2; }
+                public void write(final Character val, final ByteBuffer buf) { buf.putChar(val); }
+                public Character read(final ByteBuffer buf) { return buf.getChar(); } });
+        builtIn(Byte.class, byte.class, new Codec<Byte>() {
+                public int sizeOf(final Byte val) { return 1; }
+                public void write(final Byte val, final ByteBuffer buf) { buf.put(val); }
+                public Byte read(final ByteBuffer buf) { return buf.get(); } });
+        builtIn(Boolean.class, boolean.class, new Codec<Boolean>() {
+                public int sizeOf(final Boolean val) { return 1; }
+                public void write(final Boolean val, final ByteBuffer buf) { putBoolean(buf, val); }
+                public Boolean read(final ByteBuffer buf) { return getBoolean(buf); } });
+        builtIn(byte[].class, new Codec<byte[]>() {
+                public int sizeOf(final byte[] val) { return 4 + val.length; }
+                public void write(final byte[] val, final ByteBuffer buf) { buf.putInt(val.length).put(val); }
+                public byte[] read(final ByteBuffer buf) {
+                    final byte[] ret = new byte[checkRemaining(buf, buf.getInt())];
+                    buf.get(ret);
+                    return ret; } });
+    }
+
+    private Codecs() { }
+
+    private static <T> void builtIn(final Class<T> type, final Codec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    private static <T> void builtIn(final Class<T> type, final Class<?> primitive, final Codec<T> codec) {
+        codecs.put(type, codec);
+        codecs.put(primitive, codec);
+    }
+
+    public static <T> void register(final Class<T> type, final Codec<? super T> codec) {
+        codecs.put(type, codec);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Codec<T> of(final Class<T> type) {
+        final Codec<?> found = codecs.get(type);
+        if(found != null) {
+            return (Codec<T>) found;
+        }
+
+        //not computeIfAbsent, the static initializer run by resolve registers into the map
+        final Codec<?> resolved = resolve(type);
+        final Codec<?> raced = codecs.putIfAbsent(type, resolved);
+        return (Codec<T>) ((raced != null) ? raced : resolved);
+    }
+
+    //Java serialization resolving classes through loader, for values only known as Object
+    public static <T> Codec<T> serializing(final ClassLoader loader) {
+        return new SerializingCodec<>(loader);
+    }
+
+    //generated keys register from their static initializer, so make sure it has run
+    //before settling for a fallback
+    private static Codec<?> resolve(final Class<?> type) {
+        if(!type.isArray() && !type.isPrimitive()) {
+            try {
+                Class.forName(type.getName(), true, type.getClassLoader());
+            }
+            catch(ClassNotFoundException | LinkageError e) {
+                //a class we can't initialize, it won't have registered anything
+            }
+
+            final Codec<?> registered = codecs.get(type);
+            if(registered != null) {
+                return registered;
+            }
+        }
+
+        if(type.isEnum()) {
+            return new EnumCodec(type);
+        }
+
+        return new SerializingCodec<>(type.getClassLoader());
+    }
+
+    public static int sizeOfString(final String val) {
+        if(val == null) {
+            return 4;
+        }
+
+        return 4 + (wide(val) ? 2 * val.length() : val.length());
+    }
+
+    //an int header of -1 for null, otherwise the length shifted left with the low bit
+    //set when any char needs two bytes, latin-1 strings take one byte per char
+    public static void putString(final ByteBuffer buf, final String val) {
+        if(val == null) {
+            buf.putInt(-1);
+            return;
+        }
+
+        final int length = val.length();
+        if(wide(val)) {
+            buf.putInt((length << 1) | 1);
+            for(int i = 0; i < length; ++i) {
+                buf.putChar(val.charAt(i));
+            }
+        }
+        else {
+            buf.putInt(length << 1);
+            for(int i = 0; i < length; ++i) {
+                buf.put((byte) val.charAt(i));
+            }
+        }
+    }
+
+    public static String getString(final ByteBuffer buf) {
+        final int header = buf.getInt();
+        if(header == -1) {
+            return null;
+        }
+
+        final int length = header >>> 1;
+        checkRemaining(buf, ((header & 1) == 0) ? length : 2L * length);
+        if((header & 1) == 0 && buf.hasArray()) {
+            final int position = buf.position();
+            buf.position(position + length);
+            return new String(buf.array(), buf.arrayOffset() + position, length, StandardCharsets.ISO_8859_1);
+        }
+
+        final char[] chars = new char[length];
+        if((header & 1) == 0) {
+            for(int i = 0; i < length; ++i) {
+                chars[i] = (char) (buf.get() & 0xFF);
+            }
+        }
+        else {
+            for(int i = 0; i < length; ++i) {
+                chars[i] = buf.getChar();
+            }
+        }
+
+        return new String(chars);
+    }
+
+    public static void putBoolean(final ByteBuffer buf, final boolean val) {
+        buf.put(val ? (byte) 1 : (byte) 0);
+    }
+
+    public static boolean getBoolean(final ByteBuffer buf) {
+        return buf.get() != 0;
+    }
+
+    //nullable values of any other type, a presence byte followed by the type's codec
+    @SuppressWarnings("unchecked")
+    public static int sizeOfObject(final Class<?> type, final Object val) {
+        return (val == null) ? 1 : 1 + ((Codec<Object>) of(type)).sizeOf(val);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void putObject(final ByteBuffer buf, final Class<?> type, final Object val) {
+        if(val == null) {
+            buf.put((byte) 0);
+            return;
+        }
+
+        buf.put((byte) 1);
+        ((Codec<Object>) of(type)).write(val, buf);
+    }
+
+    public static Object getObject(final ByteBuffer buf, final Class<?> type) {
+        return (buf.get() == 0) ? null : of(type).read(buf);
+    }
+
+    //a corrupt or overwritten length fails here rather than allocating whatever it says
+    private static int checkRemaining(final ByteBuffer buf, final long length) {
+        if(length < 0L || length > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        return (int) length;
+    }
+
+    private static boolean wide(final String val) {
+        for(int i = 0; i < val.length(); ++i) {
+            if(val.charAt(i) > 0xFF) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    //by name rather than ordinal so reordering constants doesn't change meanings on disk
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class EnumCodec implements Codec<Enum> {
+        private final Class type;
+
+        EnumCodec(final Class type) {
+            this.type = type;
+        }
+
+        public int sizeOf(final Enum val) {
+            return sizeOfString(val.name());
+        }
+
+        public void write(final Enum val, final ByteBuffer buf) {
+            putString(buf, val.name());
+        }
+
+        public Enum read(final ByteBuffer buf) {
+            return Enum.valueOf(type, getString(buf));
+        }
+    }
+
+    //the slow path for types with no codec of their own, sizeOf serializes and the
+    //following write reuses the bytes
+    private static final class SerializingCodec<T> implements Codec<T> {
+        private final ClassLoader loader;
+        private final ThreadLocal<Encoded> last = new ThreadLocal<>();
+
+        SerializingCodec(final ClassLoader loader) {
+            this.loader = loader;
+        }
+
+        public int sizeOf(final T val) {
+            return 4 + encoded(val).length;
+        }
+
+        public void write(final T val, final ByteBuffer buf) {
+            final byte[] bytes = encoded(val);
+            last.remove();
+            buf.putInt(bytes.length).put(bytes);
+        }
+
+        @SuppressWarnings("unchecked")
+        public T read(final ByteBuffer buf) {
+            final byte[] bytes = new byte[checkRemaining(buf, buf.getInt())];
+            buf.get(bytes);
+            try(ObjectInputStream in = new LoaderInputStream(new ByteArrayInputStream(bytes), loader)) {
+                return (T) in.readObject();
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch(ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private byte[] encoded(final T val) {
+            final Encoded previous = last.get();
+            if(previous != null && previous.val == val) {
+                return previous.bytes;
+            }
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(val);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final Encoded ret = new Encoded(val, bytes.toByteArray());
+            last.set(ret);
+            return ret.bytes;
+        }
+    }
+
+    private static final class Encoded {
+        final Object val;
+        final byte[] bytes;
+
+        Encoded(final Object val, final byte[] bytes) {
+            this.val = val;
+            this.bytes = bytes;
+        }
+    }
+
+    //generated key classes live in the application's loader, not necessarily ours
+    private static final class LoaderInputStream extends ObjectInputStream {
+        private final ClassLoader loader;
+
+        LoaderInputStream(final InputStream in, final ClassLoader loader) throws IOException {
+            super(in);
+            this.loader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if(loader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, loader);
+                }
+                catch(ClassNotFoundException e) {
+                    //primitives and anything else the default lookup knows about
+                }
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+}
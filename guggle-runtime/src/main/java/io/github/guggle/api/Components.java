@@ -0,0 +1,9 @@
+package io.github.guggle.api;
+
+//Takes a key apart and puts it back together. The codecs generated for key classes
+//implement it so a weak keyed view can hold a key's object components weakly while
+//still handing out whole keys.
+public interface Components<T> {
+    Object[] components(T key);
+    T fromComponents(Object[] components);
+}
@@ -1,13 +1,23 @@
 package io.github.guggle.api;
 
+import io.github.guggle.utils.TimeUnits;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.DoubleStream;
 
 public interface DoubleCacheView<K extends Permanent<K>> extends KeyView<K> {
 
     double value(K key);
+    CompletableFuture<Double> valueAsync(K key);
     double get(K key);
     void put(K key, double val);
     DoubleStream values();
+    Map<K,Double> values(Collection<K> keys);
+    void batchLoader(Function<Collection<K>,Map<K,Double>> loader);
+    void writer(CacheWriter<K,Double> writer);
+    void writer(CacheWriter<K,Double> writer, int batchSize, TimeUnits delay);
 
     default void put(K key, float val) {
         put(key, (double) val);
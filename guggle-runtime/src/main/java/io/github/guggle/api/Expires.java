@@ -1,5 +1,6 @@
 package io.github.guggle.api;
 
 public enum Expires {
-    NEVER, FIXED, ACCESSED;
+    //VARIABLE takes each entry's deadlines from the view's Expiry
+    NEVER, FIXED, ACCESSED, VARIABLE;
 }
@@ -0,0 +1,36 @@
+package io.github.guggle.api;
+
+//Works out each entry's own deadlines, in milliseconds from when it's asked. An entry goes
+//at the first of two: its write deadline, set when the entry is created or replaced, and
+//its idle deadline, set then too and pushed back by reads. Deadlines are kept to the
+//second and reads ask at most once a second per entry. Takes over from expires and units.
+public interface Expiry<K,V> {
+    //no deadline
+    public static final long NEVER = Long.MAX_VALUE;
+
+    long expireAfterCreate(K key, V value);
+
+    //remaining is what the replaced entry had left until its write deadline
+    default long expireAfterUpdate(final K key, final V value, final long remaining) {
+        return expireAfterCreate(key, value);
+    }
+
+    //how long the entry may go unread, on reads key is the one the caller looked up with
+    //and is only good for the call
+    default long expireAfterRead(final K key, final V value) {
+        return NEVER;
+    }
+
+    //afterWrite after being written or afterAccess after the last read, whichever comes first
+    public static <K,V> Expiry<K,V> writeOrAccess(final long afterWrite, final long afterAccess) {
+        return new Expiry<K,V>() {
+            public long expireAfterCreate(final K key, final V value) {
+                return afterWrite;
+            }
+
+            public long expireAfterRead(final K key, final V value) {
+                return afterAccess;
+            }
+        };
+    }
+}
@@ -1,13 +1,23 @@
 package io.github.guggle.api;
 
+import io.github.guggle.utils.TimeUnits;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.IntStream;
 
 public interface IntCacheView<K extends Permanent<K>> extends KeyView<K> {
 
     int value(K key);
+    CompletableFuture<Integer> valueAsync(K key);
     int get(K key);
     void put(K key, int val);
     IntStream values();
+    Map<K,Integer> values(Collection<K> keys);
+    void batchLoader(Function<Collection<K>,Map<K,Integer>> loader);
+    void writer(CacheWriter<K,Integer> writer);
+    void writer(CacheWriter<K,Integer> writer, int batchSize, TimeUnits delay);
 
     default void put(final K key, final short val) {
         put(key, (int) val);
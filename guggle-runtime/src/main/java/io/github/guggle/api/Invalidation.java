@@ -0,0 +1,49 @@
+package io.github.guggle.api;
+
+import java.util.Arrays;
+
+//One key dirtied or removed on some node, the method by its signature and the key
+//encoded by its codec so both mean the same thing in every JVM.
+public final class Invalidation {
+    private final String signature;
+    private final byte[] key;
+    private final boolean removed;
+    private final int hash;
+
+    public Invalidation(final String signature, final byte[] key, final boolean removed) {
+        this.signature = signature;
+        this.key = key;
+        this.removed = removed;
+        this.hash = (31 * signature.hashCode() + Arrays.hashCode(key)) * 2 + (removed ? 1 : 0);
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public byte[] getKey() {
+        return key;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(!(o instanceof Invalidation)) {
+            return false;
+        }
+
+        final Invalidation rhs = (Invalidation) o;
+        return (hash == rhs.hash &&
+                removed == rhs.removed &&
+                signature.equals(rhs.signature) &&
+                Arrays.equals(key, rhs.key));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
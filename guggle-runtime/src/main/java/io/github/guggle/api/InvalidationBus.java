@@ -0,0 +1,13 @@
+package io.github.guggle.api;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+//Carries invalidations between the registries of different nodes. The registry
+//publishes one batch per flush interval, already deduplicated, and applies what
+//it is handed from other nodes without publishing it again.
+public interface InvalidationBus {
+    void publish(List<Invalidation> batch);
+    void subscribe(Consumer<List<Invalidation>> listener);
+    void close();
+}
@@ -8,5 +8,9 @@ public interface KeyView<K extends Permanent<K>> {
     void dirty(K key);
     Stream<K> keys();
     long size();
+    //the total weight of the entries when bounded by maxWeight, otherwise their number
+    long weightedSize();
     void clear();
+    //writes out whatever a write-behind writer still holds
+    void flush();
 }
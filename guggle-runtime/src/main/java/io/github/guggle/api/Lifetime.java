@@ -9,6 +9,10 @@ public final class Lifetime {
     public static final Refresh REFRESH = Refresh.NONE;
     public static final TimeUnits UNITS = TimeUnits.minutes(Long.MAX_VALUE);
     public static final Integer MAX_SIZE = Integer.MAX_VALUE;
+    public static final Storage STORAGE = Storage.SHARED;
+    public static final Double EARLY_REFRESH = 0.0d;
+    public static final Double JITTER = 0.0d;
+    public static final Boolean RECORD_STATS = Boolean.TRUE;
     
     public static class Builder {
         
@@ -16,12 +20,34 @@ public final class Lifetime {
         private Refresh refresh;
         private TimeUnits units;
         private Integer maxSize;
+        private Storage storage;
+        private TimeUnits maxStale;
+        private Double earlyRefresh;
+        private Double jitter;
+        private TimeUnits negativeTtl;
+        private TimeUnits failureTtl;
+        private TimeUnits maxBackoff;
+        private Boolean recordStats;
+        private Long offHeapBytes;
+        private Long maxWeight;
+        private Expiry<?,?> expiry;
 
         public Builder from(final Lifetime val) {
             expires = val.expires;
             refresh = val.refresh;
             units = val.units;
             maxSize = val.maxSize;
+            storage = val.storage;
+            maxStale = val.maxStale;
+            earlyRefresh = val.earlyRefresh;
+            jitter = val.jitter;
+            negativeTtl = val.negativeTtl;
+            failureTtl = val.failureTtl;
+            maxBackoff = val.maxBackoff;
+            recordStats = val.recordStats;
+            offHeapBytes = val.offHeapBytes;
+            maxWeight = val.maxWeight;
+            expiry = val.expiry;
             return this;
         }
 
@@ -30,21 +56,40 @@ public final class Lifetime {
             if(val.refresh != null) refresh = val.refresh;
             if(val.units != null) units = val.units;
             if(val.maxSize != null) maxSize = val.maxSize;
+            if(val.storage != null) storage = val.storage;
+            if(val.maxStale != null) maxStale = val.maxStale;
+            if(val.earlyRefresh != null) earlyRefresh = val.earlyRefresh;
+            if(val.jitter != null) jitter = val.jitter;
+            if(val.negativeTtl != null) negativeTtl = val.negativeTtl;
+            if(val.failureTtl != null) failureTtl = val.failureTtl;
+            if(val.maxBackoff != null) maxBackoff = val.maxBackoff;
+            if(val.recordStats != null) recordStats = val.recordStats;
+            if(val.offHeapBytes != null) offHeapBytes = val.offHeapBytes;
+            if(val.maxWeight != null) maxWeight = val.maxWeight;
+            if(val.expiry != null) expiry = val.expiry;
 
             return this;
         }
 
         public Builder resolveNulls() {
+            if(expiry != null) expires = Expires.VARIABLE;
             if(expires == null) expires = EXPIRES;
             if(refresh == null) refresh = REFRESH;
             if(units == null) units = UNITS;
             if(maxSize == null) maxSize = MAX_SIZE;
+            if(storage == null) storage = STORAGE;
+            //by default a stale entry may be served for one more interval, with an
+            //Expiry there is no one interval so by default not at all
+            if(maxStale == null) maxStale = (expires == Expires.VARIABLE) ? TimeUnits.milliseconds(0L) : units;
+            if(earlyRefresh == null) earlyRefresh = EARLY_REFRESH;
+            if(jitter == null) jitter = JITTER;
+            if(recordStats == null) recordStats = RECORD_STATS;
 
             return this;
         }
 
         public Lifetime build() {
-            return new Lifetime(expires, refresh, units, maxSize);
+            return new Lifetime(this);
         }
 
         public Builder expires(final Expires val) {
@@ -70,21 +115,153 @@ public final class Lifetime {
             maxSize = val;
             return this;
         }
+
+        public Builder storage(final Storage val) {
+            storage = val;
+            return this;
+        }
+
+        public Builder maxStale(final long val, final TimeUnit timeUnit) {
+            return maxStale(new TimeUnits(val, timeUnit));
+        }
+        
+        public Builder maxStale(final TimeUnits val) {
+            maxStale = val;
+            return this;
+        }
+
+        //XFetch beta, entries are recomputed ahead of their deadline with a probability
+        //that rises as it nears, scaled by how long loads take. 0 disables, 1 is typical
+        public Builder earlyRefresh(final Double val) {
+            earlyRefresh = val;
+            return this;
+        }
+
+        //fraction of the interval by which each entry's lifetime is randomly shortened
+        public Builder jitter(final Double val) {
+            jitter = val;
+            return this;
+        }
+
+        public Builder negativeTtl(final long val, final TimeUnit timeUnit) {
+            return negativeTtl(new TimeUnits(val, timeUnit));
+        }
+
+        //null results are remembered this long instead of being cached like any other value
+        public Builder negativeTtl(final TimeUnits val) {
+            negativeTtl = val;
+            return this;
+        }
+
+        public Builder failureTtl(final long val, final TimeUnit timeUnit) {
+            return failureTtl(new TimeUnits(val, timeUnit));
+        }
+
+        //a failed load is rethrown to callers this long before it is tried again,
+        //doubling with every consecutive failure up to maxBackoff
+        public Builder failureTtl(final TimeUnits val) {
+            failureTtl = val;
+            return this;
+        }
+
+        public Builder maxBackoff(final long val, final TimeUnit timeUnit) {
+            return maxBackoff(new TimeUnits(val, timeUnit));
+        }
+
+        //null for 32 times the failureTtl
+        public Builder maxBackoff(final TimeUnits val) {
+            maxBackoff = val;
+            return this;
+        }
+
+        //false to skip counting hits, misses and loads on the hottest paths
+        public Builder recordStats(final Boolean val) {
+            recordStats = val;
+            return this;
+        }
+
+        //size of the off-heap second level with Storage.TIERED, maxSize bounds the on-heap first level,
+        //or of the table every JVM on the host maps with Storage.HOST_SHARED
+        public Builder offHeapBytes(final Long val) {
+            offHeapBytes = val;
+            return this;
+        }
+
+        //bounds the view by the total weight of its entries instead of their number, in
+        //whatever the view's Weigher counts, bytes by default. Takes over from maxSize
+        public Builder maxWeight(final Long val) {
+            maxWeight = val;
+            return this;
+        }
+
+        //each entry's deadlines are worked out by the Expiry, takes over from expires and units
+        public Builder expiry(final Expiry<?,?> val) {
+            expiry = val;
+            return this;
+        }
     }
 
     private final Expires expires;
     private final Refresh refresh;
     private final TimeUnits units;
     private final Integer maxSize;
+    private final Storage storage;
+    private final TimeUnits maxStale;
+    private final Double earlyRefresh;
+    private final Double jitter;
+    private final TimeUnits negativeTtl;
+    private final TimeUnits failureTtl;
+    private final TimeUnits maxBackoff;
+    private final Boolean recordStats;
+    private final Long offHeapBytes;
+    private final Long maxWeight;
+    private final Expiry<?,?> expiry;
+
+    private Lifetime(final Builder builder) {
+        this.expires = builder.expires;
+        this.refresh = builder.refresh;
+        this.units = builder.units;
+        this.maxSize = builder.maxSize;
+        this.storage = builder.storage;
+        this.maxStale = builder.maxStale;
+        this.earlyRefresh = builder.earlyRefresh;
+        this.jitter = builder.jitter;
+        this.negativeTtl = builder.negativeTtl;
+        this.failureTtl = builder.failureTtl;
+        this.maxBackoff = builder.maxBackoff;
+        this.recordStats = builder.recordStats;
+        this.offHeapBytes = builder.offHeapBytes;
+        this.maxWeight = builder.maxWeight;
+        this.expiry = builder.expiry;
+    }
     
     public Lifetime(final Expires expires,
                     final Refresh refresh,
                     final TimeUnits units,
-                    final Integer maxSize) {
+                    final Integer maxSize,
+                    final Storage storage) {
         this.expires = expires;
         this.refresh = refresh;
         this.units = units;
         this.maxSize = maxSize;
+        this.storage = storage;
+        this.maxStale = null;
+        this.earlyRefresh = null;
+        this.jitter = null;
+        this.negativeTtl = null;
+        this.failureTtl = null;
+        this.maxBackoff = null;
+        this.recordStats = null;
+        this.offHeapBytes = null;
+        this.maxWeight = null;
+        this.expiry = null;
+    }
+
+    public Lifetime(final Expires expires,
+                    final Refresh refresh,
+                    final TimeUnits units,
+                    final Integer maxSize) {
+        this(expires, refresh, units, maxSize, null);
     }
 
     public Lifetime(final Expires expires,
@@ -111,6 +288,50 @@ public final class Lifetime {
         return maxSize;
     }
 
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public TimeUnits getMaxStale() {
+        return maxStale;
+    }
+
+    public Double getEarlyRefresh() {
+        return earlyRefresh;
+    }
+
+    public Double getJitter() {
+        return jitter;
+    }
+
+    public TimeUnits getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public TimeUnits getFailureTtl() {
+        return failureTtl;
+    }
+
+    public TimeUnits getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public Boolean getRecordStats() {
+        return recordStats;
+    }
+
+    public Long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public Long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public Expiry<?,?> getExpiry() {
+        return expiry;
+    }
+
     public Builder toBuilder() {
         return new Builder().from(this);
     }
@@ -1,11 +1,21 @@
 package io.github.guggle.api;
 
+import io.github.guggle.utils.TimeUnits;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.LongStream;
 
 public interface LongCacheView<K extends Permanent<K>> extends KeyView<K> {
     
     long value(K key);
+    CompletableFuture<Long> valueAsync(K key);
     long get(K key);
     void put(K key, long val);
     LongStream values();
+    Map<K,Long> values(Collection<K> keys);
+    void batchLoader(Function<Collection<K>,Map<K,Long>> loader);
+    void writer(CacheWriter<K,Long> writer);
+    void writer(CacheWriter<K,Long> writer, int batchSize, TimeUnits delay);
 }
@@ -8,11 +8,14 @@ public final class MethodId {
     private final Class type;
     private final String method;
     private final List<Class> args;
+    private final int hash;
+    private volatile String signature;
 
     public MethodId(final Class type, final String method, final List<Class> args) {
         this.type = type;
         this.method = method;
         this.args = Collections.unmodifiableList(args);
+        this.hash = Fnv.start().hashObject(type).hashObject(method).hashObject(this.args).finish();
     }
 
     public Class getType() {
@@ -27,6 +30,21 @@ public final class MethodId {
         return args;
     }
 
+    //names the method the same way in every JVM, unlike the class identities hashed above
+    public String getSignature() {
+        if(signature != null) {
+            return signature;
+        }
+
+        final StringBuilder sb = new StringBuilder(type.getName()).append('.').append(method).append('(');
+        for(int i = 0; i < args.size(); ++i) {
+            sb.append((i == 0) ? "" : ",").append(args.get(i).getName());
+        }
+
+        signature = sb.append(')').toString();
+        return signature;
+    }
+
     public boolean partialMatch(final String type, final String method) {
         return type.equals(this.type) && method.equals(this.method);
     }
@@ -45,6 +63,6 @@ public final class MethodId {
 
     @Override
     public int hashCode() {
-        return Fnv.start().hashObject(type).hashObject(method).hashObject(args).finish();
+        return hash;
     }
 }
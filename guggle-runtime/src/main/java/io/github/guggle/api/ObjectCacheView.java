@@ -1,10 +1,22 @@
 package io.github.guggle.api;
 
+import io.github.guggle.utils.TimeUnits;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 public interface ObjectCacheView<K extends Permanent<K>, V> extends KeyView<K> {
     V value(K key);
+    CompletableFuture<V> valueAsync(K key);
     V get(K key);
     void put(K key, V val);
     Stream<V> values();
+    Map<K,V> values(Collection<K> keys);
+    void batchLoader(Function<Collection<K>,Map<K,V>> loader);
+    void writer(CacheWriter<K,V> writer);
+    void writer(CacheWriter<K,V> writer, int batchSize, TimeUnits delay);
+    //sizes entries against maxWeight, values are estimated as in Weigher.ESTIMATED without one
+    void weigher(Weigher<K,V> weigher);
 }
@@ -0,0 +1,5 @@
+package io.github.guggle.api;
+
+public enum Storage {
+    SHARED, DEDICATED, PRIMITIVE, OFF_HEAP, PERSISTENT, TIERED, WEAK_KEYS, SOFT_VALUES, HOST_SHARED;
+}
@@ -0,0 +1,55 @@
+package io.github.guggle.api;
+
+//How much of a view's maxWeight an entry takes up, usually its size in bytes. Called
+//once when the entry is stored, so it has to be cheap and must not change for a value.
+@FunctionalInterface
+public interface Weigher<K,V> {
+    int weigh(K key, V value);
+
+    //rough shallow sizes on a 64 bit JVM with compressed oops, anything else counts
+    //as a bare object
+    public static final Weigher<Object,Object> ESTIMATED = (key, value) -> estimate(value);
+
+    public static int estimate(final Object value) {
+        if(value == null) {
+            return 0;
+        }
+        else if(value instanceof String) {
+            //the String and its char array
+            return (int) Math.min(Integer.MAX_VALUE, 24L + array(2L, ((String) value).length()));
+        }
+        else if(value instanceof byte[]) {
+            return array(1L, ((byte[]) value).length);
+        }
+        else if(value instanceof boolean[]) {
+            return array(1L, ((boolean[]) value).length);
+        }
+        else if(value instanceof char[]) {
+            return array(2L, ((char[]) value).length);
+        }
+        else if(value instanceof short[]) {
+            return array(2L, ((short[]) value).length);
+        }
+        else if(value instanceof int[]) {
+            return array(4L, ((int[]) value).length);
+        }
+        else if(value instanceof float[]) {
+            return array(4L, ((float[]) value).length);
+        }
+        else if(value instanceof long[]) {
+            return array(8L, ((long[]) value).length);
+        }
+        else if(value instanceof double[]) {
+            return array(8L, ((double[]) value).length);
+        }
+        else {
+            return 16;
+        }
+    }
+
+    //16 byte header, padded to 8 bytes
+    static int array(final long width, final int length) {
+        final long bytes = (16L + width * length + 7L) & ~7L;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.guggle.cache;
+
+final class AccessOrderDeque {
+
+    private Node first;
+    private Node last;
+
+    public Node peekFirst() {
+        return first;
+    }
+
+    public Node peekLast() {
+        return last;
+    }
+
+    public boolean isEmpty() {
+        return first == null;
+    }
+
+    public void addLast(final Node node) {
+        node.prevInAccess = last;
+        node.nextInAccess = null;
+        if(last == null) {
+            first = node;
+        }
+        else {
+            last.nextInAccess = node;
+        }
+
+        last = node;
+    }
+
+    public void remove(final Node node) {
+        final Node prev = node.prevInAccess;
+        final Node next = node.nextInAccess;
+
+        if(prev == null) {
+            first = next;
+        }
+        else {
+            prev.nextInAccess = next;
+        }
+
+        if(next == null) {
+            last = prev;
+        }
+        else {
+            next.prevInAccess = prev;
+        }
+
+        node.prevInAccess = null;
+        node.nextInAccess = null;
+    }
+
+    public void moveToBack(final Node node) {
+        if(node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    public void replace(final Node existing, final Node node) {
+        final Node prev = existing.prevInAccess;
+        final Node next = existing.nextInAccess;
+        node.prevInAccess = prev;
+        node.nextInAccess = next;
+
+        if(prev == null) {
+            first = node;
+        }
+        else {
+            prev.nextInAccess = node;
+        }
+
+        if(next == null) {
+            last = node;
+        }
+        else {
+            next.prevInAccess = node;
+        }
+
+        existing.prevInAccess = null;
+        existing.nextInAccess = null;
+    }
+
+    public void clear() {
+        first = null;
+        last = null;
+    }
+}
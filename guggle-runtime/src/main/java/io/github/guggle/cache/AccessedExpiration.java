@@ -1,10 +1,9 @@
 package io.github.guggle.cache;
 
-import java.time.Instant;
 import io.github.guggle.utils.TimeUnits;
 import io.github.guggle.api.Expires;
 
-public class AccessedExpiration implements Expiration {
+public class AccessedExpiration extends TimedNode {
 
     private volatile int accessed;
 
@@ -20,7 +19,7 @@ public class AccessedExpiration implements Expiration {
         this.accessed = AllCaches.sinceEpoch();
     }
     
-    public Expired expired(final Expires expires, final TimeUnits timeUnits, final Instant asOf) {
+    public Expired expired(final Expires expires, final TimeUnits timeUnits, final long asOf) {
         return expires == Expires.ACCESSED ? AllCaches.expired(accessed, timeUnits, asOf) : Expired.UNKNOWN;
     }
 
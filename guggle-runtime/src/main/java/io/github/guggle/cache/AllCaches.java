@@ -1,18 +1,31 @@
 package io.github.guggle.cache;
 
 import io.github.guggle.api.*;
-import io.github.guggle.utils.TimeUnits;
+import io.github.guggle.utils.CoarseTicker;
 import io.github.guggle.utils.NamedThread;
+import io.github.guggle.utils.Ticker;
+import io.github.guggle.utils.TimeUnits;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.concurrent.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.*;
@@ -20,33 +33,73 @@ import java.util.stream.*;
 
 public class AllCaches implements CacheRegistry {
 
-    public static final Instant EPOCH = Instant.now();
+    //a fixed instant rather than JVM start, so stamps mean the same in every JVM and
+    //persisted entries keep their age across restarts, int seconds last until 2088
+    public static final Instant EPOCH = Instant.parse("2020-01-01T00:00:00Z");
     public static final long EPOCH_MILLIS = EPOCH.toEpochMilli();
+    private static final long MINIMUM_TICK = 10L;
+    private static volatile Ticker ticker = new CoarseTicker(MINIMUM_TICK, TimeUnit.MILLISECONDS);
     
     public static int sinceEpoch() {
-        return (int) ((Instant.now().toEpochMilli() - EPOCH_MILLIS) / 1_000L);
+        return (int) (now() / 1_000L);
+    }
+
+    public static long now() {
+        return ticker.millis() - EPOCH_MILLIS;
     }
 
-    public static Expired expired(final int since, final TimeUnits timeUnits, final Instant asOf) {
-        final Instant toTest = Instant.ofEpochMilli(EPOCH_MILLIS + (1_000L * (long) since) + timeUnits.toMillis());
-        return toTest.isBefore(asOf) ? Expired.TRUE : Expired.FALSE;
+    public static long deadline(final int since, final TimeUnits timeUnits) {
+        final long base = 1_000L * (long) since;
+        final long ttl = timeUnits.toMillis();
+        return (ttl > Long.MAX_VALUE - base) ? Long.MAX_VALUE : base + ttl;
+    }
+
+    public static Expired expired(final int since, final TimeUnits timeUnits, final long asOf) {
+        return deadline(since, timeUnits) < asOf ? Expired.TRUE : Expired.FALSE;
     }
     
+    private static final int EXPIRATIONS_PER_TICK = 10_000;
+    //each report under memory pressure takes a quarter off a tier's bounds, down to a tenth
+    private static final double SHRINK_FACTOR = 0.75d;
+    private static final double MINIMUM_SCALE = 0.1d;
+    //how far below the threshold occupancy has to fall before anything grows back
+    private static final double RELIEF = 0.1d;
+    private static final long REBALANCE_MILLIS = 1_000L;
     private static final AllCaches instance = new AllCaches();
 
     public static CacheRegistry instance() {
         return instance;
     }
     
-    private final Map<MethodId, View<?,?>> _all = new HashMap<>();
-    private final Map<MethodId, View<?,?>> _configs = new HashMap<>();
+    //reads go straight to the maps, the lock only orders registration and reconfiguration
+    private final ConcurrentMap<MethodId, View<?,?>> _all = new ConcurrentHashMap<>(256, 0.75f, 4);
+    private final ConcurrentMap<MethodId, View<?,?>> _configs = new ConcurrentHashMap<>(64, 0.75f, 4);
     private final ConcurrentMap<Object,CompletableFuture<Expiration>> inFlight = new ConcurrentHashMap<>(64, 0.65f, 4);
     private final Lock configLock = new ReentrantLock();
     
     private volatile ConcurrentMap<Object,Object> defaultBacking = new ConcurrentHashMap<>(4_096, 0.65f, 4);
     private volatile ExecutorService workerPool;
+    private final ExecutorService writerPool;
+    private final ScheduledExecutorService flushTimer = Executors.newSingleThreadScheduledExecutor(new NamedThread("Cache Flush Timer", true));
     private volatile ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThread("Cache Scheduler", true));
     private volatile TimeUnits expirationInterval = TimeUnits.minutes(1L);
+    private volatile Path persistentDirectory = Paths.get(System.getProperty("guggle.cache.dir",
+                                                                             Paths.get(System.getProperty("java.io.tmpdir"), "guggle-cache").toString()));
+    private volatile InvalidationBus invalidationBus;
+    private volatile TimeUnits invalidationInterval = TimeUnits.milliseconds(50L);
+    private final Set<Invalidation> invalidations = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean invalidationScheduled = new AtomicBoolean();
+    private final ConcurrentMap<String,MethodId> signatures = new ConcurrentHashMap<>(64, 0.75f, 4);
+    private final Object sweepLock = new Object();
+    private volatile ScheduledFuture<?> nextSweep;
+    private final ConcurrentMap<MethodId,Integer> priorities = new ConcurrentHashMap<>(16, 0.75f, 4);
+    private final Object governorLock = new Object();
+    private volatile Double memoryThreshold;
+    private volatile MemoryGovernor governor;
+    private final ConcurrentMap<String,SharedBudget> groups = new ConcurrentHashMap<>(8, 0.75f, 1);
+    private final ConcurrentMap<MethodId,String> memberships = new ConcurrentHashMap<>(16, 0.75f, 4);
+    private volatile ScheduledFuture<?> rebalancing;
+    private volatile long nextSweepAt = Long.MAX_VALUE;
     
     private AllCaches() {
         final int cores = Runtime.getRuntime().availableProcessors();
@@ -57,6 +110,15 @@ public class AllCaches implements CacheRegistry {
                                                         new ThreadPoolExecutor.CallerRunsPolicy());
         tpe.allowCoreThreadTimeOut(true);
         workerPool = tpe;
+        //write-behind flushes, a full queue has the putting thread write its batch itself
+        final ThreadPoolExecutor writers = new ThreadPoolExecutor(1, Math.max(cores / 2, 1),
+                                                                  30L, TimeUnit.SECONDS,
+                                                                  new ArrayBlockingQueue<>(cores * 16),
+                                                                  new NamedThread("Cache Writer", true),
+                                                                  new ThreadPoolExecutor.CallerRunsPolicy());
+        writers.allowCoreThreadTimeOut(true);
+        writerPool = writers;
+        scheduleExpiration(now() + expirationInterval.toMillis());
     }
 
     private <T> T withConfigLock(final BiFunction<Map<MethodId, View<?,?>>, Map<MethodId, View<?,?>>, T> function) {
@@ -79,172 +141,1998 @@ public class AllCaches implements CacheRegistry {
         }
     }
 
-    private boolean instanceIn(final List<ConcurrentMap<Object,Object>> soFar, final ConcurrentMap<Object,Object> map) {
-        for(int i = 0; i < soFar.size(); ++i) {
-            if(soFar.get(i) == map) {
-                return true;
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    //deadlines already handed out keep their meaning, so the new ticker must be on the same wall clock.
+    //The previous one is closed when it can be, like the default's clock thread
+    public void setTicker(final Ticker val) {
+        final Ticker previous = ticker;
+        ticker = val;
+        if(previous != val && previous instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) previous).close();
+            }
+            catch(Exception e) {
+                //it is no longer read either way
             }
         }
 
-        return false;
-    }
-    
-    private void allBacking(final Map<MethodId, View<?,?>> all, final List<ConcurrentMap<Object,Object>> ret) {
-        ret.add(defaultBacking);
+        synchronized(sweepLock) {
+            if(nextSweep != null) {
+                nextSweep.cancel(false);
+                nextSweep = null;
+            }
+
+            nextSweepAt = Long.MAX_VALUE;
+        }
         
-        for(Map.Entry<MethodId, View<?,?>> entry : all.entrySet()) {
-            if(!instanceIn(ret, entry.getValue().backing)) {
-                ret.add(entry.getValue().backing);
+        scheduleExpiration(now());
+    }
+
+    public Path getPersistentDirectory() {
+        return persistentDirectory;
+    }
+
+    //only views configured after the change use the new directory
+    public void setPersistentDirectory(final Path val) {
+        this.persistentDirectory = val;
+    }
+
+    public InvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    //batches already handed to the previous bus still go out on it, closing it is up to the caller
+    public void setInvalidationBus(final InvalidationBus val) {
+        invalidationBus = val;
+        if(val != null) {
+            val.subscribe((batch) -> {
+                    if(invalidationBus == val) {
+                        applyInvalidations(batch);
+                    }
+                });
+        }
+    }
+
+    public TimeUnits getInvalidationInterval() {
+        return invalidationInterval;
+    }
+
+    public void setInvalidationInterval(final TimeUnits val) {
+        this.invalidationInterval = val;
+    }
+
+    //the same key dirtied any number of times within an interval goes out once
+    private void invalidate(final Invalidation val) {
+        if(invalidations.add(val) && invalidationScheduled.compareAndSet(false, true)) {
+            flushTimer.schedule(this::flushInvalidations, invalidationInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flushInvalidations() {
+        invalidationScheduled.set(false);
+        final List<Invalidation> batch = new ArrayList<>();
+        final Iterator<Invalidation> iter = invalidations.iterator();
+        while(iter.hasNext()) {
+            batch.add(iter.next());
+            iter.remove();
+        }
+
+        final InvalidationBus bus = invalidationBus;
+        if(bus == null || batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            bus.publish(batch);
+        }
+        catch(RuntimeException e) {
+            //best effort, the other nodes still expire their entries on their ttl
+        }
+    }
+
+    private void applyInvalidations(final List<Invalidation> batch) {
+        for(Invalidation i : batch) {
+            final MethodId methodId = signatures.computeIfAbsent(i.getSignature(), this::bySignature);
+            final View<?,?> v = (methodId == null) ? null : _all.get(methodId);
+            if(v != null) {
+                v.invalidated(i);
             }
         }
     }
-    
-    private void classViews(final Map<MethodId, View<?,?>> all, final Map<Class<?>, View<?,?>> ret) {
-        for(View<?,?> view : all.values()) {
-            ret.put(view.keyType, view);
+
+    private MethodId bySignature(final String signature) {
+        for(MethodId methodId : _all.keySet()) {
+            if(methodId.getSignature().equals(signature)) {
+                return methodId;
+            }
+        }
+
+        return null;
+    }
+
+    public Double getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    //the old generation occupancy after a collection, as a fraction of its maximum, above which
+    //bounded views give up memory, null to leave them at their configured bounds
+    public void setMemoryThreshold(final Double val) {
+        synchronized(governorLock) {
+            memoryThreshold = val;
+            final MemoryGovernor previous = governor;
+            if(val == null) {
+                governor = null;
+                if(previous != null) {
+                    previous.close();
+                }
+
+                for(View<?,?> v : _all.values()) {
+                    v.resize(1d);
+                }
+            }
+            else if(previous != null) {
+                previous.setThreshold(val);
+            }
+            else {
+                governor = new MemoryGovernor(val, workerPool, this::govern);
+            }
+        }
+    }
+
+    //views with a lower priority give up memory first and get it back last
+    public int priority(final MethodId methodId) {
+        return priorities.getOrDefault(methodId, 0);
+    }
+
+    public void priority(final MethodId methodId, final int val) {
+        priorities.put(methodId, val);
+    }
+
+    //one step per report, under pressure every bounded view in the lowest priority that can still
+    //shrink is cut back by the same fraction, once it has passed the highest priority grows back first
+    void govern(final double occupancy) {
+        final Double threshold = memoryThreshold;
+        if(threshold == null) {
+            return;
+        }
+
+        final boolean pressed = occupancy >= threshold;
+        if(!pressed && occupancy >= threshold - RELIEF) {
+            return;
+        }
+
+        Integer tier = null;
+        for(Map.Entry<MethodId,View<?,?>> e : _all.entrySet()) {
+            final int p = priority(e.getKey());
+            if(movable(e.getValue(), pressed) && (tier == null || (pressed ? p < tier : p > tier))) {
+                tier = p;
+            }
+        }
+
+        if(tier == null) {
+            return;
+        }
+
+        for(Map.Entry<MethodId,View<?,?>> e : _all.entrySet()) {
+            final View<?,?> v = e.getValue();
+            if(priority(e.getKey()) == tier && movable(v, pressed)) {
+                v.resize(pressed ? Math.max(MINIMUM_SCALE, v.scale * SHRINK_FACTOR) : Math.min(1d, v.scale / SHRINK_FACTOR));
+            }
+        }
+    }
+
+    public CacheGroup cacheGroup(final String name) {
+        final SharedBudget b = groups.get(name);
+        return (b == null) ? null : b.getGroup();
+    }
+
+    //a group changing between entries and weight starts its members over with equal shares
+    public void cacheGroup(final CacheGroup val) {
+        withConfigLock((all, configs) -> {
+                final SharedBudget previous = groups.get(val.getName());
+                if(previous != null && previous.isWeighted() == val.isWeighted()) {
+                    previous.setGroup(val);
+                }
+                else {
+                    final SharedBudget created = new SharedBudget(val);
+                    groups.put(val.getName(), created);
+                    for(Map.Entry<MethodId,String> e : memberships.entrySet()) {
+                        final View<?,?> v = all.get(e.getKey());
+                        if(v != null && val.getName().equals(e.getValue())) {
+                            if(previous != null) {
+                                previous.leave(v);
+                            }
+
+                            created.join(v);
+                        }
+                    }
+                }
+
+                if(rebalancing == null) {
+                    rebalancing = flushTimer.scheduleWithFixedDelay(this::rebalanceGroups, REBALANCE_MILLIS,
+                                                                    REBALANCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            });
+    }
+
+    public String group(final MethodId methodId) {
+        return memberships.get(methodId);
+    }
+
+    //the method can be put in a group before its view exists or the group is defined, null takes it out
+    public void group(final MethodId methodId, final String name) {
+        withConfigLock((all, configs) -> {
+                final String previous = (name == null) ? memberships.remove(methodId) : memberships.put(methodId, name);
+                final View<?,?> v = all.get(methodId);
+                if(v == null || Objects.equals(previous, name)) {
+                    return;
+                }
+
+                final SharedBudget left = (previous == null) ? null : groups.get(previous);
+                if(left != null) {
+                    left.leave(v);
+                }
+
+                enlist(methodId, v);
+            });
+    }
+
+    //must hold configLock
+    private void enlist(final MethodId methodId, final View<?,?> v) {
+        final String name = memberships.get(methodId);
+        final SharedBudget b = (name == null) ? null : groups.get(name);
+        if(b != null) {
+            b.join(v);
         }
     }
 
+    void rebalanceGroups() {
+        for(SharedBudget b : groups.values()) {
+            try {
+                b.rebalance();
+            }
+            catch(RuntimeException e) {
+                //a failing weigher is the caller's problem, the next round tries again
+            }
+        }
+    }
+
+    private static boolean movable(final View<?,?> v, final boolean shrinking) {
+        return v.bounded() && (shrinking ? v.scale > MINIMUM_SCALE : v.scale < 1d);
+    }
+
     public TimeUnits getExpirationInterval() {
         return expirationInterval;
     }
 
     public void setExpirationInterval(final TimeUnits val) {
         this.expirationInterval = val;
-        scheduler.shutdownNow();
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduleNextExpiration();
+        synchronized(sweepLock) {
+            scheduler.shutdownNow();
+            scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThread("Cache Scheduler", true));
+            nextSweep = null;
+        }
+        
+        scheduleExpiration(now() + val.toMillis());
     }
 
-    private void scheduleNextExpiration() {
-        scheduler.schedule(this::expireNeeded, expirationInterval.getInterval(), expirationInterval.getTimeUnit());
+    //keeps a single pending sweep, moving it earlier when something comes due sooner
+    private void scheduleExpiration(final long at) {
+        if(at >= nextSweepAt && nextSweep != null) {
+            return;
+        }
+        
+        synchronized(sweepLock) {
+            if(nextSweep != null) {
+                if(at >= nextSweepAt) {
+                    return;
+                }
+
+                nextSweep.cancel(false);
+            }
+
+            nextSweepAt = at;
+            nextSweep = scheduler.schedule(this::expireNeeded, Math.max(at - now(), MINIMUM_TICK), TimeUnit.MILLISECONDS);
+        }
     }
     
     private void expireNeeded() {
+        synchronized(sweepLock) {
+            nextSweep = null;
+            nextSweepAt = Long.MAX_VALUE;
+        }
+        
         workerPool.submit(() -> {
+                long delay = expirationInterval.toMillis();
                 try {
-                    final Instant now = Instant.now();
-                    final List<ConcurrentMap<Object,Object>> listBacking = new ArrayList<>();
-                    final Map<Class<?>, View<?,?>> mapClassViews = new HashMap<>();
-                    
-                    withConfigLock((all, configs) -> {
-                            allBacking(all, listBacking);
-                            classViews(all, mapClassViews);
-                        });
-
-                    for(ConcurrentMap<Object,Object> backing : listBacking) {
-                        backing.entrySet().stream().forEach((e) -> {
-                                final Object key = e.getKey();
-                                Expiration exp = (Expiration) e.getValue();
-                                View<?,?> view = mapClassViews.get(key.getClass());
-                                Expired expired = exp.expired(view.lifetime.getExpires(), view.lifetime.getUnits(), now);
-                                
-                                if(expired == Expired.TRUE) {
-                                    if(view.lifetime.getRefresh() == Refresh.ON_DEMAND ||
-                                       view.lifetime.getRefresh() == Refresh.NONE) {
-                                        backing.remove(key);
-                                    }
-                                    
-                                    if(view.lifetime.getRefresh() == Refresh.EAGER) {
-                                        workerPool.submit(() -> {
-                                                final Object myKey = key;
-                                                view.untypedGenerate(myKey);
-                                            });
-                                    }
-                                }
-                                else if(expired == Expired.UNKNOWN) {
-                                    backing.put(key, Expiration.convert(view.lifetime.getExpires(), exp));
-                                } });
-                    }
+                    delay = sweep(now());
                 }
                 finally {
-                    scheduleNextExpiration();
+                    scheduleExpiration(now() + delay);
                 }
             });
     }
 
-    private class View<K extends Permanent<K>, V extends Expiration> implements KeyView<K> {
+    //expires whatever is due in every view, returns how long until the next sweep is needed
+    long sweep(final long now) {
+        long delay = expirationInterval.toMillis();
+        for(View<?,?> view : _all.values()) {
+            delay = Math.min(delay, view.expire(now));
+        }
+
+        return delay;
+    }
+
+    private class View<K extends Permanent<K>, V extends Expiration> implements KeyView<K>, SharedBudget.Member {
         protected final Class<K> keyType;
         protected volatile ConcurrentMap<Object,Object> backing;
         protected volatile Lifetime lifetime;
 
+        protected final ReentrantLock evictionLock = new ReentrantLock();
+        protected final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+        //keys the timer found due for an eager refresh, submitted once evictionLock is released
+        protected final Queue<Object> refreshes = new ConcurrentLinkedQueue<>();
+        //what a table read checks its entry's stamp with, in the same operation as the read
+        protected final PrimitiveTable.Check fresh;
+        protected volatile ReadBuffer<Node> readBuffer;
+        protected volatile WindowTinyLfu policy;
+        protected volatile TimerWheel timerWheel;
+        protected Lifetime configured;
+        protected volatile boolean dedicated;
+        protected volatile boolean revalidate;
+        protected volatile boolean checkOnRead;
+        protected volatile boolean accessOrdered;
+        protected volatile long loadNanos;
+        protected volatile boolean remembers;
+        protected volatile StatsCounter stats;
+        protected volatile MethodId methodId;
+        protected volatile MappedStore persistent;
+        protected volatile SlabStore offHeap;
+        protected volatile SharedTable sharedTable;
+        protected volatile ReferenceBacking references;
+        protected final ConcurrentMap<Object,Miss> misses = new ConcurrentHashMap<>(4, 0.75f, 1);
+        protected volatile PrimitiveTable table;
+        protected volatile Function<Collection<K>,? extends Map<K,?>> batchLoader;
+        protected volatile CacheWriter<K,?> writer;
+        protected volatile WriteBehind behind;
+        protected volatile Weigher<Object,Object> weigher;
+        protected volatile Expiry<Object,Object> expiry;
+        //the share of its configured bound the memory governor currently allows
+        protected volatile double scale = 1d;
+        //the view's share of its cache group's budget, it takes over from maxSize and maxWeight
+        protected volatile SharedBudget budget;
+        protected volatile long allotment = -1L;
+        protected volatile Ghosts ghosts;
+        protected final LongAdder count = new LongAdder();
+
         public View(final Class<K> keyType, final ConcurrentMap<Object,Object> backing, final Lifetime lifetime) {
             this.keyType = keyType;
             this.backing = backing;
             this.lifetime = lifetime;
+            this.fresh = (key, stamp) -> usable(keyType.cast(key), stamp);
+            this.dedicated = dedicated(backing);
+            this.references = (backing instanceof ReferenceBacking) ? (ReferenceBacking) backing : null;
         }
 
         public boolean contains(final K key) {
-            return backing.containsKey(key);
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.containsKey(key);
+            }
+
+            final SlabStore o = offHeap;
+            return backing.containsKey(key) || (o != null && o.contains(key));
         }
 
         public void remove(final K key) {
-            backing.remove(key);
+            misses.remove(key);
+            discard(key);
+            publish(key, true);
         }
 
         public void clear() {
-            final Set<K> toRemove = keys().collect(Collectors.toSet());
-            for(K k : toRemove) {
-                backing.remove(k);
+            misses.clear();
+            final MappedStore p = persistent;
+            if(p != null) {
+                p.clear();
+            }
+
+            final SlabStore o = offHeap;
+            if(o != null) {
+                o.clear();
+            }
+
+            final SharedTable s = sharedTable;
+            if(s != null && s.isWriter()) {
+                s.clear();
+            }
+            
+            final PrimitiveTable t = table;
+            if(t != null) {
+                t.clear();
+                return;
+            }
+            
+            if(!dedicated) {
+                final Set<K> toRemove = keys().collect(Collectors.toSet());
+                for(K k : toRemove) {
+                    discard(k);
+                }
+
+                return;
+            }
+
+            evictionLock.lock();
+            try {
+                maintenance();
+                refreshes.clear();
+                backing.clear();
+                count.reset();
+                policy = null;
+                configured = null;
+                configurePolicy(lifetime);
+                configureTimer(lifetime);
+                configured = lifetime;
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+
+        public void flush() {
+            final WriteBehind b = behind;
+            if(b != null) {
+                b.flush();
+            }
+        }
+
+        //a writer replaced or removed still has its pending writes flushed
+        protected void configureWriter(final CacheWriter<K,?> val, final WriteBehind writeBehind) {
+            final WriteBehind previous = behind;
+            behind = (val == null) ? null : writeBehind;
+            writer = val;
+            if(previous != null) {
+                previous.flush();
+            }
+        }
+
+        //write-through runs on the putting thread, so a put the writer fails isn't cached
+        @SuppressWarnings("unchecked")
+        protected void write(final K key, final Object value) {
+            final WriteBehind b = behind;
+            if(b != null) {
+                b.add(key, value);
+                return;
+            }
+
+            final CacheWriter<K,Object> w = (CacheWriter<K,Object>) writer;
+            if(w != null) {
+                w.write(key, value);
             }
         }
 
         protected View<K,V> copy() {
-            return new View<>(keyType, backing, lifetime);
+            final View<K,V> ret = new View<>(keyType, backing, lifetime);
+            ret.table = table;
+            return ret;
         }
 
         public void dirty(final K key) {
-            final Expiration val = (Expiration) backing.get(key);
-            if(val != null) {
-                backing.remove(key);
+            dirtied(key);
+            publish(key, false);
+        }
+
+        private void dirtied(final K key) {
+            misses.remove(key);
+            if(contains(key)) {
+                discard(key);
                 if(lifetime.getRefresh() == Refresh.EAGER) {
                     generate(key);
                 }
             }
         }
 
-        public Stream<K> keys() {
-            return backing.keySet().stream().filter(keyType::isInstance).map(keyType::cast);
+        private void publish(final K key, final boolean removed) {
+            final MethodId id = methodId;
+            if(invalidationBus == null || id == null) {
+                return;
+            }
+
+            final byte[] bytes;
+            try {
+                final Codec<K> codec = Codecs.of(keyType);
+                bytes = new byte[codec.sizeOf(key)];
+                codec.write(key, ByteBuffer.wrap(bytes));
+            }
+            catch(RuntimeException e) {
+                //a key that can't be encoded stays local
+                return;
+            }
+
+            invalidate(new Invalidation(id.getSignature(), bytes, removed));
         }
 
-        public long size() {
-            return backing.keySet().stream().filter(keyType::isInstance).count();
+        //from another node, applied here without being published again
+        protected void invalidated(final Invalidation val) {
+            final K key;
+            try {
+                key = keyType.cast(Codecs.of(keyType).read(ByteBuffer.wrap(val.getKey())));
+            }
+            catch(RuntimeException e) {
+                return;
+            }
+
+            if(val.isRemoved()) {
+                misses.remove(key);
+                discard(key);
+            }
+            else {
+                dirtied(key);
+            }
         }
 
-        protected Expiration untypedGenerate(final Object o) {
-            throw new UnsupportedOperationException();
+        protected void configure() {
+            final Lifetime current = lifetime;
+            evictionLock.lock();
+            try {
+                revalidate = (current.getRefresh() == Refresh.ON_DEMAND && timed(current));
+                //every timed read compares the entry's deadline against the clock, so nothing is
+                //served past it while it waits for the timer, the next sweep, or in a reference
+                //view that has no timer at all, the GC
+                checkOnRead = timed(current);
+                accessOrdered = (current.getExpires() == Expires.ACCESSED);
+                expiry = expiry(current);
+                remembers = (current.getNegativeTtl() != null || current.getFailureTtl() != null);
+                if(!Boolean.FALSE.equals(current.getRecordStats())) {
+                    stats = (stats == null) ? new StatsCounter() : stats;
+                }
+                else {
+                    stats = null;
+                }
+                if(!remembers) {
+                    misses.clear();
+                }
+                
+                configurePersistence(current);
+                configureOffHeap(current);
+                configureShared(current);
+                if(configureTable(current)) {
+                    configured = current;
+                    return;
+                }
+                
+                if(references != null) {
+                    //the GC bounds a reference view, node keys would hold weak keys strongly
+                    policy = null;
+                    timerWheel = null;
+                }
+                else {
+                    configurePolicy(current);
+                    configureTimer(current);
+                }
+
+                configured = current;
+                maintenance();
+            }
+            finally {
+                evictionLock.unlock();
+            }
+
+            submitRefreshes();
+        }
+
+        //must hold evictionLock
+        private void configurePersistence(final Lifetime current) {
+            final MappedStore previous = persistent;
+            if(current.getStorage() != Storage.PERSISTENT || methodId == null) {
+                persistent = null;
+                if(previous != null) {
+                    previous.close();
+                }
+
+                return;
+            }
+
+            if(previous == null) {
+                try {
+                    persistent = new MappedStore(persistentDirectory.resolve(MappedStore.directoryName(methodId)),
+                                                 MappedStore.SEGMENT_BYTES, Codecs.of(keyType), valueCodec());
+                }
+                catch(UncheckedIOException e) {
+                    //no usable directory, the view still works, it just starts cold next time
+                    return;
+                }
+            }
+
+            //see agedOut, entries with an Expiry are checked as they are read back
+            final boolean aged = timed(current) && current.getExpires() != Expires.VARIABLE;
+            persistent.setMaxAge(aged ? removalDeadline(0, current) : Long.MAX_VALUE);
+        }
+
+        //must hold evictionLock, the first JVM on the host to open the table writes it, the
+        //rest map it read-only, it lives next to the persistent tier's files
+        private void configureShared(final Lifetime current) {
+            final SharedTable previous = sharedTable;
+            if(current.getStorage() != Storage.HOST_SHARED || methodId == null) {
+                sharedTable = null;
+                if(previous != null) {
+                    previous.close();
+                }
+
+                return;
+            }
+
+            if(previous == null) {
+                final Long bytes = current.getOffHeapBytes();
+                try {
+                    sharedTable = new SharedTable(persistentDirectory.resolve(MappedStore.directoryName(methodId) + ".table"),
+                                                  (bytes == null || bytes <= 0L) ? SharedTable.DEFAULT_BYTES : bytes,
+                                                  Codecs.of(keyType), valueCodec());
+                }
+                catch(UncheckedIOException e) {
+                    //no usable directory, every JVM just caches for itself
+                }
+            }
+        }
+
+        //must hold evictionLock, the heap stays bounded by maxSize and what it evicts
+        //is demoted to the off-heap slabs instead of being dropped
+        private void configureOffHeap(final Lifetime current) {
+            final Long bytes = current.getOffHeapBytes();
+            if(current.getStorage() != Storage.TIERED || bytes == null || bytes <= 0L || !tiered()) {
+                offHeap = null;
+                return;
+            }
+
+            if(offHeap == null || offHeap.capacity() != bytes) {
+                offHeap = new SlabStore(bytes, valueCodec());
+            }
+        }
+
+        //must hold evictionLock, returns true when the view is held in a primitive table
+        private boolean configureTable(final Lifetime current) {
+            final Storage storage = current.getStorage();
+            //a table keeps a stamp per entry, not deadlines of its own
+            final boolean wanted = primitive() && dedicated && (storage == Storage.PRIMITIVE || storage == Storage.OFF_HEAP) &&
+                current.getExpires() != Expires.VARIABLE;
+            if(!wanted) {
+                table = null;
+                return false;
+            }
+
+            final Integer maxSize = current.getMaxSize();
+            final SharedBudget b = budget;
+            //a table can't weigh its entries, only a group counting them bounds it
+            final long maximum = (b != null && !b.isWeighted()) ? Math.max(allotment, 1L) :
+                (maxSize != null && maxSize < Lifetime.MAX_SIZE) ? maxSize : Long.MAX_VALUE;
+            if(table == null || table.isDirect() != (storage == Storage.OFF_HEAP)) {
+                table = new PrimitiveTable(maximum, storage == Storage.OFF_HEAP);
+            }
+
+            table.setMaximum(scaled(maximum));
+
+            table.setAccessOrder(current.getExpires() == Expires.ACCESSED);
+            policy = null;
+            timerWheel = null;
+            if(current.getExpires() == Expires.FIXED || current.getExpires() == Expires.ACCESSED) {
+                scheduleExpiration(now());
+            }
+            
+            return true;
+        }
+
+        //must hold evictionLock
+        private void configurePolicy(final Lifetime current) {
+            final Integer maxSize = current.getMaxSize();
+            final Long maxWeight = current.getMaxWeight();
+            final SharedBudget b = budget;
+            final boolean weighted = (b != null) ? b.isWeighted() : (maxWeight != null && maxWeight > 0L);
+            final boolean bounded = (b != null) || weighted || (maxSize != null && maxSize < Lifetime.MAX_SIZE);
+            final long maximum = scaled((b != null) ? Math.max(allotment, 1L) : weighted ? maxWeight : (bounded ? maxSize : 0L));
+            if(!bounded) {
+                policy = null;
+            }
+            else if(policy != null && policy.isWeighted() == weighted) {
+                policy.setMaximum(maximum);
+            }
+            else {
+                final WindowTinyLfu created = new WindowTinyLfu(maximum, weighted);
+                readBuffer = new ReadBuffer<>();
+                policy = created;
+                backing.forEach((k, v) -> {
+                        if(keyType.isInstance(k)) {
+                            //whatever an earlier policy made of the node means nothing to this one
+                            final Node node = (Node) v;
+                            node.queue = Node.NONE;
+                            node.prevInAccess = null;
+                            node.nextInAccess = null;
+                            node.weight = weighted ? weigh(k, node) : 1;
+                            created.onAdd(node);
+                        } });
+            }
+        }
+
+        private long scaled(final long maximum) {
+            final double s = scale;
+            return (s >= 1d || maximum == Long.MAX_VALUE) ? maximum : Math.max(1L, (long) (maximum * s));
+        }
+
+        //bounded by maxSize or maxWeight, the only views the memory governor resizes
+        protected boolean bounded() {
+            if(table != null) {
+                final Integer maxSize = lifetime.getMaxSize();
+                final SharedBudget b = budget;
+                return (b != null && !b.isWeighted()) || (maxSize != null && maxSize < Lifetime.MAX_SIZE);
+            }
+
+            return policy != null;
         }
 
-        protected Expiration generate(final K key) {
-            throw new UnsupportedOperationException();
+        //shrinking evicts the coldest entries straight away, growing just lets the view fill up again
+        protected void resize(final double val) {
+            evictionLock.lock();
+            try {
+                if(val == scale) {
+                    return;
+                }
+
+                scale = val;
+                if(table != null || policy != null) {
+                    configure();
+                }
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+
+        public Ghosts ghosts() {
+            return ghosts;
+        }
+
+        public long used() {
+            return weightedSize();
+        }
+
+        public void allot(final SharedBudget val, final long share) {
+            evictionLock.lock();
+            try {
+                budget = (share < 0L) ? null : val;
+                allotment = share;
+                if(share < 0L || table != null) {
+                    ghosts = null;
+                }
+                else {
+                    //a weighted share says little about how many keys to remember, the policy knows
+                    final WindowTinyLfu p = policy;
+                    final int capacity = Ghosts.capacityFor(val.isWeighted() ? ((p == null) ? 0L : p.entries()) : share);
+                    if(ghosts == null || ghosts.capacity() != capacity) {
+                        ghosts = new Ghosts(capacity);
+                    }
+                }
+
+                if(configured != null) {
+                    configure();
+                }
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+
+        //a new weigher weighs everything again, by rebuilding the policy around it
+        @SuppressWarnings("unchecked")
+        protected void configureWeigher(final Weigher<K,?> val) {
+            evictionLock.lock();
+            try {
+                weigher = (Weigher<Object,Object>) (Weigher<?,?>) val;
+                final WindowTinyLfu p = policy;
+                if(p != null && p.isWeighted()) {
+                    policy = null;
+                    configurePolicy(lifetime);
+                    maintenance();
+                }
+            }
+            finally {
+                evictionLock.unlock();
+            }
+
+            submitRefreshes();
+        }
+
+        protected int weigh(final Object key, final Expiration holder) {
+            final Weigher<Object,Object> w = weigher;
+            final int ret = (w == null) ? Weigher.estimate(boxed(holder)) : w.weigh(key, boxed(holder));
+            if(ret < 0) {
+                throw new IllegalArgumentException("Negative weight " + ret + " for " + key);
+            }
+
+            return ret;
+        }
+
+        //must hold evictionLock
+        private void configureTimer(final Lifetime current) {
+            final Expires expires = current.getExpires();
+            final boolean timed = timed(current);
+            if(configured != null &&
+               configured.getExpires() == expires &&
+               configured.getUnits().toMillis() == current.getUnits().toMillis() &&
+               staleMillis(configured) == staleMillis(current)) {
+                return;
+            }
+
+            final boolean convert = (configured != null && configured.getExpires() != expires);
+            timerWheel = timed ? new TimerWheel(now()) : null;
+            if(configured == null) {
+                return;
+            }
+
+            backing.forEach((k, v) -> {
+                    if(!keyType.isInstance(k)) {
+                        return;
+                    }
+                    
+                    if(convert) {
+                        store(k, Expiration.convert(expires, (Expiration) v));
+                    }
+                    else if(timed && v instanceof TimedNode) {
+                        final TimedNode node = (TimedNode) v;
+                        timerWheel.schedule(node, removalDeadline(node, current));
+                    } });
+        }
+
+        protected void rebind(final ConcurrentMap<Object,Object> val) {
+            final View<K,V> previous = copy();
+            evictionLock.lock();
+            try {
+                backing = val;
+                dedicated = dedicated(val);
+                references = (val instanceof ReferenceBacking) ? (ReferenceBacking) val : null;
+                count.reset();
+                policy = null;
+                timerWheel = null;
+                table = null;
+                configured = null;
+                writeBuffer.clear();
+            }
+            finally {
+                evictionLock.unlock();
+            }
+
+            previous.clear();
+            configure();
+        }
+
+        protected Expiration store(final Object key, final Expiration holder) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                tableStore(t, key, bits(holder));
+                return holder;
+            }
+            
+            final Node node = (Node) holder;
+            final ReferenceBacking r = references;
+            if(r == null || !r.isWeakKeys()) {
+                node.key = key;
+            }
+
+            final WindowTinyLfu w = policy;
+            if(w != null && w.isWeighted()) {
+                node.weight = weigh(key, holder);
+            }
+
+            final Expiry<Object,Object> e = expiry;
+            if(e != null && holder instanceof VariableExpiration) {
+                written(e, key, (VariableExpiration) holder, backing.get(key));
+            }
+
+            final Node previous = (Node) backing.put(key, node);
+            if(previous == null) {
+                count.increment();
+                afterWrite(() -> onAdd(node));
+            }
+            else {
+                afterWrite(() -> onReplace(previous, node));
+            }
+
+            //a value written over one that was demoted leaves no stale copy in the slabs
+            final SlabStore o = offHeap;
+            if(o != null) {
+                o.remove(key);
+            }
+
+            final MappedStore p = persistent;
+            if(p != null) {
+                persist(p, key, holder);
+            }
+
+            final SharedTable s = sharedTable;
+            if(s != null && s.isWriter()) {
+                s.put(key, boxed(holder), timed(lifetime) ? holder.getAccessed() : sinceEpoch());
+            }
+            
+            return holder;
+        }
+
+        //deadlines count from when the holder was written, so an entry restored from another
+        //tier keeps its age
+        private void written(final Expiry<Object,Object> e, final Object key, final VariableExpiration holder,
+                             final Object existing) {
+            final Object value = boxed(holder);
+            final long afterWrite = (existing instanceof VariableExpiration) ?
+                e.expireAfterUpdate(key, value, ((VariableExpiration) existing).remaining(now())) :
+                e.expireAfterCreate(key, value);
+            holder.written(1_000L * holder.getAccessed(), afterWrite, e.expireAfterRead(key, value));
+        }
+
+        //written through at second resolution on the wall clock, entries that never
+        //expire are stamped with when they were written, what was just restored from
+        //the store isn't written back
+        private void persist(final MappedStore p, final Object key, final Expiration holder) {
+            final int accessed = timed(lifetime) ? holder.getAccessed() : sinceEpoch();
+            final long written = EPOCH_MILLIS + 1_000L * accessed;
+            final Object value = boxed(holder);
+            if(!p.isCurrent(key, written, value)) {
+                p.write(key, written, value);
+            }
+        }
+
+        //a miss answered from the off-heap, host shared or persistent tier instead of the loader
+        protected Expiration restore(final K key) {
+            final Expiration ret = restoreAny(key);
+            final Expiry<Object,Object> e = expiry;
+            if(e == null || !(ret instanceof VariableExpiration)) {
+                return ret;
+            }
+
+            //the tiers only keep when it was written, its deadlines are worked out again
+            final VariableExpiration v = (VariableExpiration) ret;
+            written(e, key, v, null);
+            return (v.deadline() <= now()) ? null : ret;
+        }
+
+        private Expiration restoreAny(final K key) {
+            final Lifetime current = lifetime;
+            final Expiration promoted = offHeap(key, current);
+            if(promoted != null) {
+                return promoted;
+            }
+
+            final Expiration shared = shared(key);
+            if(shared != null) {
+                return shared;
+            }
+            
+            final MappedStore p = persistent;
+            if(p == null) {
+                return null;
+            }
+
+            final MappedStore.Entry entry = p.read(key);
+            if(entry == null) {
+                return null;
+            }
+
+            final int accessed = (int) Math.floorDiv(entry.written - EPOCH_MILLIS, 1_000L);
+            if(agedOut(accessed, current)) {
+                return null;
+            }
+
+            try {
+                return holderOf(entry.value, accessed);
+            }
+            catch(ClassCastException e) {
+                //written when the method returned something else
+                return null;
+            }
+        }
+
+        //the other tiers only keep when an entry was written, with an Expiry its deadlines
+        //aren't in units, restore() works them out again and drops what has expired
+        private boolean agedOut(final int accessed, final Lifetime current) {
+            return timed(current) && current.getExpires() != Expires.VARIABLE && deadline(accessed, current.getUnits()) <= now();
+        }
+
+        private Expiration offHeap(final K key, final Lifetime current) {
+            final SlabStore o = offHeap;
+            final SlabStore.Entry promoted = (o == null) ? null : o.take(key);
+            if(promoted == null || agedOut(promoted.accessed, current)) {
+                return null;
+            }
+
+            return holderOf(promoted.value, promoted.accessed);
+        }
+
+        //a read of a value that was demoted brings it back on heap, like a miss would
+        protected Expiration promote(final K key) {
+            final Expiration ret = offHeap(key, lifetime);
+            return (ret == null) ? null : store(key.permanent(), ret);
+        }
+
+        private Expiration shared(final K key) {
+            final SharedTable s = sharedTable;
+            final SharedTable.Entry entry = (s == null) ? null : s.get(key);
+            if(entry == null) {
+                return null;
+            }
+
+            final Lifetime current = lifetime;
+            if(agedOut(entry.accessed, current)) {
+                return null;
+            }
+
+            try {
+                return holderOf(entry.value, entry.accessed);
+            }
+            catch(ClassCastException e) {
+                return null;
+            }
+        }
+
+        protected void tableStore(final PrimitiveTable t, final Object key, final long bits) {
+            final int now = stamp();
+            t.put(key, bits, now);
+            final Expires expires = lifetime.getExpires();
+            if(expires == Expires.FIXED || expires == Expires.ACCESSED) {
+                scheduleExpiration(deadline(now, lifetime.getUnits()));
+            }
+        }
+
+        protected Expiration discard(final Object key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                t.remove(key);
+                return null;
+            }
+            
+            final Node previous = (Node) backing.remove(key);
+            if(previous != null) {
+                count.decrement();
+                afterWrite(() -> onRemove(previous));
+            }
+
+            final MappedStore p = persistent;
+            if(p != null) {
+                p.remove(key);
+            }
+
+            final SlabStore o = offHeap;
+            if(o != null) {
+                o.remove(key);
+            }
+
+            final SharedTable s = sharedTable;
+            if(s != null && s.isWriter()) {
+                s.remove(key);
+            }
+            
+            return previous;
+        }
+
+        //with Expires.ACCESSED a read moves the entry's stamp on, with an Expiry its idle
+        //deadline, both are in seconds so that is one write a second per entry however hot it is
+        protected void afterRead(final K key, final Expiration holder) {
+            if(accessOrdered && holder.getAccessed() != sinceEpoch()) {
+                holder.accessed();
+            }
+            else if(holder instanceof VariableExpiration) {
+                read(key, (VariableExpiration) holder);
+            }
+            
+            //readBuffer is always published before policy
+            if(policy != null && readBuffer.offer((Node) holder) == ReadBuffer.FULL) {
+                tryMaintenance();
+            }
+        }
+
+        //the caller's key, a weak keyed view's nodes don't keep theirs
+        private void read(final K key, final VariableExpiration holder) {
+            final Expiry<Object,Object> e = expiry;
+            if(e == null || holder.getRead() == sinceEpoch()) {
+                return;
+            }
+
+            holder.read(now(), e.expireAfterRead(key, boxed(holder)));
+        }
+
+        protected void afterWrite(final Runnable task) {
+            if(policy != null || timerWheel != null) {
+                writeBuffer.add(task);
+                tryMaintenance();
+            }
+        }
+
+        protected void tryMaintenance() {
+            while(evictionLock.tryLock()) {
+                try {
+                    maintenance();
+                }
+                finally {
+                    evictionLock.unlock();
+                }
+
+                if(writeBuffer.isEmpty()) {
+                    break;
+                }
+            }
+
+            submitRefreshes();
+        }
+
+        //a saturated pool runs a refresh on the submitting thread, its store would run
+        //maintenance again, so nothing is submitted while evictionLock is held
+        private void submitRefreshes() {
+            if(evictionLock.isHeldByCurrentThread()) {
+                return;
+            }
+
+            Object key;
+            while((key = refreshes.poll()) != null) {
+                final Object due = key;
+                workerPool.submit(() -> refresh(due));
+            }
+        }
+
+        //must hold evictionLock
+        protected void maintenance() {
+            if(policy != null) {
+                readBuffer.drainTo(policy::onAccess);
+            }
+            
+            Runnable task;
+            while((task = writeBuffer.poll()) != null) {
+                task.run();
+            }
+
+            if(timerWheel != null) {
+                timerWheel.advance(now(), EXPIRATIONS_PER_TICK, this::expire);
+            }
+
+            if(policy != null) {
+                policy.evict(this::evict);
+            }
+
+            final ReferenceBacking r = references;
+            if(r != null) {
+                r.drain();
+            }
+        }
+
+        private void evict(final Node node) {
+            if(backing.remove(node.key, node)) {
+                count.decrement();
+                final Ghosts g = ghosts;
+                if(g != null) {
+                    g.evicted(node.key.hashCode(), node.weight);
+                }
+
+                final SlabStore o = offHeap;
+                if(o != null && o.put(node.key, boxed(node), node.getAccessed())) {
+                    return;
+                }
+
+                final StatsCounter s = stats;
+                if(s != null) {
+                    s.eviction();
+                }
+            }
+        }
+
+        //called by the sweeper, returns how long until this view next needs it
+        protected long expire(final long now) {
+            if(!misses.isEmpty()) {
+                forgetMisses(now);
+            }
+            
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return expireTable(t, now);
+            }
+            
+            if(timerWheel == null) {
+                return Long.MAX_VALUE;
+            }
+
+            evictionLock.lock();
+            try {
+                maintenance();
+                return (timerWheel == null) ? Long.MAX_VALUE : timerWheel.getExpirationDelay();
+            }
+            finally {
+                evictionLock.unlock();
+                submitRefreshes();
+            }
+        }
+
+        //a failure is kept past its window until the longest backoff has gone by without
+        //another one, so consecutive failures keep backing off further
+        private void forgetMisses(final long now) {
+            final long grace = maxBackoffMillis(lifetime);
+            misses.values().removeIf((m) -> m.failure == null ? !m.live(now) : (now - m.until) >= grace);
+        }
+
+        private long expireTable(final PrimitiveTable t, final long now) {
+            final Lifetime current = lifetime;
+            final Expires expires = current.getExpires();
+            if(expires != Expires.FIXED && expires != Expires.ACCESSED) {
+                return Long.MAX_VALUE;
+            }
+
+            final boolean eager = current.getRefresh() == Refresh.EAGER;
+            final TimeUnits removeAfter = (current.getRefresh() == Refresh.ON_DEMAND) ?
+                TimeUnits.milliseconds(removalDeadline(0, current)) : current.getUnits();
+            final StatsCounter s = stats;
+            final List<Object> reload = new ArrayList<>();
+            final long delay = t.expire(now, removeAfter, (key) -> {
+                    if(s != null) {
+                        s.expiration();
+                    }
+                    
+                    return !eager;
+                }, reload);
+
+            //outside the segment locks, a saturated pool runs the refresh on this thread
+            for(Object key : reload) {
+                workerPool.submit(() -> refresh(key));
+            }
+
+            //stamps only have second resolution, no point sweeping more often than that
+            return Math.max(delay, 1_000L);
+        }
+
+        //must hold evictionLock
+        private void onAdd(final Node node) {
+            if(node.queue == Node.DEAD) {
+                return;
+            }
+
+            if(policy != null) {
+                policy.onAdd(node);
+            }
+
+            if(timerWheel != null && node instanceof TimedNode) {
+                schedule((TimedNode) node);
+            }
+        }
+
+        //must hold evictionLock
+        private void onReplace(final Node previous, final Node node) {
+            if(policy != null) {
+                policy.onReplace(previous, node);
+            }
+            else {
+                previous.queue = Node.DEAD;
+            }
+
+            if(previous instanceof TimedNode) {
+                deschedule((TimedNode) previous);
+            }
+
+            if(timerWheel != null && node instanceof TimedNode && node.queue != Node.DEAD) {
+                schedule((TimedNode) node);
+            }
+        }
+
+        //must hold evictionLock
+        private void onRemove(final Node node) {
+            if(policy != null) {
+                policy.onRemove(node);
+            }
+            else {
+                node.queue = Node.DEAD;
+            }
+
+            if(node instanceof TimedNode) {
+                deschedule((TimedNode) node);
+            }
+        }
+
+        private void schedule(final TimedNode node) {
+            final long deadline = removalDeadline(node, lifetime);
+            timerWheel.schedule(node, deadline);
+            scheduleExpiration(deadline);
+        }
+
+        private void deschedule(final TimedNode node) {
+            if(timerWheel != null) {
+                timerWheel.deschedule(node);
+            }
+        }
+
+        //must hold evictionLock, called back by the timer wheel for nodes that look due
+        private boolean expire(final TimedNode node) {
+            final long deadline = removalDeadline(node, lifetime);
+            if(deadline > timerWheel.getTime()) {
+                node.deadline = deadline;
+                return false;
+            }
+
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.expiration();
+            }
+
+            if(lifetime.getRefresh() == Refresh.EAGER && backing.get(node.key) == node) {
+                refreshes.add(node.key);
+                return true;
+            }
+
+            if(backing.remove(node.key, node)) {
+                count.decrement();
+                if(policy != null) {
+                    policy.onRemove(node);
+                }
+            }
+            
+            return true;
+        }
+
+        //an entry past its interval is still served while a single background reload runs,
+        //once it is past the max staleness as well it has to be loaded again before use
+        protected boolean usable(final K key, final int stamp) {
+            if(!checkOnRead || stamp < 0) {
+                return true;
+            }
+
+            return usableUntil(key, deadline(stamp, lifetime.getUnits()));
+        }
+
+        protected boolean usable(final K key, final Expiration holder) {
+            if(holder instanceof VariableExpiration) {
+                return !checkOnRead || usableUntil(key, ((VariableExpiration) holder).deadline());
+            }
+
+            return usable(key, holder.getAccessed());
+        }
+
+        private boolean usableUntil(final K key, final long deadline) {
+            final Lifetime current = lifetime;
+            final long now = now();
+            if(now < deadline) {
+                if(refreshEarly(current, deadline - now) && !inFlight.containsKey(key)) {
+                    generateAsync(key.permanent());
+                }
+                
+                return true;
+            }
+
+            if(!revalidate) {
+                //an eager view is already reloading it, anything else has simply expired
+                return current.getRefresh() == Refresh.EAGER && references == null;
+            }
+
+            if(now >= removalDeadline(deadline, current)) {
+                return false;
+            }
+
+            //the reload outlives this read, the caller's searcher may be reused by then
+            if(!inFlight.containsKey(key)) {
+                generateAsync(key.permanent());
+            }
+            
+            return true;
+        }
+
+        //XFetch, reload once -load time * beta * ln(random) reaches the time left, so the
+        //chance rises as the deadline nears and slow loads start sooner
+        private boolean refreshEarly(final Lifetime current, final long remaining) {
+            final double beta = earlyRefresh(current);
+            final long nanos = loadNanos;
+            if(beta <= 0d || nanos <= 0L) {
+                return false;
+            }
+
+            final double gap = -(nanos / 1_000_000d) * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+            return gap >= remaining;
+        }
+
+        //keeps a moving average of how long this method takes to load
+        protected void loaded(final long startNanos, final boolean success) {
+            final long sample = Math.max(System.nanoTime() - startNanos, 1L);
+            if(success) {
+                final long previous = loadNanos;
+                loadNanos = (previous == 0L) ? sample : previous + (sample - previous) / 8L;
+            }
+
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.load(sample, success);
+            }
+        }
+
+        protected void recordRead() {
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.read();
+            }
+        }
+
+        protected void recordMiss(final Object key) {
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.miss();
+            }
+
+            final Ghosts g = ghosts;
+            if(g != null) {
+                g.missed(key.hashCode());
+            }
+        }
+
+        protected void recordWait() {
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.inFlightWait();
+            }
+        }
+
+        public CacheStats stats() {
+            final StatsCounter s = stats;
+            final PrimitiveTable t = table;
+            final SlabStore o = offHeap;
+            final ReferenceBacking r = references;
+            return (s == null) ? CacheStats.EMPTY :
+                s.snapshot(((t == null) ? 0L : t.evictionCount()) + ((o == null) ? 0L : o.evictionCount()) +
+                           ((r == null) ? 0L : r.collectedCount()));
+        }
+
+        //when a new entry is written, shifted back by up to jitter * interval so entries
+        //loaded together don't all expire together
+        protected int stamp() {
+            final int now = sinceEpoch();
+            final Lifetime current = lifetime;
+            final Double jitter = current.getJitter();
+            if(jitter == null || jitter <= 0d || !timed(current) || current.getExpires() == Expires.VARIABLE) {
+                return now;
+            }
+
+            final double spread = Math.min(jitter, 1d) * current.getUnits().toSeconds();
+            return (int) Math.max(0L, now - (long) (spread * ThreadLocalRandom.current().nextDouble()));
+        }
+
+        protected Expiration load(final K key) {
+            final Expiration restored = restore(key);
+            if(restored != null) {
+                return restored;
+            }
+            
+            final long start = System.nanoTime();
+            try {
+                final Expiration holder = compute(key);
+                loaded(start, true);
+                return holder;
+            }
+            catch(RuntimeException | Error e) {
+                loaded(start, false);
+                throw e;
+            }
+        }
+
+        //a read that has to go to the loader, unless another JVM on the host already
+        //has, a reader serves those from the shared pages without keeping them on heap
+        protected Expiration miss(final K key) {
+            final SharedTable s = sharedTable;
+            if(s != null && !s.isWriter()) {
+                final Expiration shared = shared(key);
+                if(shared != null) {
+                    return shared;
+                }
+            }
+
+            recordMiss(key);
+            return generate(key);
+        }
+
+        private void refresh(final Object key) {
+            try {
+                untypedGenerate(key);
+            }
+            catch(RuntimeException e) {
+                discard(key);
+            }
+        }
+
+        public Stream<K> keys() {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.keys().map(keyType::cast);
+            }
+            
+            final SlabStore o = offHeap;
+            final Stream<Object> heap = backing.keySet().stream();
+            final Stream<Object> all = (o == null) ? heap : Stream.concat(heap, o.keys());
+            return (dedicated ? all : all.filter(keyType::isInstance)).map(keyType::cast);
+        }
+
+        public long size() {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.size();
+            }
+            
+            final SlabStore o = offHeap;
+            return (dedicated ? backing.size() : Math.max(count.sum(), 0L)) + ((o == null) ? 0L : o.size());
+        }
+
+        public long weightedSize() {
+            final WindowTinyLfu p = policy;
+            if(p == null || !p.isWeighted()) {
+                return size();
+            }
+
+            evictionLock.lock();
+            try {
+                return p.size();
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+
+        protected Stream<Object> holders() {
+            if(dedicated) {
+                return backing.values().stream();
+            }
+            else {
+                return backing.entrySet().stream()
+                    .filter((e) -> keyType.isInstance(e.getKey()))
+                    .map(Map.Entry::getValue);
+            }
+        }
+
+        protected boolean primitive() {
+            return false;
+        }
+
+        //whether values can be demoted off heap with Storage.TIERED
+        protected boolean tiered() {
+            return false;
+        }
+
+        protected long bits(final Expiration holder) {
+            throw new UnsupportedOperationException();
+        }
+
+        protected Expiration compute(final K key) {
+            throw new UnsupportedOperationException();
+        }
+
+        protected CompletableFuture<Expiration> computeAsync(final K key) {
+            return CompletableFuture.supplyAsync(() -> compute(key), workerPool);
+        }
+
+        protected Expiration untypedGenerate(final Object o) {
+            return generate(keyType.cast(o));
+        }
+
+        protected Expiration generate(final K key) {
+            final K permanent = key.permanent();
+            final Miss miss = remembered(permanent);
+            if(miss != null) {
+                return extract(answered(miss));
+            }
+            
+            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
+            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+
+            if(future != attempt) {
+                recordWait();
+                return extract(future);
+            }
+
+            return doInFlight(permanent, future, () -> load(key));
+        }
+
+        //waiters compose on the loading future instead of parking a thread each
+        protected CompletableFuture<Expiration> generateAsync(final K key) {
+            final K permanent = key.permanent();
+            final Miss miss = remembered(permanent);
+            if(miss != null) {
+                return answered(miss);
+            }
+            
+            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
+            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+            if(future != attempt) {
+                recordWait();
+                return future;
+            }
+
+            final Expiration restored = restore(key);
+            if(restored != null) {
+                try {
+                    attempt.complete(restored);
+                    store(permanent, restored);
+                }
+                finally {
+                    inFlight.remove(permanent, attempt);
+                }
+
+                return attempt;
+            }
+            
+            final long start = System.nanoTime();
+            CompletableFuture<Expiration> loading;
+            try {
+                //the load finishes on a worker, long after the caller may have reused its searcher
+                loading = computeAsync(permanent);
+            }
+            catch(RuntimeException e) {
+                loading = new CompletableFuture<>();
+                loading.completeExceptionally(e);
+            }
+            
+            loading.whenComplete((holder, e) -> {
+                    try {
+                        if(e != null) {
+                            final Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                            loaded(start, false);
+                            rememberFailure(permanent, cause);
+                            attempt.completeExceptionally(cause);
+                        }
+                        else {
+                            loaded(start, true);
+                            attempt.complete(holder);
+                            if(!rememberAbsent(permanent, holder)) {
+                                store(permanent, holder);
+                            }
+                        }
+                    }
+                    finally {
+                        inFlight.remove(permanent, attempt);
+                    }
+                });
+            
+            return attempt;
+        }
+
+        protected CompletableFuture<Expiration> holderAsync(final K key) {
+            recordRead();
+            final Expiration holder = (Expiration) backing.get(key);
+            if(holder != null && usable(key, holder)) {
+                afterRead(key, holder);
+                return CompletableFuture.completedFuture(holder);
+            }
+
+            recordMiss(key);
+            return generateAsync(key);
+        }
+
+        protected CompletableFuture<Long> bitsAsync(final PrimitiveTable t, final K key) {
+            recordRead();
+            final boolean[] missed = new boolean[1];
+            final long bits = t.getOrLoad(key, sinceEpoch(), fresh, (k) -> {
+                    missed[0] = true;
+                    return 0L;
+                });
+
+            if(missed[0]) {
+                recordMiss(key);
+                return generateAsync(key).thenApply(this::bits);
+            }
+            
+            return CompletableFuture.completedFuture(bits);
+        }
+
+        protected Object boxed(final Expiration holder) {
+            throw new UnsupportedOperationException();
+        }
+
+        protected Object boxedBits(final long bits) {
+            throw new UnsupportedOperationException();
+        }
+
+        protected Expiration holderOf(final Object value) {
+            return holderOf(value, stamp());
+        }
+
+        protected Expiration holderOf(final Object value, final int accessed) {
+            throw new UnsupportedOperationException();
+        }
+
+        //how boxed(holder) is written to the persistent tier
+        protected Codec<?> valueCodec() {
+            return Codecs.serializing(keyType.getClassLoader());
+        }
+
+        //puts the cached value into the map and returns true on a hit
+        protected boolean lookup(final K key, final Map<K,Object> into) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                final boolean[] missed = new boolean[1];
+                final long bits = t.getOrLoad(key, sinceEpoch(), fresh, (k) -> {
+                        missed[0] = true;
+                        return 0L;
+                    });
+
+                if(!missed[0]) {
+                    into.put(key, boxedBits(bits));
+                }
+                
+                return !missed[0];
+            }
+
+            final Expiration holder = (Expiration) backing.get(key);
+            if(holder == null || !usable(key, holder)) {
+                return false;
+            }
+            
+            afterRead(key, holder);
+            into.put(key, boxed(holder));
+            return true;
+        }
+
+        //hits are answered straight away, misses this call wins are loaded with a single batch call,
+        //misses someone else is already loading are waited on
+        protected Map<K,Object> valuesOf(final Collection<K> keys) {
+            final Map<K,Object> ret = new LinkedHashMap<>();
+            final Map<K,CompletableFuture<Expiration>> owned = new LinkedHashMap<>();
+            final Map<K,CompletableFuture<Expiration>> waiting = new LinkedHashMap<>();
+            final StatsCounter s = stats;
+            if(s != null) {
+                s.reads(keys.size());
+            }
+            
+            for(K key : keys) {
+                if(ret.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key) || lookup(key, ret)) {
+                    continue;
+                }
+
+                recordMiss(key);
+
+                final K permanent = key.permanent();
+                final Miss miss = remembered(permanent);
+                if(miss != null) {
+                    waiting.put(key, answered(miss));
+                    continue;
+                }
+                
+                final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
+                final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+                if(future == attempt) {
+                    owned.put(permanent, attempt);
+                }
+                else {
+                    recordWait();
+                    waiting.put(key, future);
+                }
+            }
+
+            if(!owned.isEmpty()) {
+                loadAll(owned, ret);
+            }
+
+            for(Map.Entry<K,CompletableFuture<Expiration>> e : waiting.entrySet()) {
+                ret.put(e.getKey(), boxed(extract(e.getValue())));
+            }
+
+            return ret;
+        }
+
+        //every key settles on its own, a failure only reaches the waiters of the key it belongs
+        //to and the first one is rethrown once the rest are done
+        private void loadAll(final Map<K,CompletableFuture<Expiration>> owned, final Map<K,Object> into) {
+            final Function<Collection<K>,? extends Map<K,?>> loader = batchLoader;
+            Map<K,?> loaded = null;
+            Throwable failed = null;
+            if(loader != null) {
+                try {
+                    loaded = loadBatch(loader, owned.keySet());
+                }
+                catch(RuntimeException | Error e) {
+                    failed = e;
+                }
+            }
+
+            Throwable thrown = failed;
+            for(Map.Entry<K,CompletableFuture<Expiration>> entry : owned.entrySet()) {
+                final K permanent = entry.getKey();
+                final CompletableFuture<Expiration> future = entry.getValue();
+                if(failed != null) {
+                    rememberFailure(permanent, failed);
+                    future.completeExceptionally(failed);
+                    inFlight.remove(permanent, future);
+                    continue;
+                }
+
+                //anything the batch didn't answer falls back to the single key loader
+                final Map<K,?> batch = loaded;
+                try {
+                    final Expiration holder = (batch != null && batch.containsKey(permanent)) ?
+                        doInFlight(permanent, future, () -> holderOf(batch.get(permanent))) :
+                        doInFlight(permanent, future, () -> load(permanent));
+                    into.put(permanent, boxed(holder));
+                }
+                catch(RuntimeException | Error e) {
+                    //later failures have already reached the waiters on their own keys
+                    if(thrown == null) {
+                        thrown = e;
+                    }
+                }
+            }
+
+            if(thrown != null) {
+                throw unwrap(thrown);
+            }
+        }
+
+        protected boolean absent(final Expiration holder) {
+            return false;
+        }
+
+        protected Miss remembered(final Object permanent) {
+            if(!remembers) {
+                return null;
+            }
+            
+            final Miss miss = misses.get(permanent);
+            return (miss != null && miss.live(now())) ? miss : null;
+        }
+
+        protected CompletableFuture<Expiration> answered(final Miss miss) {
+            final CompletableFuture<Expiration> ret = new CompletableFuture<>();
+            if(miss.failure != null) {
+                ret.completeExceptionally(miss.failure);
+            }
+            else {
+                ret.complete(miss.holder);
+            }
+
+            return ret;
+        }
+
+        //returns true when a null result is remembered on the side instead of being stored
+        protected boolean rememberAbsent(final Object permanent, final Expiration holder) {
+            if(!remembers) {
+                return false;
+            }
+
+            final TimeUnits ttl = lifetime.getNegativeTtl();
+            if(ttl == null || !absent(holder)) {
+                misses.remove(permanent);
+                return false;
+            }
+
+            misses.put(permanent, Miss.absent(holder, now() + ttl.toMillis()));
+            discard(permanent);
+            return true;
+        }
+
+        protected void rememberFailure(final Object permanent, final Throwable failure) {
+            final Lifetime current = lifetime;
+            final TimeUnits ttl = current.getFailureTtl();
+            if(!remembers || ttl == null) {
+                return;
+            }
+
+            final Miss previous = misses.get(permanent);
+            final int failures = (previous != null && previous.failure != null) ? previous.failures + 1 : 1;
+            final long backoff = backoff(ttl.toMillis(), maxBackoffMillis(current), failures);
+            misses.put(permanent, Miss.failed(failure, failures, now() + backoff));
+        }
+
+        private Map<K,?> loadBatch(final Function<Collection<K>,? extends Map<K,?>> loader, final Set<K> keys) {
+            final long start = System.nanoTime();
+            boolean success = false;
+            try {
+                final Map<K,?> ret = loader.apply(Collections.unmodifiableSet(keys));
+                success = true;
+                return ret;
+            }
+            finally {
+                //counted as one load, it says nothing about how long a single key takes
+                final StatsCounter s = stats;
+                if(s != null) {
+                    s.load(Math.max(System.nanoTime() - start, 1L), success);
+                }
+            }
+        }
+
+        protected Expiration extract(final CompletableFuture<Expiration> future) {
+            try {
+                return future.get();
+            }
+            catch(InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            catch(ExecutionException e) {
+                throw unwrap(e.getCause());
+            }
+        }
+
+        protected Expiration doInFlight(final K permanent,
+                                        final CompletableFuture<Expiration> future,
+                                        final Supplier<Expiration> supplier) {
+            try {
+                Expiration holder = supplier.get();
+                future.complete(holder);
+                if(!rememberAbsent(permanent, holder)) {
+                    store(permanent, holder);
+                }
+                
+                return holder;
+            }
+            catch(RuntimeException | Error e) {
+                rememberFailure(permanent, e);
+                future.completeExceptionally(e);
+                throw e;
+            }
+            finally {
+                inFlight.remove(permanent, future);
+            }
+        }
+    }
+
+    private static boolean timed(final Lifetime lifetime) {
+        final Expires expires = lifetime.getExpires();
+        return expires == Expires.FIXED || expires == Expires.ACCESSED || expires == Expires.VARIABLE;
+    }
+
+    private static long maxBackoffMillis(final Lifetime lifetime) {
+        final TimeUnits max = lifetime.getMaxBackoff();
+        final TimeUnits ttl = lifetime.getFailureTtl();
+        if(max != null) {
+            return max.toMillis();
+        }
+
+        return (ttl == null) ? 0L : backoff(ttl.toMillis(), Long.MAX_VALUE, 6);
+    }
+
+    //base doubled for every failure after the first, capped at max
+    private static long backoff(final long base, final long max, final int failures) {
+        final int shift = Math.min(failures - 1, 62);
+        return (base > (max >> shift)) ? max : (base << shift);
+    }
+
+    private static double earlyRefresh(final Lifetime lifetime) {
+        final Double beta = lifetime.getEarlyRefresh();
+        return (beta == null) ? 0d : beta;
+    }
+
+    private static long staleMillis(final Lifetime lifetime) {
+        final TimeUnits maxStale = lifetime.getMaxStale();
+        return (lifetime.getRefresh() != Refresh.ON_DEMAND || maxStale == null) ? 0L : maxStale.toMillis();
+    }
+
+    //when the entry has to go, its interval plus however long it may be served stale
+    private static long removalDeadline(final int since, final Lifetime lifetime) {
+        return removalDeadline(deadline(since, lifetime.getUnits()), lifetime);
+    }
+
+    private static long removalDeadline(final long deadline, final Lifetime lifetime) {
+        final long stale = staleMillis(lifetime);
+        return (stale > Long.MAX_VALUE - deadline) ? Long.MAX_VALUE : deadline + stale;
+    }
+
+    private static long removalDeadline(final TimedNode node, final Lifetime lifetime) {
+        return (node instanceof VariableExpiration) ? removalDeadline(((VariableExpiration) node).deadline(), lifetime) :
+            removalDeadline(node.getAccessed(), lifetime);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expiry<Object,Object> expiry(final Lifetime lifetime) {
+        return (Expiry<Object,Object>) lifetime.getExpiry();
+    }
+
+    private static RuntimeException unwrap(final Throwable t) {
+        final Throwable cause = (t instanceof CompletionException && t.getCause() != null) ? t.getCause() : t;
+        if(cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
         }
-
-        protected Expiration extract(final CompletableFuture<Expiration> future) {
-            try {
-                return future.get();
-            }
-            catch(InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-            }
+        else if(cause instanceof Error) {
+            throw (Error) cause;
         }
-
-        protected Expiration doInFlight(final K permanent,
-                                        final CompletableFuture<Expiration> future,
-                                        final Supplier<Expiration> supplier) {
-            try {
-                Expiration holder = supplier.get();
-                future.complete(holder);
-                backing.put(permanent, holder);
-                return holder;
-            }
-            finally {
-                inFlight.remove(permanent);
-            }
+        else {
+            return new CompletionException(cause);
         }
     }
 
     private class IntView<K extends Permanent<K>> extends View<K,Expiration> implements IntCacheView<K> {
         private final ToIntFunction<K> function;
+        private final ToLongFunction<Object> loader = (o) -> ((IntHolder) miss(keyType.cast(o))).value();
         
         public IntView(final Class<K> keyType, final ConcurrentMap<Object,Object> backing,
                        final Lifetime lifetime, final ToIntFunction<K> function) {
@@ -253,49 +2141,121 @@ public class AllCaches implements CacheRegistry {
         }
 
         public int value(final K key) {
+            recordRead();
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return (int) t.getOrLoad(key, sinceEpoch(), fresh, loader);
+            }
+            
             final IntHolder holder = (IntHolder) backing.get(key);
-            if(holder != null) {
+            if(holder != null && usable(key, (Expiration) holder)) {
+                afterRead(key, (Expiration) holder);
                 return holder.value();
             }
             else {
-                return ((IntHolder) generate(key)).value();
+                return ((IntHolder) miss(key)).value();
+            }
+        }
+        
+        public CompletableFuture<Integer> valueAsync(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return bitsAsync(t, key).thenApply((bits) -> (int) (long) bits);
             }
+
+            return holderAsync(key).thenApply((h) -> ((IntHolder) h).value());
         }
         
         public int get(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return (int) t.get(key, 0L, fresh);
+            }
+            
             final IntHolder holder = (IntHolder) backing.get(key);
-            return (holder == null) ? 0 : holder.value();
+            return (holder == null || !usable(key, (Expiration) holder)) ? 0 : holder.value();
         }
         
         public void put(final K key, final int val) {
-            backing.put(key.permanent(), Expiration.forInt(lifetime.getExpires(), val));
+            final K permanent = key.permanent();
+            if(writer != null) {
+                write(permanent, val);
+            }
+
+            final PrimitiveTable t = table;
+            if(t != null) {
+                tableStore(t, permanent, val);
+                return;
+            }
+            
+            store(permanent, Expiration.forInt(lifetime.getExpires(), val));
         }
         
         public IntStream values() {
-            return backing.entrySet().stream()
-                .filter(keyType::isInstance)
-                .mapToInt((e) -> ((IntHolder) e.getValue()).value());
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.values().mapToInt((bits) -> (int) bits);
+            }
+            
+            return holders().mapToInt((h) -> ((IntHolder) h).value());
         }
 
         @Override
-        protected Expiration untypedGenerate(final Object o) {
-            return generate(keyType.cast(o));
+        protected boolean primitive() {
+            return true;
         }
 
         @Override
-        protected Expiration generate(final K key) {
-            final K permanent = key.permanent();
-            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
-            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+        protected long bits(final Expiration holder) {
+            return ((IntHolder) holder).value();
+        }
+
+        public Map<K,Integer> values(final Collection<K> keys) {
+            @SuppressWarnings("unchecked") final Map<K,Integer> ret = (Map<K,Integer>) (Map<K,?>) valuesOf(keys);
+            return ret;
+        }
+
+        public void batchLoader(final Function<Collection<K>,Map<K,Integer>> loader) {
+            this.batchLoader = loader;
+        }
+
+        public void writer(final CacheWriter<K,Integer> val) {
+            configureWriter(val, null);
+        }
+
+        public void writer(final CacheWriter<K,Integer> val, final int batchSize, final TimeUnits delay) {
+            configureWriter(val, new WriteBehind(val, batchSize, delay.toMillis(), writerPool, flushTimer));
+        }
+
+        @Override
+        protected Object boxed(final Expiration holder) {
+            return ((IntHolder) holder).value();
+        }
+
+        @Override
+        protected Object boxedBits(final long bits) {
+            return (int) bits;
+        }
+
+        @Override
+        protected Expiration holderOf(final Object value, final int accessed) {
+            return Expiration.forInt(lifetime.getExpires(), ((Number) value).intValue(), accessed);
+        }
 
-            return (Expiration) ((future == attempt) ?
-                                 doInFlight(permanent, future, () -> Expiration.forInt(lifetime.getExpires(), function.applyAsInt(key))) :
-                                 extract(future));
+        @Override
+        protected Codec<?> valueCodec() {
+            return Codecs.of(Integer.class);
+        }
+
+        @Override
+        protected Expiration compute(final K key) {
+            return Expiration.forInt(lifetime.getExpires(), function.applyAsInt(key), stamp());
         }
     }
 
     private class LongView<K extends Permanent<K>> extends View<K,Expiration> implements LongCacheView<K> {
         private final ToLongFunction<K> function;
+        private final ToLongFunction<Object> loader = (o) -> ((LongHolder) miss(keyType.cast(o))).value();
         
         public LongView(final Class<K> keyType, final ConcurrentMap<Object,Object> backing,
                         final Lifetime lifetime, final ToLongFunction<K> function) {
@@ -304,49 +2264,121 @@ public class AllCaches implements CacheRegistry {
         }
 
         public long value(final K key) {
+            recordRead();
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.getOrLoad(key, sinceEpoch(), fresh, loader);
+            }
+            
             final LongHolder holder = (LongHolder) backing.get(key);
-            if(holder != null) {
+            if(holder != null && usable(key, (Expiration) holder)) {
+                afterRead(key, (Expiration) holder);
                 return holder.value();
             }
             else {
-                return ((LongHolder) generate(key)).value();
+                return ((LongHolder) miss(key)).value();
+            }
+        }
+        
+        public CompletableFuture<Long> valueAsync(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return bitsAsync(t, key);
             }
+
+            return holderAsync(key).thenApply((h) -> ((LongHolder) h).value());
         }
         
         public long get(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.get(key, 0L, fresh);
+            }
+            
             final LongHolder holder = (LongHolder) backing.get(key);
-            return (holder == null) ? 0L : holder.value();
+            return (holder == null || !usable(key, (Expiration) holder)) ? 0L : holder.value();
         }
         
         public void put(final K key, final long val) {
-            backing.put(key.permanent(), Expiration.forLong(lifetime.getExpires(), val));
+            final K permanent = key.permanent();
+            if(writer != null) {
+                write(permanent, val);
+            }
+
+            final PrimitiveTable t = table;
+            if(t != null) {
+                tableStore(t, permanent, val);
+                return;
+            }
+            
+            store(permanent, Expiration.forLong(lifetime.getExpires(), val));
         }
         
         public LongStream values() {
-            return backing.entrySet().stream()
-                .filter(keyType::isInstance)
-                .mapToLong((e) -> ((LongHolder) e.getValue()).value());
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.values();
+            }
+            
+            return holders().mapToLong((h) -> ((LongHolder) h).value());
         }
 
         @Override
-        protected Expiration untypedGenerate(final Object o) {
-            return generate(keyType.cast(o));
+        protected boolean primitive() {
+            return true;
         }
 
         @Override
-        protected Expiration generate(final K key) {
-            final K permanent = key.permanent();
-            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
-            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+        protected long bits(final Expiration holder) {
+            return ((LongHolder) holder).value();
+        }
+
+        public Map<K,Long> values(final Collection<K> keys) {
+            @SuppressWarnings("unchecked") final Map<K,Long> ret = (Map<K,Long>) (Map<K,?>) valuesOf(keys);
+            return ret;
+        }
+
+        public void batchLoader(final Function<Collection<K>,Map<K,Long>> loader) {
+            this.batchLoader = loader;
+        }
+
+        public void writer(final CacheWriter<K,Long> val) {
+            configureWriter(val, null);
+        }
+
+        public void writer(final CacheWriter<K,Long> val, final int batchSize, final TimeUnits delay) {
+            configureWriter(val, new WriteBehind(val, batchSize, delay.toMillis(), writerPool, flushTimer));
+        }
+
+        @Override
+        protected Object boxed(final Expiration holder) {
+            return ((LongHolder) holder).value();
+        }
+
+        @Override
+        protected Object boxedBits(final long bits) {
+            return bits;
+        }
+
+        @Override
+        protected Expiration holderOf(final Object value, final int accessed) {
+            return Expiration.forLong(lifetime.getExpires(), ((Number) value).longValue(), accessed);
+        }
+
+        @Override
+        protected Codec<?> valueCodec() {
+            return Codecs.of(Long.class);
+        }
 
-            return (Expiration) ((future == attempt) ?
-                                 doInFlight(permanent, future, () -> Expiration.forLong(lifetime.getExpires(), function.applyAsLong(key))) :
-                                 extract(future));
+        @Override
+        protected Expiration compute(final K key) {
+            return Expiration.forLong(lifetime.getExpires(), function.applyAsLong(key), stamp());
         }
     }
     
     private class DoubleView<K extends Permanent<K>> extends View<K,Expiration> implements DoubleCacheView<K> {
         private final ToDoubleFunction<K> function;
+        private final ToLongFunction<Object> loader = (o) -> Double.doubleToRawLongBits(((DoubleHolder) miss(keyType.cast(o))).value());
         
         public DoubleView(final Class<K> keyType, final ConcurrentMap<Object,Object> backing,
                           final Lifetime lifetime, final ToDoubleFunction<K> function) {
@@ -355,44 +2387,115 @@ public class AllCaches implements CacheRegistry {
         }
 
         public double value(final K key) {
+            recordRead();
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return Double.longBitsToDouble(t.getOrLoad(key, sinceEpoch(), fresh, loader));
+            }
+            
             final DoubleHolder holder = (DoubleHolder) backing.get(key);
-            if(holder != null) {
+            if(holder != null && usable(key, (Expiration) holder)) {
+                afterRead(key, (Expiration) holder);
                 return holder.value();
             }
             else {
-                return ((DoubleHolder) generate(key)).value();
+                return ((DoubleHolder) miss(key)).value();
+            }
+        }
+        
+        public CompletableFuture<Double> valueAsync(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return bitsAsync(t, key).thenApply(Double::longBitsToDouble);
             }
+
+            return holderAsync(key).thenApply((h) -> ((DoubleHolder) h).value());
         }
         
         public double get(final K key) {
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return Double.longBitsToDouble(t.get(key, Double.doubleToRawLongBits(0.0d), fresh));
+            }
+            
             final DoubleHolder holder = (DoubleHolder) backing.get(key);
-            return (holder == null) ? 0.0d : holder.value();
+            return (holder == null || !usable(key, (Expiration) holder)) ? 0.0d : holder.value();
         }
         
         public void put(final K key, final double val) {
-            backing.put(key.permanent(), Expiration.forDouble(lifetime.getExpires(), val));
+            final K permanent = key.permanent();
+            if(writer != null) {
+                write(permanent, val);
+            }
+
+            final PrimitiveTable t = table;
+            if(t != null) {
+                tableStore(t, permanent, Double.doubleToRawLongBits(val));
+                return;
+            }
+            
+            store(permanent, Expiration.forDouble(lifetime.getExpires(), val));
         }
         
         public DoubleStream values() {
-            return backing.entrySet().stream()
-                .filter(keyType::isInstance)
-                .mapToDouble((e) -> ((DoubleHolder) e.getValue()).value());
+            final PrimitiveTable t = table;
+            if(t != null) {
+                return t.values().mapToDouble(Double::longBitsToDouble);
+            }
+            
+            return holders().mapToDouble((h) -> ((DoubleHolder) h).value());
         }
 
         @Override
-        protected Expiration untypedGenerate(final Object o) {
-            return generate(keyType.cast(o));
+        protected boolean primitive() {
+            return true;
         }
 
         @Override
-        protected Expiration generate(final K key) {
-            final K permanent = key.permanent();
-            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
-            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
-            
-            return (Expiration) ((future == attempt) ?
-                                 doInFlight(permanent, future, () -> Expiration.forDouble(lifetime.getExpires(), function.applyAsDouble(key))) :
-                                 extract(future));
+        protected long bits(final Expiration holder) {
+            return Double.doubleToRawLongBits(((DoubleHolder) holder).value());
+        }
+
+        public Map<K,Double> values(final Collection<K> keys) {
+            @SuppressWarnings("unchecked") final Map<K,Double> ret = (Map<K,Double>) (Map<K,?>) valuesOf(keys);
+            return ret;
+        }
+
+        public void batchLoader(final Function<Collection<K>,Map<K,Double>> loader) {
+            this.batchLoader = loader;
+        }
+
+        public void writer(final CacheWriter<K,Double> val) {
+            configureWriter(val, null);
+        }
+
+        public void writer(final CacheWriter<K,Double> val, final int batchSize, final TimeUnits delay) {
+            configureWriter(val, new WriteBehind(val, batchSize, delay.toMillis(), writerPool, flushTimer));
+        }
+
+        @Override
+        protected Object boxed(final Expiration holder) {
+            return ((DoubleHolder) holder).value();
+        }
+
+        @Override
+        protected Object boxedBits(final long bits) {
+            return Double.longBitsToDouble(bits);
+        }
+
+        @Override
+        protected Expiration holderOf(final Object value, final int accessed) {
+            return Expiration.forDouble(lifetime.getExpires(), ((Number) value).doubleValue(), accessed);
+        }
+
+        @Override
+        protected Codec<?> valueCodec() {
+            return Codecs.of(Double.class);
+        }
+
+        @Override
+        protected Expiration compute(final K key) {
+            return Expiration.forDouble(lifetime.getExpires(), function.applyAsDouble(key), stamp());
         }
     }
 
@@ -409,66 +2512,160 @@ public class AllCaches implements CacheRegistry {
         }
 
         public V value(final K key) {
+            recordRead();
             final ObjectHolder holder = (ObjectHolder) backing.get(key);
-            if(holder != null) {
+            if(holder != null && usable(key, (Expiration) holder)) {
+                afterRead(key, (Expiration) holder);
                 return valueType.cast(holder.value());
             }
             else {
-                return valueType.cast(((ObjectHolder) generate(key)).value());
+                return valueType.cast(((ObjectHolder) miss(key)).value());
             }
         }
         
+        public CompletableFuture<V> valueAsync(final K key) {
+            return holderAsync(key).thenApply((h) -> valueType.cast(((ObjectHolder) h).value()));
+        }
+        
         public V get(final K key) {
-            final ObjectHolder holder = (ObjectHolder) backing.get(key);
-            return valueType.cast((holder == null) ? null : holder.value());
+            ObjectHolder holder = (ObjectHolder) backing.get(key);
+            if(holder == null && offHeap != null) {
+                holder = (ObjectHolder) promote(key);
+            }
+
+            return valueType.cast((holder == null || !usable(key, (Expiration) holder)) ? null : holder.value());
         }
         
         public void put(final K key, final V val) {
-            backing.put(key.permanent(), Expiration.forObject(lifetime.getExpires(), val));
+            final K permanent = key.permanent();
+            if(writer != null) {
+                write(permanent, val);
+            }
+
+            store(permanent, Expiration.forObject(lifetime.getExpires(), val));
         }
         
         public Stream<V> values() {
-            return backing.entrySet().stream()
-                .filter(keyType::isInstance)
-                .map((e) -> valueType.cast(((ObjectHolder) e.getValue()).value()));
+            final SlabStore o = offHeap;
+            final Stream<V> heap = holders().map((h) -> valueType.cast(((ObjectHolder) h).value()));
+            return (o == null) ? heap : Stream.concat(heap, o.entries().map((e) -> valueType.cast(e.value)));
+        }
+
+        public Map<K,V> values(final Collection<K> keys) {
+            @SuppressWarnings("unchecked") final Map<K,V> ret = (Map<K,V>) (Map<K,?>) valuesOf(keys);
+            return ret;
+        }
+
+        public void batchLoader(final Function<Collection<K>,Map<K,V>> loader) {
+            this.batchLoader = loader;
+        }
+
+        public void writer(final CacheWriter<K,V> val) {
+            configureWriter(val, null);
+        }
+
+        public void writer(final CacheWriter<K,V> val, final int batchSize, final TimeUnits delay) {
+            configureWriter(val, new WriteBehind(val, batchSize, delay.toMillis(), writerPool, flushTimer));
+        }
+
+        public void weigher(final Weigher<K,V> val) {
+            configureWeigher(val);
         }
 
         @Override
-        protected Expiration untypedGenerate(final Object o) {
-            return generate(keyType.cast(o));
+        protected Object boxed(final Expiration holder) {
+            return valueType.cast(((ObjectHolder) holder).value());
         }
 
         @Override
-        protected Expiration generate(final K key) {
-            final K permanent = key.permanent();
-            final CompletableFuture<Expiration> attempt = new CompletableFuture<>();
-            final CompletableFuture<Expiration> future = inFlight.computeIfAbsent(permanent, (tmp) -> attempt);
+        protected boolean absent(final Expiration holder) {
+            return ((ObjectHolder) holder).value() == null;
+        }
+
+        @Override
+        protected Expiration holderOf(final Object value, final int accessed) {
+            return Expiration.forObject(lifetime.getExpires(), valueType.cast(value), accessed);
+        }
+
+        @Override
+        protected Codec<?> valueCodec() {
+            return (valueType == Object.class) ? super.valueCodec() : Codecs.of(valueType);
+        }
+
+        @Override
+        protected boolean tiered() {
+            return true;
+        }
 
-            return (Expiration) ((future == attempt) ?
-                                 doInFlight(permanent, future, () -> Expiration.forObject(lifetime.getExpires(), function.apply(key))) :
-                                 extract(future));
+        @Override
+        protected Expiration compute(final K key) {
+            return Expiration.forObject(lifetime.getExpires(), function.apply(key), stamp());
         }
     }
 
-    public Lifetime lifetime(final MethodId methodId) {
-        return withConfigLock((all, configs) -> {
-                if(all.containsKey(methodId)) {
-                    return all.get(methodId).lifetime;
-                }
+    //the loader hands back a future, synchronous callers simply wait on it
+    private class AsyncObjectView<K extends Permanent<K>,V> extends ObjectView<K,V> {
+        private final Function<K,CompletableFuture<V>> asyncFunction;
 
-                if(configs.containsKey(methodId)) {
-                    return all.get(methodId).lifetime;
-                }
+        public AsyncObjectView(final Class<K> keyType, final Class<V> valueType,
+                               final ConcurrentMap<Object,Object> backing,
+                               final Lifetime lifetime, final Function<K,CompletableFuture<V>> asyncFunction) {
+            super(keyType, valueType, backing, lifetime, null);
+            this.asyncFunction = asyncFunction;
+        }
 
-                return null;
-            });
+        @Override
+        protected Expiration compute(final K key) {
+            try {
+                return computeAsync(key).join();
+            }
+            catch(CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        @Override
+        protected CompletableFuture<Expiration> computeAsync(final K key) {
+            final Expires expires = lifetime.getExpires();
+            return asyncFunction.apply(key).thenApply((v) -> Expiration.forObject(expires, v, stamp()));
+        }
+    }
+
+    public CacheStats stats(final MethodId methodId) {
+        final View<?,?> v = _all.get(methodId);
+        return (v == null) ? CacheStats.EMPTY : v.stats();
+    }
+
+    public CacheStats stats() {
+        CacheStats ret = CacheStats.EMPTY;
+        for(View<?,?> v : _all.values()) {
+            ret = ret.plus(v.stats());
+        }
+
+        return ret;
+    }
+
+    public Lifetime lifetime(final MethodId methodId) {
+        View<?,?> v = _all.get(methodId);
+        if(v == null) {
+            v = _configs.get(methodId);
+        }
+
+        return (v == null) ? null : v.lifetime;
     }
     
     public void lifetime(final MethodId methodId, final Lifetime val) {
         withConfigLock((all, configs) -> {
                 if(all.containsKey(methodId)) {
                     View<?,?> v = all.get(methodId);
+                    final Storage storage = v.lifetime.getStorage();
                     v.lifetime = v.lifetime.toBuilder().merge(val).resolveNulls().build();
+                    if(v.lifetime.getStorage() != storage && (v.dedicated || v.backing == defaultBacking)) {
+                        v.rebind(storageBacking(v.lifetime, v.keyType));
+                    }
+                    else {
+                        v.configure();
+                    }
                 }
                 else if(configs.containsKey(methodId)) {
                     View<?,?> v = configs.get(methodId);
@@ -482,19 +2679,14 @@ public class AllCaches implements CacheRegistry {
     }
 
     public ConcurrentMap<Object,Object> backing(final MethodId methodId) {
-        return withConfigLock((all, configs) -> {
-                final View<?,?> v = all.get(methodId);
-                return v == null ? null : v.backing;
-            });
+        final View<?,?> v = _all.get(methodId);
+        return (v == null) ? null : v.backing;
     }
 
     public void backing(final MethodId methodId, final ConcurrentMap<Object,Object> val) {
         withConfigLock((all, configs) -> {
                 if(all.containsKey(methodId)) {
-                    final View<?,?> v = all.get(methodId);
-                    final View<?,?> previous = v.copy();
-                    v.backing = val;
-                    previous.clear();
+                    all.get(methodId).rebind(val);
                 }
                 else if(configs.containsKey(methodId)) {
                     final View<?,?> v = configs.get(methodId);
@@ -510,9 +2702,7 @@ public class AllCaches implements CacheRegistry {
         withConfigLock((all, configs) -> {
                 for(View<?,?> v : all.values()) {
                     if(v.backing == defaultBacking) {
-                        final View<?,?> previous = v.copy();
-                        v.backing = val;
-                        previous.clear();
+                        v.rebind(val);
                     }
                 }
 
@@ -527,79 +2717,175 @@ public class AllCaches implements CacheRegistry {
     }
 
     private Lifetime resolveLifetime(final Map<MethodId, View<?,?>> configs, final MethodId methodId, final Lifetime lifetime) {
-        Lifetime ret = lifetime;
+        final Lifetime.Builder ret = lifetime.toBuilder();
         if(configs.containsKey(methodId)) {
             View<?,?> v = configs.get(methodId);
-            ret = ret.toBuilder().merge(v.lifetime).resolveNulls().build();
+            ret.merge(v.lifetime);
         }
         
-        return ret;
+        return ret.resolveNulls().build();
+    }
+
+    private ConcurrentMap<Object,Object> storageBacking(final Lifetime lifetime, final Class<?> keyType) {
+        final Storage storage = lifetime.getStorage();
+        if(storage == Storage.WEAK_KEYS || storage == Storage.SOFT_VALUES) {
+            final Codec<?> codec = (keyType == null) ? null : Codecs.of(keyType);
+            return new ReferenceBacking((codec instanceof Components) ? (Components<?>) codec : null,
+                                        storage == Storage.WEAK_KEYS, storage == Storage.SOFT_VALUES);
+        }
+
+        //primitive storage still gets a dedicated map, views that can't go holder-free fall back to it
+        return (storage == Storage.SHARED) ? defaultBacking : new DedicatedBacking(lifetime);
     }
 
-    private ConcurrentMap<Object,Object> resolveBacking(final Map<MethodId, View<?,?>> configs, final MethodId methodId) {
+    private static boolean dedicated(final ConcurrentMap<Object,Object> backing) {
+        return backing instanceof DedicatedBacking || backing instanceof ReferenceBacking;
+    }
+    
+    private ConcurrentMap<Object,Object> resolveBacking(final Map<MethodId, View<?,?>> configs, final MethodId methodId,
+                                                       final Lifetime lifetime, final Class<?> keyType) {
         ConcurrentMap<Object,Object> backing = null;
         
         if(configs.containsKey(methodId)) {
             backing = configs.get(methodId).backing;
         }
 
-        return backing == null ? defaultBacking : backing;
+        return (backing == null || backing == defaultBacking) ? storageBacking(lifetime, keyType) : backing;
+    }
+
+    private static final class DedicatedBacking extends ConcurrentHashMap<Object,Object> {
+        private static final long serialVersionUID = 1L;
+        
+        DedicatedBacking(final Lifetime lifetime) {
+            super(initialCapacity(lifetime), 0.75f, 4);
+        }
+
+        private static int initialCapacity(final Lifetime lifetime) {
+            final Integer maxSize = lifetime.getMaxSize();
+            if(lifetime.getStorage() == Storage.PRIMITIVE || lifetime.getStorage() == Storage.OFF_HEAP) {
+                //only used by views that can't keep their values in a primitive table
+                return 16;
+            }
+            
+            return (maxSize == null || maxSize >= Lifetime.MAX_SIZE) ? 64 : Math.min(maxSize, 1 << 16);
+        }
     }
 
     public <K extends Permanent<K>> DoubleCacheView<K> doubleView(Class<K> keyType, MethodId methodId, ToDoubleFunction<K> func, Lifetime lifetime) {
+        final View<?,?> found = _all.get(methodId);
+        if(found != null) {
+            @SuppressWarnings("unchecked") DoubleView<K> existing = (DoubleView<K>) found;
+            return existing;
+        }
+        
         return withConfigLock((all,configs) -> {
                 if(all.containsKey(methodId)) {
                     @SuppressWarnings("unchecked") DoubleView<K> existing = (DoubleView<K>) all.get(methodId);
                     return existing;
                 }
 
-                DoubleView<K> ret = new DoubleView<>(keyType, resolveBacking(configs, methodId),
-                                                     resolveLifetime(configs, methodId, lifetime), func);
+                final Lifetime resolved = resolveLifetime(configs, methodId, lifetime);
+                DoubleView<K> ret = new DoubleView<>(keyType, resolveBacking(configs, methodId, resolved, keyType), resolved, func);
+                ret.methodId = methodId;
+                ret.configure();
                 all.put(methodId, ret);
+                enlist(methodId, ret);
                 return ret;
             });
     }
 
     public <K extends Permanent<K>> IntCacheView<K> intView(final Class<K> keyType, final MethodId methodId,
                                                             final ToIntFunction<K> func, final Lifetime lifetime) {
+        final View<?,?> found = _all.get(methodId);
+        if(found != null) {
+            @SuppressWarnings("unchecked") IntView<K> existing = (IntView<K>) found;
+            return existing;
+        }
+        
         return withConfigLock((all,configs) -> {
                 if(all.containsKey(methodId)) {
                     @SuppressWarnings("unchecked") IntView<K> existing = (IntView<K>) all.get(methodId);
                     return existing;
                 }
 
-                IntView<K> ret = new IntView<>(keyType, resolveBacking(configs, methodId),
-                                               resolveLifetime(configs, methodId, lifetime), func);
+                final Lifetime resolved = resolveLifetime(configs, methodId, lifetime);
+                IntView<K> ret = new IntView<>(keyType, resolveBacking(configs, methodId, resolved, keyType), resolved, func);
+                ret.methodId = methodId;
+                ret.configure();
                 all.put(methodId, ret);
+                enlist(methodId, ret);
                 return ret;
             });
     }
 
     public <K extends Permanent<K>> LongCacheView<K> longView(Class<K> keyType, MethodId methodId, ToLongFunction<K> func, Lifetime lifetime) {
+        final View<?,?> found = _all.get(methodId);
+        if(found != null) {
+            @SuppressWarnings("unchecked") LongView<K> existing = (LongView<K>) found;
+            return existing;
+        }
+        
         return withConfigLock((all,configs) -> {
                 if(all.containsKey(methodId)) {
                     @SuppressWarnings("unchecked") LongView<K> existing = (LongView<K>) all.get(methodId);
                     return existing;
                 }
 
-                LongView<K> ret = new LongView<>(keyType, resolveBacking(configs, methodId),
-                                                 resolveLifetime(configs, methodId, lifetime), func);
+                final Lifetime resolved = resolveLifetime(configs, methodId, lifetime);
+                LongView<K> ret = new LongView<>(keyType, resolveBacking(configs, methodId, resolved, keyType), resolved, func);
+                ret.methodId = methodId;
+                ret.configure();
                 all.put(methodId, ret);
+                enlist(methodId, ret);
                 return ret;
             });
     }
 
     public <K extends Permanent<K>, V> ObjectCacheView<K,V> objectView(final Class<K> keyType, final MethodId methodId,
                                                                        final Function<K,V> func, final Lifetime lifetime, final Class<V> valueType) {
+        final View<?,?> found = _all.get(methodId);
+        if(found != null) {
+            @SuppressWarnings("unchecked") ObjectView<K,V> existing = (ObjectView<K,V>) found;
+            return existing;
+        }
+        
+        return withConfigLock((all,configs) -> {
+                if(all.containsKey(methodId)) {
+                    @SuppressWarnings("unchecked") ObjectView<K,V> existing = (ObjectView<K,V>) all.get(methodId);
+                    return existing;
+                }
+
+                final Lifetime resolved = resolveLifetime(configs, methodId, lifetime);
+                ObjectView<K,V> ret = new ObjectView<>(keyType, valueType, resolveBacking(configs, methodId, resolved, keyType), resolved, func);
+                ret.methodId = methodId;
+                ret.configure();
+                all.put(methodId, ret);
+                enlist(methodId, ret);
+                return ret;
+            });
+    }
+
+    public <K extends Permanent<K>, V> ObjectCacheView<K,V> asyncObjectView(final Class<K> keyType, final MethodId methodId,
+                                                                            final Function<K,CompletableFuture<V>> func,
+                                                                            final Lifetime lifetime, final Class<V> valueType) {
+        final View<?,?> found = _all.get(methodId);
+        if(found != null) {
+            @SuppressWarnings("unchecked") ObjectView<K,V> existing = (ObjectView<K,V>) found;
+            return existing;
+        }
+        
         return withConfigLock((all,configs) -> {
                 if(all.containsKey(methodId)) {
                     @SuppressWarnings("unchecked") ObjectView<K,V> existing = (ObjectView<K,V>) all.get(methodId);
                     return existing;
                 }
 
-                ObjectView<K,V> ret = new ObjectView<>(keyType, valueType, resolveBacking(configs, methodId),
-                                                       resolveLifetime(configs, methodId, lifetime), func);
+                final Lifetime resolved = resolveLifetime(configs, methodId, lifetime);
+                AsyncObjectView<K,V> ret = new AsyncObjectView<>(keyType, valueType, resolveBacking(configs, methodId, resolved, keyType), resolved, func);
+                ret.methodId = methodId;
+                ret.configure();
                 all.put(methodId, ret);
+                enlist(methodId, ret);
                 return ret;
             });
     }
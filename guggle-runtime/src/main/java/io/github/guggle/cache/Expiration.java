@@ -1,13 +1,12 @@
 package io.github.guggle.cache;
 
-import java.time.Instant;
 import io.github.guggle.utils.TimeUnits;
 import io.github.guggle.api.Expires;
 
 public interface Expiration {
     void accessed();
     int getAccessed();
-    Expired expired(Expires expires, TimeUnits timeUnits, Instant asOf);
+    Expired expired(Expires expires, TimeUnits timeUnits, long asOf);
 
         public static Expiration convert(final Expires expires, final Expiration current) {
         if(current instanceof IntHolder) {
@@ -29,6 +28,18 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForInt(value);
         case FIXED: return new FixedExpiration.ForInt(value);
         case ACCESSED: return new AccessedExpiration.ForInt(value);
+        case VARIABLE: return new VariableExpiration.ForInt(value);
+        default:
+            throw new IllegalArgumentException("Can't handle expiration: " + expires);
+        }
+    }
+
+    public static Expiration forInt(final Expires expires, final int value, final int accessed) {
+        switch(expires) {
+        case NEVER: return new NeverExpires.ForInt(value);
+        case FIXED: return new FixedExpiration.ForInt(value, accessed);
+        case ACCESSED: return new AccessedExpiration.ForInt(value, accessed);
+        case VARIABLE: return new VariableExpiration.ForInt(value, accessed);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -42,6 +53,7 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForInt(value);
         case FIXED: return (accessed >= 0) ? new FixedExpiration.ForInt(value, accessed) : new FixedExpiration.ForInt(value);
         case ACCESSED: return (accessed >= 0) ? new AccessedExpiration.ForInt(value, accessed) : new AccessedExpiration.ForInt(value);
+        case VARIABLE: return (accessed >= 0) ? new VariableExpiration.ForInt(value, accessed) : new VariableExpiration.ForInt(value);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -51,7 +63,19 @@ public interface Expiration {
         switch(expires) {
         case NEVER: return new NeverExpires.ForLong(value);
         case FIXED: return new FixedExpiration.ForLong(value);
-        case ACCESSED: new AccessedExpiration.ForLong(value);
+        case ACCESSED: return new AccessedExpiration.ForLong(value);
+        case VARIABLE: return new VariableExpiration.ForLong(value);
+        default:
+            throw new IllegalArgumentException("Can't handle expiration: " + expires);
+        }
+    }
+
+    public static Expiration forLong(final Expires expires, final long value, final int accessed) {
+        switch(expires) {
+        case NEVER: return new NeverExpires.ForLong(value);
+        case FIXED: return new FixedExpiration.ForLong(value, accessed);
+        case ACCESSED: return new AccessedExpiration.ForLong(value, accessed);
+        case VARIABLE: return new VariableExpiration.ForLong(value, accessed);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -65,6 +89,7 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForLong(value);
         case FIXED: return (accessed >= 0) ? new FixedExpiration.ForLong(value, accessed) : new FixedExpiration.ForLong(value);
         case ACCESSED: return (accessed >= 0) ? new AccessedExpiration.ForLong(value, accessed) : new AccessedExpiration.ForLong(value);
+        case VARIABLE: return (accessed >= 0) ? new VariableExpiration.ForLong(value, accessed) : new VariableExpiration.ForLong(value);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -75,6 +100,18 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForDouble(value);
         case FIXED: return new FixedExpiration.ForDouble(value);
         case ACCESSED: return new AccessedExpiration.ForDouble(value);
+        case VARIABLE: return new VariableExpiration.ForDouble(value);
+        default:
+            throw new IllegalArgumentException("Can't handle expiration: " + expires);
+        }
+    }
+
+    public static Expiration forDouble(final Expires expires, final double value, final int accessed) {
+        switch(expires) {
+        case NEVER: return new NeverExpires.ForDouble(value);
+        case FIXED: return new FixedExpiration.ForDouble(value, accessed);
+        case ACCESSED: return new AccessedExpiration.ForDouble(value, accessed);
+        case VARIABLE: return new VariableExpiration.ForDouble(value, accessed);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -88,6 +125,7 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForDouble(value);
         case FIXED: return (accessed >= 0) ? new FixedExpiration.ForDouble(value, accessed) : new FixedExpiration.ForDouble(value);
         case ACCESSED: return (accessed >= 0) ? new AccessedExpiration.ForDouble(value, accessed) : new AccessedExpiration.ForDouble(value);
+        case VARIABLE: return (accessed >= 0) ? new VariableExpiration.ForDouble(value, accessed) : new VariableExpiration.ForDouble(value);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -98,6 +136,18 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForObject(value);
         case FIXED: return new FixedExpiration.ForObject(value);
         case ACCESSED: return new AccessedExpiration.ForObject(value);
+        case VARIABLE: return new VariableExpiration.ForObject(value);
+        default:
+            throw new IllegalArgumentException("Can't handle expiration: " + expires);
+        }
+    }
+
+    public static Expiration forObject(final Expires expires, final Object value, final int accessed) {
+        switch(expires) {
+        case NEVER: return new NeverExpires.ForObject(value);
+        case FIXED: return new FixedExpiration.ForObject(value, accessed);
+        case ACCESSED: return new AccessedExpiration.ForObject(value, accessed);
+        case VARIABLE: return new VariableExpiration.ForObject(value, accessed);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
@@ -111,6 +161,7 @@ public interface Expiration {
         case NEVER: return new NeverExpires.ForObject(value);
         case FIXED: return (accessed >= 0) ? new FixedExpiration.ForObject(value, accessed) : new FixedExpiration.ForObject(value);
         case ACCESSED: return (accessed >= 0) ? new AccessedExpiration.ForObject(value, accessed) : new AccessedExpiration.ForObject(value);
+        case VARIABLE: return (accessed >= 0) ? new VariableExpiration.ForObject(value, accessed) : new VariableExpiration.ForObject(value);
         default:
             throw new IllegalArgumentException("Can't handle expiration: " + expires);
         }
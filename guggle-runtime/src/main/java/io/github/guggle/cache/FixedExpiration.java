@@ -1,10 +1,9 @@
 package io.github.guggle.cache;
 
-import java.time.Instant;
 import io.github.guggle.utils.TimeUnits;
 import io.github.guggle.api.Expires;
 
-public class FixedExpiration implements Expiration {
+public class FixedExpiration extends TimedNode {
 
     private final int accessed;
 
@@ -18,7 +17,7 @@ public class FixedExpiration implements Expiration {
         return accessed;
     }
     
-    public Expired expired(final Expires expires, final TimeUnits timeUnits, final Instant asOf) {
+    public Expired expired(final Expires expires, final TimeUnits timeUnits, final long asOf) {
         return expires == Expires.FIXED ? AllCaches.expired(accessed, timeUnits, asOf) : Expired.UNKNOWN;
     }
 
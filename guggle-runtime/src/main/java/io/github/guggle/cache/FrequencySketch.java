@@ -0,0 +1,91 @@
+package io.github.guggle.cache;
+
+final class FrequencySketch {
+
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                                          0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long ONE_MASK = 0x1111_1111_1111_1111L;
+    private static final int MAX_FREQUENCY = 15;
+
+    private long[] table = new long[1];
+    private int tableMask;
+    private int sampleSize = 10;
+    private int size;
+
+    public void ensureCapacity(final long maximum) {
+        final int max = (int) Math.min(Math.max(maximum, 1L), Integer.MAX_VALUE >>> 1);
+        if(table.length >= max) {
+            return;
+        }
+
+        table = new long[ceilingPowerOfTwo(max)];
+        tableMask = table.length - 1;
+        sampleSize = (10 * max <= 0) ? Integer.MAX_VALUE : 10 * max;
+        size = 0;
+    }
+
+    public int frequency(final int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for(int i = 0; i < 4; ++i) {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    public void increment(final int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for(int i = 0; i < 4; ++i) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if(added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(final int index, final int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xFL << offset;
+        if((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+
+        return false;
+    }
+
+    //halve every counter so old popularity fades out
+    private void reset() {
+        int odd = 0;
+        for(int i = 0; i < table.length; ++i) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(final int hash, final int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    private static int ceilingPowerOfTwo(final int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
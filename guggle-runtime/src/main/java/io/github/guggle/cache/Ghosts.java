@@ -0,0 +1,72 @@
+package io.github.guggle.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//Recently evicted keys, kept as their hashes in a direct mapped table, so a later miss on
+//one can be counted as a hit the view would have had with more room. Only added to under
+//the view's eviction lock, looked up racily by missing threads, a stale read just skews
+//an estimate a little.
+final class Ghosts {
+
+    private static final int MINIMUM_CAPACITY = 64;
+    private static final int MAXIMUM_CAPACITY = 1 << 16;
+
+    private final int[] hashes;
+    private final int[] weights;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    //the total weight of the keys the table remembers
+    private volatile long coverage;
+
+    Ghosts(final int capacity) {
+        hashes = new int[capacity];
+        weights = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    //enough to remember about as many keys as the view holds
+    static int capacityFor(final long entries) {
+        final long wanted = Math.min(Math.max(entries, MINIMUM_CAPACITY), MAXIMUM_CAPACITY);
+        return Integer.highestOneBit((int) wanted - 1) << 1;
+    }
+
+    int capacity() {
+        return hashes.length;
+    }
+
+    long coverage() {
+        return coverage;
+    }
+
+    //must hold the view's eviction lock, the key displaces whichever shared its slot
+    void evicted(final int hashCode, final int weight) {
+        final int hash = spread(hashCode);
+        final int index = hash & mask;
+        final long previous = (hashes[index] == 0) ? 0L : weights[index];
+        hashes[index] = hash;
+        weights[index] = weight;
+        coverage = coverage - previous + weight;
+    }
+
+    void missed(final int hashCode) {
+        final int hash = spread(hashCode);
+        if(hashes[hash & mask] == hash) {
+            hits.increment();
+        }
+    }
+
+    //ghost hits per unit of weight remembered since the last sample, what a little more
+    //room would be worth to the view
+    double sample() {
+        final long hit = hits.sumThenReset();
+        final long covered = coverage;
+        return (covered <= 0L) ? 0d : (double) hit / covered;
+    }
+
+    //0 marks an empty slot
+    private static int spread(final int hashCode) {
+        final int h = (hashCode ^ (hashCode >>> 16)) * 0x45d9f3b;
+        final int ret = h ^ (h >>> 16);
+        return (ret == 0) ? 1 : ret;
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Invalidation;
+import io.github.guggle.api.InvalidationBus;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+//Buses joined to the same hub hand each other's batches over directly, on the
+//publishing thread. Stands in for a network when several nodes share a JVM.
+public final class InProcessInvalidationBus implements InvalidationBus {
+
+    public static final class Hub {
+        private final List<InProcessInvalidationBus> members = new CopyOnWriteArrayList<>();
+
+        public InProcessInvalidationBus join() {
+            final InProcessInvalidationBus ret = new InProcessInvalidationBus(this);
+            members.add(ret);
+            return ret;
+        }
+    }
+
+    private final Hub hub;
+    private final List<Consumer<List<Invalidation>>> listeners = new CopyOnWriteArrayList<>();
+
+    private InProcessInvalidationBus(final Hub hub) {
+        this.hub = hub;
+    }
+
+    public void publish(final List<Invalidation> batch) {
+        final List<Invalidation> delivered = Collections.unmodifiableList(batch);
+        for(InProcessInvalidationBus member : hub.members) {
+            if(member != this) {
+                for(Consumer<List<Invalidation>> listener : member.listeners) {
+                    listener.accept(delivered);
+                }
+            }
+        }
+    }
+
+    public void subscribe(final Consumer<List<Invalidation>> listener) {
+        listeners.add(listener);
+    }
+
+    public void close() {
+        hub.members.remove(this);
+        listeners.clear();
+    }
+}
@@ -0,0 +1,395 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codec;
+import io.github.guggle.api.Codecs;
+import io.github.guggle.api.MethodId;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+//Append-only log of a cached method's entries in memory mapped segment files.
+//Each record is [length][crc32][kind][written][key length][key][value], the length
+//is written last so a record torn by a crash reads as the end of the segment.
+//Keys are indexed when the store is opened, values are only decoded when read.
+//Both are encoded straight into the mapped segment by their Codecs.
+//Appends and compaction are serialized on the store, reads never lock.
+final class MappedStore implements Closeable {
+
+    static final int SEGMENT_BYTES = 64 << 20;
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER = 8;
+    private static final int PREFIX = 13;
+    private static final byte VALUE = 1;
+    private static final byte TOMBSTONE = 2;
+
+    static final class Entry {
+        //wall-clock milliseconds the value was written at
+        final long written;
+        final Object value;
+
+        Entry(final long written, final Object value) {
+            this.written = written;
+            this.value = value;
+        }
+    }
+
+    private static final class Segment {
+        final long number;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int position;
+
+        Segment(final long number, final Path path, final int size) throws IOException {
+            this.number = number;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(channel.size(), size));
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final int offset;
+        final int length;
+        final long written;
+
+        Location(final Segment segment, final int offset, final int length, final long written) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.written = written;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Codec<Object> keys;
+    private final Codec<Object> values;
+    private final ConcurrentMap<Object,Location> index = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment tail;
+    private long liveBytes;
+    private volatile long maxAge = Long.MAX_VALUE;
+
+    @SuppressWarnings("unchecked")
+    MappedStore(final Path directory, final int segmentBytes, final Codec<?> keys, final Codec<?> values) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.keys = (Codec<Object>) keys;
+        this.values = (Codec<Object>) values;
+        try {
+            Files.createDirectories(directory);
+            open();
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //one directory per method, readable and stable across JVMs
+    static String directoryName(final MethodId methodId) {
+        final StringBuilder signature = new StringBuilder(methodId.getType().getName())
+            .append('.').append(methodId.getMethod()).append('(');
+        for(Class arg : methodId.getArgs()) {
+            signature.append(arg.getName()).append(',');
+        }
+
+        final String full = signature.append(')').toString();
+        final String readable = full.replaceAll("[^A-Za-z0-9._-]", "_");
+        return readable.substring(0, Math.min(readable.length(), 160)) + "-" + Integer.toHexString(full.hashCode());
+    }
+
+    //records older than this are dropped when segments are opened or compacted
+    void setMaxAge(final long millis) {
+        maxAge = millis;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    //written is only to the second, a value overwritten within one has to be compared too
+    boolean isCurrent(final Object key, final long written, final Object value) {
+        final Location location = index.get(key);
+        if(location == null || location.written != written) {
+            return false;
+        }
+
+        final Entry entry = entry(location);
+        return entry != null && Objects.equals(entry.value, value);
+    }
+
+    Entry read(final Object key) {
+        final Location location = index.get(key);
+        if(location == null || expired(location.written)) {
+            return null;
+        }
+
+        return entry(location);
+    }
+
+    private Entry entry(final Location location) {
+        final ByteBuffer view = location.segment.buffer.duplicate();
+        final int keyLength = view.getInt(location.offset + HEADER + PREFIX - 4);
+        view.position(location.offset + HEADER + PREFIX + keyLength);
+        try {
+            return new Entry(location.written, (view.get() == 0) ? null : values.read(view));
+        }
+        catch(RuntimeException e) {
+            //written by a different version of the value's class
+            return null;
+        }
+    }
+
+    //returns false when the key or value can't be encoded, the entry then only lives in memory
+    boolean write(final Object key, final long written, final Object value) {
+        return append(key, VALUE, written, value);
+    }
+
+    void remove(final Object key) {
+        if(index.containsKey(key)) {
+            append(key, TOMBSTONE, wallClock(), null);
+        }
+    }
+
+    synchronized void clear() {
+        index.clear();
+        liveBytes = 0L;
+        try {
+            for(Segment segment : segments) {
+                close(segment);
+                Files.deleteIfExists(segment.path);
+            }
+
+            segments.clear();
+            tail = addSegment(0L);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void close() {
+        for(Segment segment : segments) {
+            segment.buffer.force();
+            close(segment);
+        }
+    }
+
+    //the registry's ticker, so expiry here follows the same clock as everywhere else
+    private static long wallClock() {
+        return AllCaches.EPOCH_MILLIS + AllCaches.now();
+    }
+
+    private boolean expired(final long written) {
+        final long age = maxAge;
+        return age != Long.MAX_VALUE && wallClock() - written >= age;
+    }
+
+    private synchronized boolean append(final Object key, final byte kind, final long written, final Object value) {
+        final int keyLength;
+        final int length;
+        try {
+            keyLength = keys.sizeOf(key);
+            length = PREFIX + keyLength + ((kind == VALUE) ? 1 + ((value == null) ? 0 : values.sizeOf(value)) : 0);
+        }
+        catch(RuntimeException e) {
+            return false;
+        }
+
+        if(HEADER + length > segmentBytes) {
+            return false;
+        }
+
+        try {
+            if(tail.position + HEADER + length > tail.buffer.capacity()) {
+                roll();
+            }
+
+            //compaction can leave the new tail nearly full
+            if(tail.position + HEADER + length > tail.buffer.capacity()) {
+                tail = addSegment(tail.number + 1L);
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        //encoded in place past the end of the log, nothing is visible until the length is written
+        final int offset = tail.position;
+        final ByteBuffer body = tail.buffer.duplicate();
+        body.position(offset + HEADER);
+        try {
+            body.put(kind).putLong(written).putInt(keyLength);
+            keys.write(key, body);
+            if(kind == VALUE) {
+                Codecs.putBoolean(body, value != null);
+                if(value != null) {
+                    values.write(value, body);
+                }
+            }
+        }
+        catch(RuntimeException e) {
+            return false;
+        }
+
+        if(body.position() != offset + HEADER + length) {
+            throw new IllegalStateException("Codec wrote " + (body.position() - offset - HEADER) +
+                                            " bytes but sized " + length + " for " + key);
+        }
+
+        body.limit(offset + HEADER + length).position(offset + HEADER);
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        tail.buffer.putInt(offset + 4, (int) crc.getValue());
+        tail.buffer.putInt(offset, length);
+        tail.position = offset + HEADER + length;
+
+        final Location previous = (kind == VALUE) ?
+            index.put(key, new Location(tail, offset, length, written)) :
+            index.remove(key);
+        liveBytes += ((kind == VALUE) ? HEADER + length : 0) - ((previous == null) ? 0 : HEADER + previous.length);
+        return true;
+    }
+
+    //must hold the lock, starts a new segment and compacts once less than half the files are live
+    private void roll() throws IOException {
+        tail = addSegment(tail.number + 1L);
+        final long total = (long) segments.size() * segmentBytes;
+        if(segments.size() > 2 && liveBytes * 2L < total) {
+            compact();
+        }
+    }
+
+    //must hold the lock, copies the latest record of every live key into fresh segments
+    private void compact() throws IOException {
+        final List<Segment> previous = new ArrayList<>(segments);
+        segments.clear();
+        tail = addSegment(previous.get(previous.size() - 1).number + 1L);
+        liveBytes = 0L;
+
+        for(Map.Entry<Object,Location> e : index.entrySet()) {
+            final Location location = e.getValue();
+            if(expired(location.written)) {
+                index.remove(e.getKey(), location);
+                continue;
+            }
+
+            final int size = HEADER + location.length;
+            if(tail.position + size > tail.buffer.capacity()) {
+                tail = addSegment(tail.number + 1L);
+            }
+
+            final byte[] record = new byte[size];
+            final ByteBuffer source = location.segment.buffer.duplicate();
+            source.position(location.offset);
+            source.get(record);
+            final ByteBuffer target = tail.buffer.duplicate();
+            target.position(tail.position);
+            target.put(record);
+            index.replace(e.getKey(), location, new Location(tail, tail.position, location.length, location.written));
+            tail.position += size;
+            liveBytes += size;
+        }
+
+        //readers holding an old location keep its mapping alive, deleting the file doesn't unmap it
+        for(Segment segment : previous) {
+            close(segment);
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private void open() throws IOException {
+        final List<Long> numbers = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for(Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                }
+                catch(NumberFormatException e) {
+                    //not one of ours
+                }
+            }
+        }
+
+        Collections.sort(numbers);
+        for(long number : numbers) {
+            scan(addSegment(number));
+        }
+
+        tail = segments.isEmpty() ? addSegment(0L) : segments.get(segments.size() - 1);
+    }
+
+    private Segment addSegment(final long number) throws IOException {
+        final Segment segment = new Segment(number, directory.resolve(String.format("%016d%s", number, SUFFIX)), segmentBytes);
+        segments.add(segment);
+        return segment;
+    }
+
+    //rebuilds the index from one segment, stopping at the first torn or corrupt record
+    private void scan(final Segment segment) {
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        final int limit = buffer.capacity();
+        int offset = 0;
+        while(offset + HEADER + PREFIX <= limit) {
+            final int length = buffer.getInt(offset);
+            if(length < PREFIX || offset + HEADER + length > limit) {
+                break;
+            }
+
+            final ByteBuffer body = segment.buffer.duplicate();
+            body.limit(offset + HEADER + length).position(offset + HEADER);
+            final CRC32 crc = new CRC32();
+            crc.update(body);
+            if((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+
+            body.position(offset + HEADER);
+            final byte kind = body.get();
+            final long written = body.getLong();
+            body.getInt();
+            try {
+                final Object key = keys.read(body);
+                final Location previous = (kind == VALUE && !expired(written)) ?
+                    index.put(key, new Location(segment, offset, length, written)) :
+                    index.remove(key);
+                liveBytes += ((kind == VALUE && !expired(written)) ? HEADER + length : 0) -
+                    ((previous == null) ? 0 : HEADER + previous.length);
+            }
+            catch(RuntimeException e) {
+                //a key class that changed or went away since the record was written
+            }
+
+            offset += HEADER + length;
+        }
+
+        segment.position = offset;
+    }
+
+    private static void close(final Segment segment) {
+        try {
+            segment.channel.close();
+        }
+        catch(IOException e) {
+            //nothing left to do with it
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.guggle.cache;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleConsumer;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+//Watches how full the old generation is after each collection and hands the occupancy,
+//a fraction of its maximum, to whoever sizes the caches. The pool's collection usage
+//threshold is set at the configured occupancy so crossing it is reported straight away,
+//the GC notifications keep reporting while it stays high and once it drops again.
+//Notifications come in on a JMX thread, the work is coalesced onto the executor.
+final class MemoryGovernor implements NotificationListener, AutoCloseable {
+
+    //sent by HotSpot's collectors, named here so com.sun.management isn't needed
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor executor;
+    private final DoubleConsumer onOccupancy;
+    private volatile double threshold;
+
+    MemoryGovernor(final double threshold, final Executor executor, final DoubleConsumer onOccupancy) {
+        this.executor = executor;
+        this.onOccupancy = onOccupancy;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            //eden and survivor spaces don't support usage thresholds, what's left of the heap is old
+            if(pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+                pools.add(pool);
+            }
+        }
+
+        setThreshold(threshold);
+        listen(ManagementFactory.getMemoryMXBean());
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            listen(gc);
+        }
+    }
+
+    double getThreshold() {
+        return threshold;
+    }
+
+    void setThreshold(final double val) {
+        threshold = val;
+        for(MemoryPoolMXBean pool : pools) {
+            final long max = capacity(pool.getUsage());
+            if(max > 0L) {
+                pool.setCollectionUsageThreshold((long) (max * val));
+            }
+        }
+    }
+
+    //the fullest old generation pool as of its last collection, 0 when there's nothing to go by
+    double occupancy() {
+        double ret = 0d;
+        for(MemoryPoolMXBean pool : pools) {
+            final MemoryUsage usage = pool.getCollectionUsage();
+            final long max = (usage == null) ? -1L : capacity(usage);
+            if(max > 0L) {
+                ret = Math.max(ret, (double) usage.getUsed() / max);
+            }
+        }
+
+        return ret;
+    }
+
+    public void handleNotification(final Notification notification, final Object handback) {
+        final String type = notification.getType();
+        if((GC_NOTIFICATION.equals(type) || MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) &&
+           scheduled.compareAndSet(false, true)) {
+            executor.execute(this::report);
+        }
+    }
+
+    void report() {
+        scheduled.set(false);
+        onOccupancy.accept(occupancy());
+    }
+
+    public void close() {
+        for(NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            }
+            catch(ListenerNotFoundException e) {
+                //already gone
+            }
+        }
+
+        emitters.clear();
+    }
+
+    private void listen(final Object bean) {
+        if(bean instanceof NotificationEmitter) {
+            ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+            emitters.add((NotificationEmitter) bean);
+        }
+    }
+
+    //no max means the pool is only bounded by what it has committed
+    private static long capacity(final MemoryUsage usage) {
+        return (usage.getMax() > 0L) ? usage.getMax() : usage.getCommitted();
+    }
+}
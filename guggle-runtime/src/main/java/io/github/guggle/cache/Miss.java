@@ -0,0 +1,33 @@
+package io.github.guggle.cache;
+
+//A remembered null result or load failure. Until it runs out, misses on the key
+//are answered from here, so an empty or failing backend costs one load per window
+//instead of one per request.
+final class Miss {
+
+    final Expiration holder;
+    final Throwable failure;
+    //consecutive failures, drives the backoff
+    final int failures;
+    //milliseconds since AllCaches.EPOCH
+    final long until;
+
+    private Miss(final Expiration holder, final Throwable failure, final int failures, final long until) {
+        this.holder = holder;
+        this.failure = failure;
+        this.failures = failures;
+        this.until = until;
+    }
+
+    static Miss absent(final Expiration holder, final long until) {
+        return new Miss(holder, null, 0, until);
+    }
+
+    static Miss failed(final Throwable failure, final int failures, final long until) {
+        return new Miss(null, failure, failures, until);
+    }
+
+    boolean live(final long now) {
+        return now < until;
+    }
+}
@@ -1,10 +1,9 @@
 package io.github.guggle.cache;
 
-import java.time.Instant;
 import io.github.guggle.utils.TimeUnits;
 import io.github.guggle.api.Expires;
 
-public class NeverExpires implements Expiration {
+public class NeverExpires extends Node {
 
     public int getAccessed() {
         return -1;
@@ -12,7 +11,7 @@ public class NeverExpires implements Expiration {
     
     public void accessed() { }
     
-    public Expired expired(final Expires expires, final TimeUnits timeUnits, final Instant asOf) {
+    public Expired expired(final Expires expires, final TimeUnits timeUnits, final long asOf) {
         return expires == Expires.NEVER ? Expired.FALSE : Expired.UNKNOWN;
     }
 
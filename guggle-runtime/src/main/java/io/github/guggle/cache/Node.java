@@ -0,0 +1,18 @@
+package io.github.guggle.cache;
+
+abstract class Node implements Expiration {
+
+    static final byte NONE = 0;
+    static final byte WINDOW = 1;
+    static final byte PROBATION = 2;
+    static final byte PROTECTED = 3;
+    static final byte DEAD = 4;
+
+    //all links are only touched while holding the owning view's eviction lock
+    Object key;
+    Node prevInAccess;
+    Node nextInAccess;
+    byte queue = NONE;
+    //set before the node is published, 1 unless the view is bounded by weight
+    int weight = 1;
+}
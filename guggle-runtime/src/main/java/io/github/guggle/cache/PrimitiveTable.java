@@ -0,0 +1,647 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.utils.TimeUnits;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+//Holder-free storage for the primitive views. Each segment is a linear probing
+//table of keys with the value bits and a seconds-since-epoch stamp kept in
+//parallel primitive arrays, or in a direct buffer when off heap. Reads are
+//optimistic and never allocate, writes take the segment's write lock.
+//The stamp is the write time, or the last read time for access ordered tables,
+//and drives expiration. A bounded table also counts reads and writes in a frequency
+//sketch per segment, its maximum is kept by evicting the least used of a sample,
+//the oldest stamp breaking ties, and turning away a new arrival used less than that.
+final class PrimitiveTable {
+
+    public interface Check {
+        //called outside any lock, with the stamp the entry's value was read with
+        boolean usable(Object key, int stamp);
+    }
+
+    private static final Check ANY = (key, stamp) -> true;
+
+    public interface Expirer {
+        //return false to keep the entry, its stamp is then reset to now. Called under the
+        //segment's write lock, so it must not touch the table
+        boolean expire(Object key);
+    }
+
+    private static final int MINIMUM_CAPACITY = 16;
+    private static final int MAXIMUM_INITIAL_CAPACITY = 1 << 16;
+    private static final int ENTRIES_PER_SEGMENT = 64;
+    private static final int SAMPLES = 8;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final boolean direct;
+    private volatile boolean accessOrder;
+    private final LongAdder evictions = new LongAdder();
+
+    //Long.MAX_VALUE for an unbounded table
+    public PrimitiveTable(final long maximum, final boolean direct) {
+        final int count = segmentCount(maximum);
+        this.direct = direct;
+        this.segments = new Segment[count];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        for(int i = 0; i < count; ++i) {
+            segments[i] = new Segment();
+        }
+
+        setMaximum(maximum);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public void setAccessOrder(final boolean val) {
+        accessOrder = val;
+    }
+
+    public void setMaximum(final long maximum) {
+        final long perSegment = (maximum == Long.MAX_VALUE) ? maximum : Math.max(1L, maximum / segments.length);
+        for(Segment segment : segments) {
+            segment.setMaximum(perSegment);
+        }
+    }
+
+    public boolean containsKey(final Object key) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        boolean found = segment.slots.find(key, hash) >= 0;
+        if(!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                found = segment.slots.find(key, hash) >= 0;
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return found;
+    }
+
+    public long get(final Object key, final long absent) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        Slots slots = segment.slots;
+        int index = slots.find(key, hash);
+        long bits = (index < 0) ? absent : slots.value(index);
+        if(!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                slots = segment.slots;
+                index = slots.find(key, hash);
+                bits = (index < 0) ? absent : slots.value(index);
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return bits;
+    }
+
+    //the loader is only called on a miss and outside of any lock
+    public long getOrLoad(final Object key, final int now, final ToLongFunction<Object> loader) {
+        return getOrLoad(key, now, ANY, loader);
+    }
+
+    //an entry the check turns down counts as a miss, the check sees the stamp the value was
+    //read with and an access ordered table only moves the stamp of an entry that passed it
+    public long getOrLoad(final Object key, final int now, final Check check, final ToLongFunction<Object> loader) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        Slots slots = segment.slots;
+        int index = slots.find(key, hash);
+        long bits = (index < 0) ? 0L : slots.value(index);
+        int written = (index < 0) ? -1 : slots.stamp(index);
+        if(!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                slots = segment.slots;
+                index = slots.find(key, hash);
+                bits = (index < 0) ? 0L : slots.value(index);
+                written = (index < 0) ? -1 : slots.stamp(index);
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        if(index < 0 || !check.usable(key, written)) {
+            return loader.applyAsLong(key);
+        }
+
+        segment.record(hash);
+        if(accessOrder && written != now) {
+            segment.touch(key, hash, written, now);
+        }
+
+        return bits;
+    }
+
+    //absent as well when the check turns the entry down
+    public long get(final Object key, final long absent, final Check check) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        Slots slots = segment.slots;
+        int index = slots.find(key, hash);
+        long bits = (index < 0) ? absent : slots.value(index);
+        int written = (index < 0) ? -1 : slots.stamp(index);
+        if(!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                slots = segment.slots;
+                index = slots.find(key, hash);
+                bits = (index < 0) ? absent : slots.value(index);
+                written = (index < 0) ? -1 : slots.stamp(index);
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        if(index < 0 || !check.usable(key, written)) {
+            return absent;
+        }
+
+        segment.record(hash);
+        return bits;
+    }
+
+    public void put(final Object key, final long bits, final int now) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        final long stamp = segment.lock.writeLock();
+        try {
+            segment.put(key, hash, bits, now);
+        }
+        finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(final Object key) {
+        final int hash = spread(key.hashCode());
+        final Segment segment = segmentFor(hash);
+        final long stamp = segment.lock.writeLock();
+        try {
+            final int index = segment.slots.find(key, hash);
+            if(index < 0) {
+                return false;
+            }
+
+            segment.delete(index);
+            return true;
+        }
+        finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        for(Segment segment : segments) {
+            final long stamp = segment.lock.writeLock();
+            try {
+                segment.reset();
+            }
+            finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public long size() {
+        long ret = 0L;
+        for(Segment segment : segments) {
+            ret += segment.size;
+        }
+
+        return ret;
+    }
+
+    public Stream<Object> keys() {
+        final List<Object> ret = new ArrayList<>();
+        for(Segment segment : segments) {
+            final long stamp = segment.lock.readLock();
+            try {
+                final Object[] keys = segment.slots.keys;
+                for(Object key : keys) {
+                    if(key != null) {
+                        ret.add(key);
+                    }
+                }
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return ret.stream();
+    }
+
+    public LongStream values() {
+        LongStream ret = LongStream.empty();
+        for(Segment segment : segments) {
+            final long stamp = segment.lock.readLock();
+            try {
+                final Slots slots = segment.slots;
+                final long[] bits = new long[segment.size];
+                int count = 0;
+                for(int i = 0; i < slots.keys.length && count < bits.length; ++i) {
+                    if(slots.keys[i] != null) {
+                        bits[count++] = slots.value(i);
+                    }
+                }
+
+                ret = LongStream.concat(ret, LongStream.of(bits));
+            }
+            finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+
+        return ret;
+    }
+
+    //scans every stamp, returns milliseconds until the earliest remaining entry is due.
+    //Due keys the expirer kept are added to kept, to be acted on once no lock is held
+    public long expire(final long now, final TimeUnits timeUnits, final Expirer expirer, final List<Object> kept) {
+        final int seconds = (int) (now / 1_000L);
+        long next = Long.MAX_VALUE;
+        for(Segment segment : segments) {
+            final long stamp = segment.lock.writeLock();
+            try {
+                next = Math.min(next, segment.expire(now, seconds, timeUnits, expirer, kept));
+            }
+            finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+
+        return (next == Long.MAX_VALUE) ? next : Math.max(next - now, 0L);
+    }
+
+    private Segment segmentFor(final int hash) {
+        return segments[(segmentShift == 32) ? 0 : (hash >>> segmentShift)];
+    }
+
+    private Slots newSlots(final int capacity) {
+        return direct ? new DirectSlots(capacity) : new HeapSlots(capacity);
+    }
+
+    private static int segmentCount(final long maximum) {
+        final int cores = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+        final long byMaximum = Math.max(1L, maximum / ENTRIES_PER_SEGMENT);
+        return (byMaximum >= cores) ? cores : ceilingPowerOfTwo((int) byMaximum);
+    }
+
+    //enough slots to hold the entries under the load factor, up to a sane presize
+    private static int capacityFor(final long entries) {
+        final long needed = Math.min(entries + (entries / 3L) + 1L, MAXIMUM_INITIAL_CAPACITY);
+        return Math.max(ceilingPowerOfTwo((int) needed), MINIMUM_CAPACITY);
+    }
+
+    private static int spread(final int hashCode) {
+        final int hash = hashCode * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int ceilingPowerOfTwo(final int x) {
+        return 1 << -Integer.numberOfLeadingZeros(Math.max(x, 1) - 1);
+    }
+
+    private final class Segment {
+        final StampedLock lock = new StampedLock();
+        volatile Slots slots;
+        volatile int size;
+        //null while unbounded
+        volatile FrequencySketch sketch;
+        int initialCapacity = MINIMUM_CAPACITY;
+        long maximum = Long.MAX_VALUE;
+
+        Segment() {
+            slots = newSlots(initialCapacity);
+        }
+
+        void setMaximum(final long val) {
+            final long stamp = lock.writeLock();
+            try {
+                final long previous = maximum;
+                maximum = val;
+                initialCapacity = (val == Long.MAX_VALUE) ? MINIMUM_CAPACITY : capacityFor(val);
+                if(val == Long.MAX_VALUE) {
+                    sketch = null;
+                }
+                else if(sketch == null || val > previous) {
+                    //readers count without the lock, so a bigger sketch replaces the old one
+                    //rather than growing under them
+                    final FrequencySketch s = new FrequencySketch();
+                    s.ensureCapacity(val);
+                    sketch = s;
+                }
+
+                if(size == 0 && slots.keys.length != initialCapacity) {
+                    slots = newSlots(initialCapacity);
+                }
+
+                evictToMaximum(-1);
+            }
+            finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        //must hold the write lock
+        void reset() {
+            slots = newSlots(initialCapacity);
+            size = 0;
+        }
+
+        //readers count without a lock, a lost increment only blurs a frequency a little
+        void record(final int hash) {
+            final FrequencySketch s = sketch;
+            if(s != null) {
+                s.increment(hash);
+            }
+        }
+
+        //must hold the write lock
+        void put(final Object key, final int hash, final long bits, final int now) {
+            record(hash);
+            int index = slots.find(key, hash);
+            if(index < 0) {
+                if(size + 1 > slots.threshold) {
+                    resize();
+                }
+
+                index = slots.insertionPoint(hash);
+                slots.keys[index] = key;
+                slots.hashes[index] = hash;
+                ++size;
+            }
+
+            slots.value(index, bits);
+            slots.stamp(index, now);
+            evictToMaximum(index);
+        }
+
+        //must hold the write lock, backward shift deletion so probes never need tombstones
+        void delete(int index) {
+            final Slots current = slots;
+            final int mask = current.mask;
+            int next = (index + 1) & mask;
+            while(current.keys[next] != null) {
+                final int home = current.hashes[next] & mask;
+                if(((next - home) & mask) >= ((next - index) & mask)) {
+                    current.move(next, index);
+                    index = next;
+                }
+
+                next = (next + 1) & mask;
+            }
+
+            current.keys[index] = null;
+            --size;
+        }
+
+        //reads stamp concurrently, so a racing read may be lost, but only while the entry
+        //still carries the stamp it was read with, a rewritten or moved entry is left alone
+        void touch(final Object key, final int hash, final int expected, final int now) {
+            final long stamp = lock.readLock();
+            try {
+                final int index = slots.find(key, hash);
+                if(index >= 0 && slots.stamp(index) == expected) {
+                    slots.stamp(index, now);
+                }
+            }
+            finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        //must hold the write lock
+        long expire(final long now, final int seconds, final TimeUnits timeUnits, final Expirer expirer,
+                    final List<Object> kept) {
+            long next = Long.MAX_VALUE;
+            final Slots current = slots;
+            int i = 0;
+            while(i < current.keys.length) {
+                final Object key = current.keys[i];
+                if(key == null) {
+                    ++i;
+                    continue;
+                }
+
+                long deadline = AllCaches.deadline(current.stamp(i), timeUnits);
+                if(deadline <= now) {
+                    if(expirer.expire(key)) {
+                        //the slot may have been refilled by a shifted entry, look at it again
+                        delete(i);
+                        continue;
+                    }
+
+                    kept.add(key);
+                    current.stamp(i, seconds);
+                    deadline = AllCaches.deadline(seconds, timeUnits);
+                }
+
+                next = Math.min(next, deadline);
+                ++i;
+            }
+
+            return next;
+        }
+
+        //must hold the write lock, keep is the slot just written, it is only evicted itself
+        //when it has been used less than the victim picked for it
+        private void evictToMaximum(final int keep) {
+            final FrequencySketch s = sketch;
+            final Object arrival = (keep < 0) ? null : slots.keys[keep];
+            boolean admitted = (arrival == null || s == null);
+            while(size > maximum) {
+                final Slots current = slots;
+                final int mask = current.mask;
+                int victim = -1;
+                int victimFrequency = 0;
+                int sampled = 0;
+                int i = ThreadLocalRandom.current().nextInt();
+                for(int probed = 0; probed <= mask && sampled < SAMPLES; ++probed, ++i) {
+                    final int index = i & mask;
+                    if(current.keys[index] == null || current.keys[index] == arrival) {
+                        continue;
+                    }
+
+                    final int frequency = (s == null) ? 0 : s.frequency(current.hashes[index]);
+                    if(victim < 0 || frequency < victimFrequency ||
+                       (frequency == victimFrequency && current.stamp(index) < current.stamp(victim))) {
+                        victim = index;
+                        victimFrequency = frequency;
+                    }
+
+                    ++sampled;
+                }
+
+                if(victim < 0) {
+                    return;
+                }
+
+                //nothing has been deleted yet, keep is still where the arrival is
+                if(!admitted) {
+                    admitted = true;
+                    if(s.frequency(current.hashes[keep]) < victimFrequency) {
+                        victim = keep;
+                    }
+                }
+
+                delete(victim);
+                evictions.increment();
+            }
+        }
+
+        //must hold the write lock
+        private void resize() {
+            final Slots previous = slots;
+            final Slots resized = newSlots(previous.keys.length << 1);
+            for(int i = 0; i < previous.keys.length; ++i) {
+                if(previous.keys[i] != null) {
+                    final int index = resized.insertionPoint(previous.hashes[i]);
+                    resized.keys[index] = previous.keys[i];
+                    resized.hashes[index] = previous.hashes[i];
+                    resized.value(index, previous.value(i));
+                    resized.stamp(index, previous.stamp(i));
+                }
+            }
+
+            slots = resized;
+        }
+    }
+
+    private abstract static class Slots {
+        final Object[] keys;
+        final int[] hashes;
+        final int mask;
+        final int threshold;
+
+        Slots(final int capacity) {
+            this.keys = new Object[capacity];
+            this.hashes = new int[capacity];
+            this.mask = capacity - 1;
+            this.threshold = capacity - (capacity >>> 2);
+        }
+
+        abstract long value(int index);
+        abstract void value(int index, long bits);
+        abstract int stamp(int index);
+        abstract void stamp(int index, int val);
+
+        //probes at most once around the table, a racing reader may see a half moved entry but never loops forever
+        int find(final Object key, final int hash) {
+            int index = hash & mask;
+            for(int probed = 0; probed <= mask; ++probed) {
+                final Object existing = keys[index];
+                if(existing == null) {
+                    return -1;
+                }
+
+                if(hashes[index] == hash && (existing == key || existing.equals(key))) {
+                    return index;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        int insertionPoint(final int hash) {
+            int index = hash & mask;
+            while(keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            return index;
+        }
+
+        void move(final int from, final int to) {
+            keys[to] = keys[from];
+            hashes[to] = hashes[from];
+            value(to, value(from));
+            stamp(to, stamp(from));
+        }
+    }
+
+    private static final class HeapSlots extends Slots {
+        final long[] values;
+        final int[] stamps;
+
+        HeapSlots(final int capacity) {
+            super(capacity);
+            this.values = new long[capacity];
+            this.stamps = new int[capacity];
+        }
+
+        long value(final int index) {
+            return values[index];
+        }
+
+        void value(final int index, final long bits) {
+            values[index] = bits;
+        }
+
+        int stamp(final int index) {
+            return stamps[index];
+        }
+
+        void stamp(final int index, final int val) {
+            stamps[index] = val;
+        }
+    }
+
+    //values first, then stamps, so every long stays aligned
+    private static final class DirectSlots extends Slots {
+        final ByteBuffer buffer;
+        final int stampOffset;
+
+        DirectSlots(final int capacity) {
+            super(capacity);
+            this.buffer = ByteBuffer.allocateDirect(capacity * (Long.BYTES + Integer.BYTES)).order(ByteOrder.nativeOrder());
+            this.stampOffset = capacity * Long.BYTES;
+        }
+
+        long value(final int index) {
+            return buffer.getLong(index << 3);
+        }
+
+        void value(final int index, final long bits) {
+            buffer.putLong(index << 3, bits);
+        }
+
+        int stamp(final int index) {
+            return buffer.getInt(stampOffset + (index << 2));
+        }
+
+        void stamp(final int index, final int val) {
+            buffer.putInt(stampOffset + (index << 2), val);
+        }
+    }
+}
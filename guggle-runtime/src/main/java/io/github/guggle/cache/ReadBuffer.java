@@ -0,0 +1,89 @@
+package io.github.guggle.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+final class ReadBuffer<E> {
+
+    public static final int SUCCESS = 0;
+    public static final int FAILED = 1;
+    public static final int FULL = 2;
+
+    private static final int STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+    private static final int STRIPE_MASK = STRIPES - 1;
+    private static final int SIZE = 16;
+    private static final int SIZE_MASK = SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public ReadBuffer() {
+        stripes = (Stripe<E>[]) new Stripe[STRIPES];
+        for(int i = 0; i < STRIPES; ++i) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    //lossy by design, a dropped read only costs the policy a little accuracy
+    public int offer(final E e) {
+        return stripes[stripe()].offer(e);
+    }
+
+    public void drainTo(final Consumer<E> consumer) {
+        for(Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        id ^= (id >>> 17);
+        id *= 0x9E3779B97F4A7C15L;
+        return ((int) (id >>> 32)) & STRIPE_MASK;
+    }
+
+    private static int ceilingPowerOfTwo(final int x) {
+        return 1 << -Integer.numberOfLeadingZeros(Math.max(x, 1) - 1);
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(SIZE);
+
+        int offer(final E e) {
+            final long h = head.get();
+            final long t = tail.get();
+            if(t - h >= SIZE) {
+                return FULL;
+            }
+
+            if(tail.compareAndSet(t, t + 1)) {
+                buffer.lazySet((int) (t & SIZE_MASK), e);
+                return SUCCESS;
+            }
+
+            return FAILED;
+        }
+
+        //only ever called by the thread holding the eviction lock
+        void drainTo(final Consumer<E> consumer) {
+            long h = head.get();
+            final long t = tail.get();
+            while(h < t) {
+                final int index = (int) (h & SIZE_MASK);
+                final E e = buffer.get(index);
+                if(e == null) {
+                    break;
+                }
+
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+                ++h;
+            }
+
+            head.lazySet(h);
+        }
+    }
+}
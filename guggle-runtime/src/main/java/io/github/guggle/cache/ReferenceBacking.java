@@ -0,0 +1,338 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Components;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//A dedicated backing that lets the GC take entries back. With weak keys the object
+//components of a key, anything that isn't a string, number, boolean, char, enum or
+//class, are held weakly and compared by identity, so an entry lives only as long as
+//the objects it was computed from. With soft values the holders are softly reachable
+//and go under memory pressure. Collected entries are drained from the reference queue
+//on writes and every READS_PER_DRAIN reads rather than by a thread of their own.
+final class ReferenceBacking extends AbstractMap<Object,Object> implements ConcurrentMap<Object,Object> {
+
+    private static final int READS_PER_DRAIN = 64;
+
+    private final ConcurrentHashMap<Object,Object> table = new ConcurrentHashMap<>(64, 0.75f, 4);
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Components<Object> components;
+    private final boolean weakKeys;
+    private final boolean softValues;
+    private volatile long collected;
+    //racy on purpose, a lost increment only delays a drain
+    private int reads;
+
+    @SuppressWarnings("unchecked")
+    ReferenceBacking(final Components<?> components, final boolean weakKeys, final boolean softValues) {
+        this.components = (components != null) ? (Components<Object>) components : (Components<Object>) WHOLE;
+        this.weakKeys = weakKeys;
+        this.softValues = softValues;
+    }
+
+    boolean isWeakKeys() {
+        return weakKeys;
+    }
+
+    long collectedCount() {
+        return collected;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        if((++reads % READS_PER_DRAIN) == 0) {
+            drain();
+        }
+
+        return value(table.get(probe(key)));
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return value(table.get(probe(key))) != null;
+    }
+
+    @Override
+    public Object put(final Object key, final Object val) {
+        drain();
+        final Object inner = stored(key);
+        return value(table.put(inner, wrap(inner, val)));
+    }
+
+    @Override
+    public Object putIfAbsent(final Object key, final Object val) {
+        drain();
+        final Object inner = stored(key);
+        while(true) {
+            final Object current = table.putIfAbsent(inner, wrap(inner, val));
+            final Object previous = value(current);
+            if(current == null || previous != null) {
+                return previous;
+            }
+
+            //a collected value still in the table until drained
+            table.remove(inner, current);
+        }
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        drain();
+        return value(table.remove(probe(key)));
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object val) {
+        final Object probe = probe(key);
+        final Object current = table.get(probe);
+        return current != null && matches(current, val) && table.remove(probe, current);
+    }
+
+    @Override
+    public boolean replace(final Object key, final Object previous, final Object val) {
+        final Object probe = probe(key);
+        final Object current = table.get(probe);
+        return current != null && matches(current, previous) &&
+            table.replace(probe, current, wrap(inner(probe, current), val));
+    }
+
+    @Override
+    public Object replace(final Object key, final Object val) {
+        final Object probe = probe(key);
+        final Object current = table.get(probe);
+        return (current != null && table.replace(probe, current, wrap(inner(probe, current), val))) ? value(current) : null;
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public void clear() {
+        table.clear();
+        drain();
+    }
+
+    @Override
+    public Set<Map.Entry<Object,Object>> entrySet() {
+        return new AbstractSet<Map.Entry<Object,Object>>() {
+            public int size() {
+                return table.size();
+            }
+
+            public Iterator<Map.Entry<Object,Object>> iterator() {
+                return new Live(table.entrySet().iterator());
+            }
+        };
+    }
+
+    //forgets everything the GC has cleared since the last drain
+    void drain() {
+        Reference<?> ref;
+        long count = 0L;
+        while((ref = queue.poll()) != null) {
+            if(ref instanceof Part) {
+                if(table.remove(((Part) ref).owner) != null) {
+                    ++count;
+                }
+            }
+            else if(table.remove(((SoftValue) ref).key, ref)) {
+                ++count;
+            }
+        }
+
+        if(count > 0L) {
+            collected += count;
+        }
+    }
+
+    private Object probe(final Object key) {
+        return weakKeys ? new PartsKey(components.components(key), false, null) : key;
+    }
+
+    private Object stored(final Object key) {
+        return weakKeys ? new PartsKey(components.components(key), true, queue) : key;
+    }
+
+    //the key the entry is stored under, the probe holds its objects strongly so a soft
+    //value must never point at it
+    private static Object inner(final Object probe, final Object current) {
+        return (current instanceof SoftValue) ? ((SoftValue) current).key : probe;
+    }
+
+    //equals, as ConcurrentMap has it, a collected value matches nothing
+    private static boolean matches(final Object current, final Object val) {
+        return val != null && val.equals(value(current));
+    }
+
+    private Object wrap(final Object inner, final Object val) {
+        return softValues ? new SoftValue(inner, val, queue) : val;
+    }
+
+    private static Object value(final Object stored) {
+        return (stored instanceof SoftValue) ? ((SoftValue) stored).get() : stored;
+    }
+
+    private Object key(final Object inner) {
+        if(!weakKeys) {
+            return inner;
+        }
+
+        final Object[] parts = ((PartsKey) inner).live();
+        return (parts == null) ? null : components.fromComponents(parts);
+    }
+
+    private final class Live implements Iterator<Map.Entry<Object,Object>> {
+        private final Iterator<Map.Entry<Object,Object>> inner;
+        private Map.Entry<Object,Object> next;
+
+        Live(final Iterator<Map.Entry<Object,Object>> inner) {
+            this.inner = inner;
+        }
+
+        public boolean hasNext() {
+            while(next == null && inner.hasNext()) {
+                final Map.Entry<Object,Object> e = inner.next();
+                final Object val = value(e.getValue());
+                final Object key = (val == null) ? null : key(e.getKey());
+                if(key != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(key, val);
+                }
+            }
+
+            return next != null;
+        }
+
+        public Map.Entry<Object,Object> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final Map.Entry<Object,Object> ret = next;
+            next = null;
+            return ret;
+        }
+    }
+
+    static boolean referent(final Object o) {
+        return o != null &&
+            !(o instanceof String || o instanceof Number || o instanceof Boolean ||
+              o instanceof Character || o instanceof Enum || o instanceof Class);
+    }
+
+    //a key's components with the object ones weakly held, equal to another key with
+    //the very same objects and equal everything else
+    private static final class PartsKey {
+        private final Object[] parts;
+        private final int hash;
+
+        PartsKey(final Object[] components, final boolean weak, final ReferenceQueue<Object> queue) {
+            int h = 1;
+            for(int i = 0; i < components.length; ++i) {
+                final Object o = components[i];
+                h = 31 * h + (referent(o) ? System.identityHashCode(o) : Objects.hashCode(o));
+                if(weak && referent(o)) {
+                    components[i] = new Part(o, this, queue);
+                }
+            }
+
+            this.parts = components;
+            this.hash = h;
+        }
+
+        Object part(final int i) {
+            final Object o = parts[i];
+            return (o instanceof Part) ? ((Part) o).get() : o;
+        }
+
+        //the components while every object one is still alive, null once any is gone
+        Object[] live() {
+            final Object[] ret = new Object[parts.length];
+            for(int i = 0; i < parts.length; ++i) {
+                ret[i] = part(i);
+                if(ret[i] == null && parts[i] instanceof Part) {
+                    return null;
+                }
+            }
+
+            return ret;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(o == this) {
+                return true;
+            }
+
+            if(!(o instanceof PartsKey)) {
+                return false;
+            }
+
+            final PartsKey rhs = (PartsKey) o;
+            if(hash != rhs.hash || parts.length != rhs.parts.length) {
+                return false;
+            }
+
+            for(int i = 0; i < parts.length; ++i) {
+                final Object mine = part(i);
+                final Object theirs = rhs.part(i);
+                if(referent(mine) || referent(theirs) ? mine != theirs : !Objects.equals(mine, theirs)) {
+                    return false;
+                }
+
+                if(mine == null && (parts[i] instanceof Part || rhs.parts[i] instanceof Part)) {
+                    //collected, only the same key is still equal to it
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static final class Part extends WeakReference<Object> {
+        final PartsKey owner;
+
+        Part(final Object referent, final PartsKey owner, final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.owner = owner;
+        }
+    }
+
+    private static final class SoftValue extends SoftReference<Object> {
+        final Object key;
+
+        SoftValue(final Object key, final Object val, final ReferenceQueue<Object> queue) {
+            super(val, queue);
+            this.key = key;
+        }
+    }
+
+    //keys that aren't generated hold themselves as their one component
+    private static final Components<Object> WHOLE = new Components<Object>() {
+            public Object[] components(final Object key) {
+                return new Object[] { key };
+            }
+
+            public Object fromComponents(final Object[] components) {
+                return components[0];
+            }
+        };
+}
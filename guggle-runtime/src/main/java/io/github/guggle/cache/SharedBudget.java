@@ -0,0 +1,156 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheGroup;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//The budget of a cache group, divided between the views in it. Members start out with
+//equal shares, every rebalance then moves a step of the budget from the member that would
+//miss it least to the one its ghosts say would gain the most hits from it, so the shares
+//settle where a little more room is worth about as much to each of them.
+final class SharedBudget {
+
+    interface Member {
+        //null while the member keeps no ghosts
+        Ghosts ghosts();
+
+        //entries, or weight for a weighted group, the member holds at the moment
+        long used();
+
+        //the member's bound, -1 once it has left the group
+        void allot(SharedBudget budget, long val);
+    }
+
+    private static final double STEP = 0.05d;
+    //no member is squeezed below a tenth of an equal share
+    private static final double MINIMUM_SHARE = 0.1d;
+    private static final double SMOOTHING = 0.5d;
+
+    private final Map<Member,Share> shares = new LinkedHashMap<>();
+    private CacheGroup group;
+
+    SharedBudget(final CacheGroup group) {
+        this.group = group;
+    }
+
+    synchronized CacheGroup getGroup() {
+        return group;
+    }
+
+    boolean isWeighted() {
+        //never changes, a group that does is given a new budget
+        return group.isWeighted();
+    }
+
+    synchronized long allotment(final Member member) {
+        final Share s = shares.get(member);
+        return (s == null) ? -1L : s.allotted;
+    }
+
+    synchronized void join(final Member member) {
+        if(shares.containsKey(member)) {
+            return;
+        }
+
+        final int count = shares.size() + 1;
+        long given = 0L;
+        for(Share s : shares.values()) {
+            s.allotted = (long) (s.allotted * ((double) (count - 1) / count));
+            given += s.allotted;
+        }
+
+        shares.put(member, new Share(Math.max(group.getBudget() - given, 1L)));
+        allotAll();
+    }
+
+    //what the member had goes to the rest in proportion to what they have
+    synchronized void leave(final Member member) {
+        final Share removed = shares.remove(member);
+        if(removed == null) {
+            return;
+        }
+
+        member.allot(this, -1L);
+        resize(group.getBudget());
+    }
+
+    synchronized void setGroup(final CacheGroup val) {
+        group = val;
+        resize(val.getBudget());
+    }
+
+    synchronized void rebalance() {
+        final int count = shares.size();
+        final long budget = group.getBudget();
+        final long step = Math.max(1L, (long) (budget * STEP));
+        final long floor = Math.max(1L, (long) (budget * MINIMUM_SHARE / Math.max(count, 1)));
+        Member donor = null;
+        Member recipient = null;
+        double least = Double.MAX_VALUE;
+        double most = 0d;
+        for(Map.Entry<Member,Share> e : shares.entrySet()) {
+            final Member m = e.getKey();
+            final Share s = e.getValue();
+            final Ghosts g = m.ghosts();
+            s.benefit = SMOOTHING * s.benefit + (1d - SMOOTHING) * ((g == null) ? 0d : g.sample());
+
+            //room a member isn't even using is worth nothing to it
+            final double worth = (m.used() + step <= s.allotted) ? 0d : s.benefit;
+            if(s.allotted - step >= floor && worth < least) {
+                donor = m;
+                least = worth;
+            }
+
+            if(s.benefit > most) {
+                recipient = m;
+                most = s.benefit;
+            }
+        }
+
+        if(donor == null || recipient == null || donor == recipient || most <= least) {
+            return;
+        }
+
+        shares.get(donor).allotted -= step;
+        shares.get(recipient).allotted += step;
+        donor.allot(this, shares.get(donor).allotted);
+        recipient.allot(this, shares.get(recipient).allotted);
+    }
+
+    //must hold the monitor, keeps the members' proportions with rounding going to the first
+    private void resize(final long budget) {
+        long total = 0L;
+        for(Share s : shares.values()) {
+            total += s.allotted;
+        }
+
+        long given = 0L;
+        Share first = null;
+        for(Share s : shares.values()) {
+            s.allotted = (total <= 0L) ? budget / shares.size() : Math.max(1L, (long) (budget * ((double) s.allotted / total)));
+            given += s.allotted;
+            first = (first == null) ? s : first;
+        }
+
+        if(first != null) {
+            first.allotted = Math.max(1L, first.allotted + budget - given);
+        }
+
+        allotAll();
+    }
+
+    private void allotAll() {
+        for(Map.Entry<Member,Share> e : shares.entrySet()) {
+            e.getKey().allot(this, e.getValue().allotted);
+        }
+    }
+
+    private static final class Share {
+        long allotted;
+        double benefit;
+
+        Share(final long allotted) {
+            this.allotted = allotted;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codec;
+import io.github.guggle.utils.Fnv;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//An open addressing table in a file mapped by every JVM on the host. Whoever gets
+//the file lock first writes, everyone else maps it read-only and answers straight
+//from the shared pages, trying for the lock again every so often so one of them
+//takes over when the writer goes. Slots are fixed size and written in place under
+//a per slot sequence, odd while a write is under way, and a checksum of the slot,
+//so a reader racing the writer sees a changed sequence or a bad checksum and
+//retries rather than a torn entry. Java 8 has no portable fence for mapped
+//memory, the checksum is what holds when loads and stores get reordered.
+//
+//  header: int magic, int slots, int slot bytes
+//  slot:   int sequence, int crc32, int hash, int accessed, short key length,
+//          short value length, key, value
+final class SharedTable {
+
+    static final int SLOT_BYTES = 256;
+    static final long DEFAULT_BYTES = 64L << 20;
+    private static final int MAGIC = 0x47475354;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_HEADER = 20;
+    private static final int MAX_PROBES = 16;
+    private static final int MAX_SLOTS = 1 << 22;
+    private static final int READ_ATTEMPTS = 8;
+    private static final long RETRY_MILLIS = 1_000L;
+    private static final short EMPTY = 0;
+    private static final short TOMBSTONE = -1;
+
+    static final class Entry {
+        final Object value;
+        final int accessed;
+
+        Entry(final Object value, final int accessed) {
+            this.value = value;
+            this.accessed = accessed;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long bytes;
+    private volatile FileLock lock;
+    private final Codec<Object> keys;
+    private final Codec<Object> values;
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SLOT_BYTES));
+    private volatile ByteBuffer buffer;
+    private volatile int mask;
+    private volatile long nextAttach;
+
+    @SuppressWarnings("unchecked")
+    SharedTable(final Path file, final long bytes, final Codec<?> keys, final Codec<?> values) {
+        this.keys = (Codec<Object>) keys;
+        this.values = (Codec<Object>) values;
+        this.bytes = bytes;
+        try {
+            Files.createDirectories(file.getParent());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.lock = tryLock();
+            if(lock != null) {
+                format(bytes);
+            }
+            else {
+                nextAttach = AllCaches.now() + RETRY_MILLIS;
+                attach();
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    boolean isWriter() {
+        return lock != null;
+    }
+
+    //keeps a table laid out the same way, readers may already be serving from it
+    private void format(final long bytes) throws IOException {
+        //a mapped buffer tops out at 2GB, so does the table
+        final int slots = Integer.highestOneBit((int) Math.min(MAX_SLOTS, Math.max(16L, (bytes - HEADER_BYTES) / SLOT_BYTES)));
+        final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_BYTES + (long) slots * SLOT_BYTES);
+        if(mapped.getInt(0) != MAGIC || mapped.getInt(4) != slots || mapped.getInt(8) != SLOT_BYTES) {
+            mapped.putInt(0, 0);
+            for(int i = HEADER_BYTES; i < mapped.capacity(); i += 8) {
+                mapped.putLong(i, 0L);
+            }
+
+            mapped.putInt(4, slots);
+            mapped.putInt(8, SLOT_BYTES);
+            mapped.putInt(0, MAGIC);
+        }
+
+        mask = slots - 1;
+        buffer = mapped;
+    }
+
+    //readers take the layout from the header, until the writer has written one they miss
+    private void attach() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(12);
+        channel.read(header, 0L);
+        header.flip();
+        if(header.remaining() < 12 || header.getInt() != MAGIC) {
+            return;
+        }
+
+        final int slots = header.getInt();
+        if(header.getInt() != SLOT_BYTES || Integer.bitCount(slots) != 1 ||
+           channel.size() < HEADER_BYTES + (long) slots * SLOT_BYTES) {
+            return;
+        }
+
+        mask = slots - 1;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_BYTES + (long) slots * SLOT_BYTES);
+    }
+
+    private FileLock tryLock() throws IOException {
+        try {
+            return channel.tryLock();
+        }
+        catch(OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    //a reader tries for the lock once a second, the writer may have exited, and attaches
+    //as soon as there is a table to attach to
+    private ByteBuffer buffer() {
+        final ByteBuffer ret = buffer;
+        if(lock != null || !channel.isOpen() || AllCaches.now() < nextAttach) {
+            return ret;
+        }
+
+        synchronized(this) {
+            final long now = AllCaches.now();
+            if(lock != null || now < nextAttach) {
+                return buffer;
+            }
+
+            nextAttach = now + RETRY_MILLIS;
+            try {
+                final FileLock acquired = tryLock();
+                if(acquired != null) {
+                    try {
+                        //taking over keeps the layout readers are already serving from
+                        format((buffer == null) ? bytes : HEADER_BYTES + (mask + 1L) * SLOT_BYTES);
+                    }
+                    catch(IOException e) {
+                        acquired.release();
+                        throw e;
+                    }
+
+                    lock = acquired;
+                }
+                else if(buffer == null) {
+                    attach();
+                }
+            }
+            catch(IOException e) {
+                //still a reader, or not attached yet, tried again next time
+            }
+
+            return buffer;
+        }
+    }
+
+    Entry get(final Object key) {
+        final ByteBuffer b = buffer();
+        final ByteBuffer encoded = encodeKey(key);
+        if(b == null || encoded == null) {
+            return null;
+        }
+
+        final int keyLength = encoded.position();
+        final int hash = hash(encoded, keyLength);
+        final int m = mask;
+        for(int probe = 0; probe < MAX_PROBES; ++probe) {
+            final int offset = offset((hash + probe) & m);
+            int attempt = 0;
+            while(true) {
+                if(++attempt > READ_ATTEMPTS) {
+                    //the writer keeps rewriting it, a miss costs less than waiting
+                    return null;
+                }
+
+                final int sequence = b.getInt(offset);
+                if((sequence & 1) != 0) {
+                    continue;
+                }
+
+                final short length = b.getShort(offset + 16);
+                if(length == EMPTY) {
+                    if(b.getInt(offset) != sequence) {
+                        continue;
+                    }
+
+                    return null;
+                }
+
+                if(length != keyLength || b.getInt(offset + 8) != hash || !sameKey(b, offset, encoded, keyLength)) {
+                    if(b.getInt(offset) != sequence) {
+                        continue;
+                    }
+
+                    break;
+                }
+
+                final short valueLength = b.getShort(offset + 18);
+                final int body = 12 + keyLength + Math.max(0, valueLength);
+                if(body > SLOT_BYTES - 8) {
+                    continue;
+                }
+
+                final ByteBuffer view = b.duplicate();
+                view.limit(offset + 8 + body).position(offset + 8);
+                final CRC32 crc = new CRC32();
+                crc.update(view);
+                if((int) crc.getValue() != b.getInt(offset + 4)) {
+                    continue;
+                }
+
+                final int accessed = b.getInt(offset + 12);
+                Object value = null;
+                if(valueLength >= 0) {
+                    view.limit(offset + 8 + body).position(offset + SLOT_HEADER + keyLength);
+                    try {
+                        value = values.read(view);
+                    }
+                    catch(RuntimeException e) {
+                        continue;
+                    }
+                }
+
+                if(b.getInt(offset) != sequence) {
+                    continue;
+                }
+
+                return new Entry(value, accessed);
+            }
+        }
+
+        return null;
+    }
+
+    //returns false when the entry doesn't fit a slot, it is never shared then
+    synchronized boolean put(final Object key, final Object value, final int accessed) {
+        final ByteBuffer b = buffer;
+        final ByteBuffer encoded = encodeKey(key);
+        if(lock == null || b == null || encoded == null) {
+            return false;
+        }
+
+        final int keyLength = encoded.position();
+        final int valueLength;
+        try {
+            if(value != null && values.sizeOf(value) > encoded.remaining()) {
+                remove(key);
+                return false;
+            }
+
+            if(value != null) {
+                values.write(value, encoded);
+            }
+
+            valueLength = (value == null) ? -1 : encoded.position() - keyLength;
+        }
+        catch(RuntimeException e) {
+            remove(key);
+            return false;
+        }
+
+        final int hash = hash(encoded, keyLength);
+        final int slot = find(b, hash, encoded, keyLength, true);
+        final int offset = offset(slot);
+        final int sequence = b.getInt(offset);
+        b.putInt(offset, sequence + 1);
+        b.putInt(offset + 8, hash);
+        b.putInt(offset + 12, accessed);
+        b.putShort(offset + 16, (short) keyLength);
+        b.putShort(offset + 18, (short) valueLength);
+        final ByteBuffer target = b.duplicate();
+        target.position(offset + SLOT_HEADER);
+        encoded.flip();
+        target.put(encoded);
+
+        final ByteBuffer written = b.duplicate();
+        written.limit(offset + SLOT_HEADER + keyLength + Math.max(0, valueLength)).position(offset + 8);
+        final CRC32 crc = new CRC32();
+        crc.update(written);
+        b.putInt(offset + 4, (int) crc.getValue());
+        b.putInt(offset, sequence + 2);
+        return true;
+    }
+
+    synchronized void remove(final Object key) {
+        final ByteBuffer b = buffer;
+        final ByteBuffer encoded = encodeKey(key);
+        if(lock == null || b == null || encoded == null) {
+            return;
+        }
+
+        final int keyLength = encoded.position();
+        final int slot = find(b, hash(encoded, keyLength), encoded, keyLength, false);
+        if(slot >= 0) {
+            mark(b, offset(slot), TOMBSTONE);
+        }
+    }
+
+    synchronized void clear() {
+        final ByteBuffer b = buffer;
+        if(lock == null || b == null) {
+            return;
+        }
+
+        for(int i = 0; i <= mask; ++i) {
+            if(b.getShort(offset(i) + 16) != EMPTY) {
+                mark(b, offset(i), EMPTY);
+            }
+        }
+    }
+
+    void close() {
+        try {
+            if(lock != null) {
+                lock.release();
+            }
+
+            channel.close();
+        }
+        catch(IOException e) {
+            //closing anyway
+        }
+    }
+
+    private static void mark(final ByteBuffer b, final int offset, final short state) {
+        final int sequence = b.getInt(offset);
+        b.putInt(offset, sequence + 1);
+        b.putShort(offset + 16, state);
+        b.putInt(offset, sequence + 2);
+    }
+
+    //must hold the table's lock, the slot holding the key, or for an insert the first
+    //free one in its neighbourhood, the least recently written is overwritten when there is none
+    private int find(final ByteBuffer b, final int hash, final ByteBuffer encoded, final int keyLength, final boolean insert) {
+        int free = -1;
+        int oldest = hash & mask;
+        for(int probe = 0; probe < MAX_PROBES; ++probe) {
+            final int slot = (hash + probe) & mask;
+            final int offset = offset(slot);
+            final short length = b.getShort(offset + 16);
+            if(length == EMPTY) {
+                free = (free < 0) ? slot : free;
+                break;
+            }
+
+            if(length == TOMBSTONE) {
+                free = (free < 0) ? slot : free;
+            }
+            else if(length == keyLength && b.getInt(offset + 8) == hash && sameKey(b, offset, encoded, keyLength)) {
+                return slot;
+            }
+            else if(b.getInt(offset + 12) < b.getInt(offset(oldest) + 12)) {
+                oldest = slot;
+            }
+        }
+
+        if(!insert) {
+            return -1;
+        }
+
+        return (free < 0) ? oldest : free;
+    }
+
+    private static boolean sameKey(final ByteBuffer b, final int offset, final ByteBuffer encoded, final int keyLength) {
+        for(int i = 0; i < keyLength; ++i) {
+            if(b.get(offset + SLOT_HEADER + i) != encoded.get(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //the key encoded at the start of this thread's scratch buffer, null when it can't be
+    private ByteBuffer encodeKey(final Object key) {
+        final ByteBuffer ret = scratch.get();
+        ret.clear();
+        ret.limit(SLOT_BYTES - SLOT_HEADER);
+        try {
+            if(keys.sizeOf(key) > ret.remaining()) {
+                return null;
+            }
+
+            keys.write(key, ret);
+        }
+        catch(RuntimeException e) {
+            return null;
+        }
+
+        return (ret.position() == 0) ? null : ret;
+    }
+
+    private static int hash(final ByteBuffer encoded, final int length) {
+        //fnv-1a over the bytes, then murmur3's finalizer so similar keys don't land in runs
+        int h = Fnv.OFFSET;
+        for(int i = 0; i < length; ++i) {
+            h = (h ^ (encoded.get(i) & 0xFF)) * Fnv.PRIME;
+        }
+
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static int offset(final int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
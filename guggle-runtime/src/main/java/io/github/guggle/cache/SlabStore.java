@@ -0,0 +1,224 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+//Off-heap second level behind an object view's heap. Values are encoded into a ring
+//of direct slabs while keys and slot positions stay in an on-heap index. Appends wrap
+//around like a log, reusing a slab drops whatever still lives in it. Writes are
+//serialized on the store, reads never lock, they validate against the slab's lock
+//instead so a slab reused under them reads as a miss.
+final class SlabStore {
+
+    static final int SLAB_BYTES = 1 << 20;
+    private static final int MIN_SLAB_BYTES = 4096;
+
+    static final class Entry {
+        final Object value;
+        final int accessed;
+
+        Entry(final Object value, final int accessed) {
+            this.value = value;
+            this.accessed = accessed;
+        }
+    }
+
+    private static final class Slab {
+        final StampedLock lock = new StampedLock();
+        final List<Object> keys = new ArrayList<>();
+        ByteBuffer buffer;
+        volatile int generation;
+        int position;
+    }
+
+    private static final class Slot {
+        final Slab slab;
+        final int generation;
+        final int offset;
+        final int length;
+        final int accessed;
+
+        Slot(final Slab slab, final int generation, final int offset, final int length, final int accessed) {
+            this.slab = slab;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+            this.accessed = accessed;
+        }
+    }
+
+    private final long capacity;
+    private final int slabBytes;
+    private final Codec<Object> values;
+    private final Slab[] slabs;
+    private final ConcurrentMap<Object,Slot> index = new ConcurrentHashMap<>();
+    private volatile long evictions;
+    private int current;
+
+    @SuppressWarnings("unchecked")
+    SlabStore(final long capacity, final Codec<?> values) {
+        this.capacity = capacity;
+        this.slabBytes = (int) Math.max(MIN_SLAB_BYTES, Math.min(SLAB_BYTES, capacity));
+        this.values = (Codec<Object>) values;
+        this.slabs = new Slab[(int) Math.max(1L, capacity / slabBytes)];
+        for(int i = 0; i < slabs.length; ++i) {
+            slabs[i] = new Slab();
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    long evictionCount() {
+        return evictions;
+    }
+
+    boolean contains(final Object key) {
+        return index.containsKey(key);
+    }
+
+    Stream<Object> keys() {
+        return index.keySet().stream();
+    }
+
+    //returns false when the value can't be encoded or is bigger than a slab
+    synchronized boolean put(final Object key, final Object value, final int accessed) {
+        final int length;
+        try {
+            length = 1 + ((value == null) ? 0 : values.sizeOf(value));
+        }
+        catch(RuntimeException e) {
+            remove(key);
+            return false;
+        }
+
+        if(length > slabBytes) {
+            remove(key);
+            return false;
+        }
+
+        Slab slab = slabs[current];
+        if(slab.buffer == null) {
+            //slabs are only allocated once the ring grows into them
+            slab.buffer = ByteBuffer.allocateDirect(slabBytes);
+        }
+        else if(slab.position + length > slabBytes) {
+            current = (current + 1) % slabs.length;
+            slab = slabs[current];
+            if(slab.buffer == null) {
+                slab.buffer = ByteBuffer.allocateDirect(slabBytes);
+            }
+            else {
+                recycle(slab);
+            }
+        }
+
+        final int offset = slab.position;
+        final ByteBuffer view = slab.buffer.duplicate();
+        view.position(offset);
+        try {
+            view.put((value == null) ? (byte) 0 : (byte) 1);
+            if(value != null) {
+                values.write(value, view);
+            }
+        }
+        catch(RuntimeException e) {
+            remove(key);
+            return false;
+        }
+
+        if(view.position() != offset + length) {
+            throw new IllegalStateException("Codec wrote " + (view.position() - offset) +
+                                            " bytes but sized " + length + " for " + key);
+        }
+
+        slab.position = offset + length;
+        slab.keys.add(key);
+        index.put(key, new Slot(slab, slab.generation, offset, length, accessed));
+        return true;
+    }
+
+    //removes and returns the entry, it is on its way back to the heap
+    Entry take(final Object key) {
+        final Slot slot = index.remove(key);
+        return (slot == null) ? null : read(slot);
+    }
+
+    //what is still in the slabs, leaving it there
+    Stream<Entry> entries() {
+        return index.values().stream().map(this::read).filter(Objects::nonNull);
+    }
+
+    private Entry read(final Slot slot) {
+        final Slab slab = slot.slab;
+        final long stamp = slab.lock.tryOptimisticRead();
+        if(stamp == 0L || slab.generation != slot.generation) {
+            return null;
+        }
+
+        Object value = null;
+        try {
+            final ByteBuffer view = slab.buffer.duplicate();
+            view.limit(slot.offset + slot.length).position(slot.offset);
+            if(view.get() != 0) {
+                value = values.read(view);
+            }
+        }
+        catch(RuntimeException e) {
+            //overwritten while we read it, the validate below says so
+            value = null;
+        }
+
+        return slab.lock.validate(stamp) ? new Entry(value, slot.accessed) : null;
+    }
+
+    void remove(final Object key) {
+        index.remove(key);
+    }
+
+    synchronized void clear() {
+        index.clear();
+        for(Slab slab : slabs) {
+            if(slab.buffer != null) {
+                recycle(slab);
+            }
+        }
+
+        current = 0;
+    }
+
+    //must hold the store's lock, readers still decoding from the slab fail validation
+    private void recycle(final Slab slab) {
+        final long stamp = slab.lock.writeLock();
+        try {
+            ++slab.generation;
+        }
+        finally {
+            slab.lock.unlockWrite(stamp);
+        }
+
+        long dropped = 0L;
+        for(Object key : slab.keys) {
+            final Slot slot = index.get(key);
+            if(slot != null && slot.slab == slab && index.remove(key, slot)) {
+                ++dropped;
+            }
+        }
+
+        evictions += dropped;
+        slab.keys.clear();
+        slab.position = 0;
+    }
+}
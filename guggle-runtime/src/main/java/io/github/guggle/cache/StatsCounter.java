@@ -0,0 +1,67 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheStats;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Striped counters behind a view's CacheStats. Reads only bump a single adder,
+//hits are worked out as reads minus misses when a snapshot is taken.
+final class StatsCounter {
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder inFlightWaits = new LongAdder();
+
+    void read() {
+        reads.increment();
+    }
+
+    void reads(final long count) {
+        reads.add(count);
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void load(final long nanos, final boolean success) {
+        if(success) {
+            loadSuccesses.increment();
+        }
+        else {
+            loadFailures.increment();
+        }
+
+        totalLoadNanos.add(nanos);
+        maxLoadNanos.accumulate(nanos);
+    }
+
+    void eviction() {
+        evictions.increment();
+    }
+
+    void expiration() {
+        expirations.increment();
+    }
+
+    void inFlightWait() {
+        inFlightWaits.increment();
+    }
+
+    CacheStats snapshot(final long tableEvictions) {
+        //read misses first so a racing read can't push hits below zero
+        final long missed = misses.sum();
+        final long hits = Math.max(reads.sum() - missed, 0L);
+        return new CacheStats(hits, missed,
+                              loadSuccesses.sum(), loadFailures.sum(),
+                              totalLoadNanos.sum(), maxLoadNanos.get(),
+                              evictions.sum() + tableEvictions, expirations.sum(),
+                              inFlightWaits.sum());
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.guggle.cache;
+
+abstract class TimedNode extends Node {
+
+    //milliseconds since AllCaches.EPOCH, guarded by the owning view's eviction lock
+    long deadline;
+    TimedNode prevInTimer;
+    TimedNode nextInTimer;
+}
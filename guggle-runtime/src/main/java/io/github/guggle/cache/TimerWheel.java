@@ -0,0 +1,203 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Expires;
+import io.github.guggle.utils.TimeUnits;
+
+//Hierarchical timer wheel keyed by milliseconds since AllCaches.EPOCH.
+//Level 0 buckets are ~1 second wide and span ~65 seconds, each higher level
+//covers the whole span of the level below in a single bucket. Advancing the
+//wheel only touches buckets whose time has passed, so expiring N entries
+//costs O(N) plus the entries cascaded down a level.
+//Not thread safe, every call is made while holding the view's eviction lock.
+final class TimerWheel {
+
+    private static final int[] BUCKETS = { 64, 64, 16, 4, 1 };
+    private static final long[] SPANS = { 1L << 10, 1L << 16, 1L << 22, 1L << 26, 1L << 28, 1L << 28 };
+    private static final long[] SHIFT = { 10, 16, 22, 26, 28 };
+
+    public interface Expirer {
+        //return false to have the node rescheduled at its (possibly updated) deadline
+        boolean expire(TimedNode node);
+    }
+
+    private final Sentinel[][] wheel;
+    private final Sentinel overdue = new Sentinel();
+    private long time;
+
+    public TimerWheel(final long now) {
+        this.time = now;
+        this.wheel = new Sentinel[BUCKETS.length][];
+        for(int i = 0; i < BUCKETS.length; ++i) {
+            wheel[i] = new Sentinel[BUCKETS[i]];
+            for(int j = 0; j < BUCKETS[i]; ++j) {
+                wheel[i][j] = new Sentinel();
+            }
+        }
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void schedule(final TimedNode node, final long deadline) {
+        if(node.nextInTimer != null) {
+            unlink(node);
+        }
+
+        node.deadline = deadline;
+        link(findBucket(deadline), node);
+    }
+
+    public void deschedule(final TimedNode node) {
+        if(node.nextInTimer != null) {
+            unlink(node);
+        }
+    }
+
+    //expires at most budget due nodes, any left over are kept in order and handled first next time
+    public int advance(final long now, final int budget, final Expirer expirer) {
+        int expired = drainOverdue(budget, expirer);
+        final long previous = time;
+        time = Math.max(now, previous);
+
+        for(int i = 0; i < SHIFT.length; ++i) {
+            final long previousTicks = previous >>> SHIFT[i];
+            final long currentTicks = time >>> SHIFT[i];
+            if(currentTicks - previousTicks <= 0L) {
+                break;
+            }
+
+            expired += expire(i, previousTicks, currentTicks - previousTicks, budget - expired, expirer);
+        }
+
+        return expired;
+    }
+
+    public boolean hasOverdue() {
+        return overdue.nextInTimer != overdue;
+    }
+
+    //milliseconds until the earliest bucket holding entries comes due
+    public long getExpirationDelay() {
+        if(hasOverdue()) {
+            return 0L;
+        }
+
+        long delay = Long.MAX_VALUE;
+        for(int i = 0; i < SHIFT.length; ++i) {
+            final Sentinel[] timerWheel = wheel[i];
+            final long ticks = time >>> SHIFT[i];
+            final int mask = timerWheel.length - 1;
+            for(int j = 0; j < timerWheel.length; ++j) {
+                final Sentinel sentinel = timerWheel[(int) ((ticks + j) & mask)];
+                if(sentinel.nextInTimer != sentinel) {
+                    final long due = ((ticks + j + 1L) << SHIFT[i]) - time;
+                    delay = Math.min(delay, Math.max(due, 0L));
+                    break;
+                }
+            }
+        }
+
+        return delay;
+    }
+
+    private int expire(final int index, final long previousTicks, final long delta,
+                       final int budget, final Expirer expirer) {
+        final Sentinel[] timerWheel = wheel[index];
+        final int mask = timerWheel.length - 1;
+        final int steps = (int) Math.min(1L + delta, timerWheel.length);
+        final int start = (int) (previousTicks & mask);
+        int expired = 0;
+
+        for(int i = start; i < start + steps; ++i) {
+            final Sentinel sentinel = timerWheel[i & mask];
+            TimedNode node = sentinel.nextInTimer;
+            sentinel.prevInTimer = sentinel;
+            sentinel.nextInTimer = sentinel;
+
+            while(node != sentinel) {
+                final TimedNode next = node.nextInTimer;
+                node.prevInTimer = null;
+                node.nextInTimer = null;
+
+                if(node.deadline > time) {
+                    link(findBucket(node.deadline), node);
+                }
+                else if(expired >= budget) {
+                    link(overdue, node);
+                }
+                else if(expirer.expire(node)) {
+                    ++expired;
+                }
+                else {
+                    link(findBucket(node.deadline), node);
+                }
+
+                node = next;
+            }
+        }
+
+        return expired;
+    }
+
+    private int drainOverdue(final int budget, final Expirer expirer) {
+        int expired = 0;
+        while(expired < budget && hasOverdue()) {
+            final TimedNode node = overdue.nextInTimer;
+            unlink(node);
+            if(expirer.expire(node)) {
+                ++expired;
+            }
+            else {
+                link(findBucket(node.deadline), node);
+            }
+        }
+
+        return expired;
+    }
+
+    private Sentinel findBucket(final long deadline) {
+        final long duration = deadline - time;
+        final int length = wheel.length - 1;
+        for(int i = 0; i < length; ++i) {
+            if(duration < SPANS[i + 1]) {
+                final long ticks = Math.max(deadline, time) >>> SHIFT[i];
+                final int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+
+        return wheel[length][0];
+    }
+
+    private static void link(final Sentinel sentinel, final TimedNode node) {
+        node.prevInTimer = sentinel.prevInTimer;
+        node.nextInTimer = sentinel;
+        sentinel.prevInTimer.nextInTimer = node;
+        sentinel.prevInTimer = node;
+    }
+
+    private static void unlink(final TimedNode node) {
+        node.prevInTimer.nextInTimer = node.nextInTimer;
+        node.nextInTimer.prevInTimer = node.prevInTimer;
+        node.prevInTimer = null;
+        node.nextInTimer = null;
+    }
+
+    private static final class Sentinel extends TimedNode {
+        Sentinel() {
+            prevInTimer = this;
+            nextInTimer = this;
+        }
+
+        public void accessed() { }
+
+        public int getAccessed() {
+            return -1;
+        }
+
+        public Expired expired(final Expires expires, final TimeUnits timeUnits, final long asOf) {
+            return Expired.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codecs;
+import io.github.guggle.api.Invalidation;
+import io.github.guggle.api.InvalidationBus;
+import io.github.guggle.utils.NamedThread;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//Sends each batch as datagrams to a fixed list of peers and listens on its own
+//port for theirs. Fire and forget, a lost datagram leaves the entries to expire
+//on their ttl like they would without a bus, and a peer that can't be sent to is
+//counted and skipped rather than holding up the rest. Invalidations are grouped by method
+//so a signature goes out once per datagram:
+//
+//  int magic, long sender, short groups,
+//  per group: string signature, short count, per key: byte removed, short length, key bytes
+public final class UdpInvalidationBus implements InvalidationBus {
+
+    //stays under the usual MTU so datagrams aren't fragmented
+    public static final int MAX_DATAGRAM = 1_400;
+    private static final int MAGIC = 0x47474942;
+    private static final int HEADER = 4 + 8 + 2;
+
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final long sender = ThreadLocalRandom.current().nextLong();
+    private final List<Consumer<List<Invalidation>>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong failedSends = new AtomicLong();
+    private final Thread receiver;
+    private volatile boolean closed;
+
+    public UdpInvalidationBus(final InetSocketAddress bind, final List<InetSocketAddress> peers) {
+        try {
+            this.channel = DatagramChannel.open().bind(bind);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.peers = new CopyOnWriteArrayList<>(peers);
+        this.receiver = new NamedThread("Cache Invalidations", true).newThread(this::receive);
+        this.receiver.start();
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void addPeer(final InetSocketAddress val) {
+        peers.add(val);
+    }
+
+    public void publish(final List<Invalidation> batch) {
+        for(ByteBuffer datagram : encode(batch)) {
+            for(InetSocketAddress peer : peers) {
+                try {
+                    channel.send(datagram.duplicate(), peer);
+                }
+                catch(IOException | UnresolvedAddressException e) {
+                    failedSends.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    //datagrams that never left for their peer, since the bus was opened
+    public long getFailedSends() {
+        return failedSends.get();
+    }
+
+    public void subscribe(final Consumer<List<Invalidation>> listener) {
+        listeners.add(listener);
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        }
+        catch(IOException e) {
+            //closing anyway
+        }
+    }
+
+    List<ByteBuffer> encode(final List<Invalidation> batch) {
+        final Map<String,List<Invalidation>> groups = new LinkedHashMap<>();
+        for(Invalidation i : batch) {
+            groups.computeIfAbsent(i.getSignature(), (s) -> new ArrayList<>()).add(i);
+        }
+
+        final List<ByteBuffer> ret = new ArrayList<>();
+        ByteBuffer buf = null;
+        for(Map.Entry<String,List<Invalidation>> e : groups.entrySet()) {
+            final String signature = e.getKey();
+            final int groupHeader = Codecs.sizeOfString(signature) + 2;
+            int countAt = -1;
+            short count = 0;
+            for(Invalidation i : e.getValue()) {
+                final int entry = 1 + 2 + i.getKey().length;
+                if(HEADER + groupHeader + entry > MAX_DATAGRAM) {
+                    //a key too big for any datagram, nodes fall back on its ttl
+                    continue;
+                }
+
+                if(buf == null || buf.remaining() < entry + ((countAt < 0) ? groupHeader : 0)) {
+                    if(buf != null) {
+                        finish(buf, countAt, count, ret);
+                    }
+
+                    buf = ByteBuffer.allocate(MAX_DATAGRAM);
+                    buf.putInt(MAGIC).putLong(sender).putShort((short) 0);
+                    countAt = -1;
+                }
+
+                if(countAt < 0) {
+                    buf.putShort(12, (short) (buf.getShort(12) + 1));
+                    Codecs.putString(buf, signature);
+                    countAt = buf.position();
+                    count = 0;
+                    buf.putShort((short) 0);
+                }
+
+                buf.put(i.isRemoved() ? (byte) 1 : (byte) 0);
+                buf.putShort((short) i.getKey().length);
+                buf.put(i.getKey());
+                ++count;
+            }
+
+            if(buf != null && countAt >= 0) {
+                buf.putShort(countAt, count);
+            }
+        }
+
+        if(buf != null) {
+            finish(buf, -1, (short) 0, ret);
+        }
+
+        return ret;
+    }
+
+    private static void finish(final ByteBuffer buf, final int countAt, final short count, final List<ByteBuffer> into) {
+        if(countAt >= 0) {
+            buf.putShort(countAt, count);
+        }
+
+        buf.flip();
+        into.add(buf);
+    }
+
+    //returns null for anything that isn't one of ours from another node
+    List<Invalidation> decode(final ByteBuffer buf) {
+        try {
+            if(buf.getInt() != MAGIC || buf.getLong() == sender) {
+                return null;
+            }
+
+            final List<Invalidation> ret = new ArrayList<>();
+            final int groups = buf.getShort();
+            for(int g = 0; g < groups; ++g) {
+                final String signature = Codecs.getString(buf);
+                final int count = buf.getShort();
+                for(int i = 0; i < count; ++i) {
+                    final boolean removed = buf.get() != 0;
+                    final byte[] key = new byte[buf.getShort() & 0xFFFF];
+                    buf.get(key);
+                    ret.add(new Invalidation(signature, key, removed));
+                }
+            }
+
+            return ret;
+        }
+        catch(BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void receive() {
+        final ByteBuffer buf = ByteBuffer.allocate(MAX_DATAGRAM);
+        while(!closed) {
+            try {
+                buf.clear();
+                channel.receive(buf);
+                buf.flip();
+            }
+            catch(ClosedChannelException e) {
+                return;
+            }
+            catch(IOException e) {
+                continue;
+            }
+
+            final List<Invalidation> batch = decode(buf);
+            if(batch == null || batch.isEmpty()) {
+                continue;
+            }
+
+            final List<Invalidation> delivered = Collections.unmodifiableList(batch);
+            for(Consumer<List<Invalidation>> listener : listeners) {
+                try {
+                    listener.accept(delivered);
+                }
+                catch(RuntimeException e) {
+                    //one bad batch mustn't stop the receiver
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.utils.TimeUnits;
+import io.github.guggle.api.Expires;
+import io.github.guggle.api.Expiry;
+
+//Deadlines worked out per entry by the view's Expiry, both in seconds since AllCaches.EPOCH.
+//The write deadline is set when the entry is stored, the idle one then and again on reads,
+//whichever comes first is the entry's deadline.
+public class VariableExpiration extends TimedNode {
+
+    static final int NONE = Integer.MAX_VALUE;
+
+    private final int written;
+    private volatile int writeDeadline = NONE;
+    private volatile int idleDeadline = NONE;
+    //the last second reads moved the idle deadline
+    private volatile int read;
+
+    protected VariableExpiration(final int written) {
+        this.written = written;
+        this.read = written;
+    }
+
+    //when the entry was written, so it keeps its age through persistence
+    public int getAccessed() {
+        return written;
+    }
+
+    //reads go through read() instead, they need the view's Expiry
+    public void accessed() { }
+
+    public Expired expired(final Expires expires, final TimeUnits timeUnits, final long asOf) {
+        if(expires != Expires.VARIABLE) {
+            return Expired.UNKNOWN;
+        }
+
+        return (deadline() < asOf) ? Expired.TRUE : Expired.FALSE;
+    }
+
+    //milliseconds since AllCaches.EPOCH
+    long deadline() {
+        final int ret = Math.min(writeDeadline, idleDeadline);
+        return (ret == NONE) ? Long.MAX_VALUE : 1_000L * ret;
+    }
+
+    int getRead() {
+        return read;
+    }
+
+    long remaining(final long now) {
+        final int w = writeDeadline;
+        return (w == NONE) ? Expiry.NEVER : Math.max(0L, 1_000L * w - now);
+    }
+
+    void written(final long asOf, final long afterWrite, final long afterRead) {
+        writeDeadline = seconds(asOf, afterWrite);
+        idleDeadline = seconds(asOf, afterRead);
+    }
+
+    void read(final long now, final long afterRead) {
+        read = (int) (now / 1_000L);
+        idleDeadline = seconds(now, afterRead);
+    }
+
+    //rounded up, so an entry never goes before its time
+    static int seconds(final long asOf, final long after) {
+        if(after >= Expiry.NEVER - asOf) {
+            return NONE;
+        }
+
+        final long ret = (asOf + Math.max(after, 0L) + 999L) / 1_000L;
+        return (ret >= NONE) ? NONE : (int) ret;
+    }
+
+    public static class ForInt extends VariableExpiration implements IntHolder {
+
+        private final int value;
+
+        public ForInt(final int value) {
+            this(value, AllCaches.sinceEpoch());
+        }
+
+        public ForInt(final int value, final int written) {
+            super(written);
+            this.value = value;
+        }
+
+        public int value() {
+            return value;
+        }
+    }
+
+    public static class ForLong extends VariableExpiration implements LongHolder {
+
+        private final long value;
+
+        public ForLong(final long value) {
+            this(value, AllCaches.sinceEpoch());
+        }
+
+        public ForLong(final long value, final int written) {
+            super(written);
+            this.value = value;
+        }
+
+        public long value() {
+            return value;
+        }
+    }
+
+    public static class ForDouble extends VariableExpiration implements DoubleHolder {
+
+        private final double value;
+
+        public ForDouble(final double value) {
+            this(value, AllCaches.sinceEpoch());
+        }
+
+        public ForDouble(final double value, final int written) {
+            super(written);
+            this.value = value;
+        }
+
+        public double value() {
+            return value;
+        }
+    }
+
+    public static class ForObject extends VariableExpiration implements ObjectHolder {
+
+        private final Object value;
+
+        public ForObject(final Object value) {
+            this(value, AllCaches.sinceEpoch());
+        }
+
+        public ForObject(final Object value, final int written) {
+            super(written);
+            this.value = value;
+        }
+
+        public Object value() {
+            return value;
+        }
+    }
+}
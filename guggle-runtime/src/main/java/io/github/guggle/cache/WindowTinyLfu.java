@@ -0,0 +1,238 @@
+package io.github.guggle.cache;
+
+import java.util.function.Consumer;
+
+//Window TinyLFU: a small LRU window admits new arrivals, a frequency sketch
+//decides whether they beat the probation victim to enter the segmented main LRU.
+//Sizes are the sum of the nodes' weights, which is their count unless the view is
+//bounded by weight. Not thread safe, every call is made while holding the view's eviction lock.
+final class WindowTinyLfu {
+
+    private static final double WINDOW_PERCENT = 0.01d;
+    private static final double PROTECTED_PERCENT = 0.80d;
+
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final boolean weighted;
+
+    private long maximum;
+    private long windowMaximum;
+    private long protectedMaximum;
+
+    private long size;
+    private long windowSize;
+    private long protectedSize;
+    private long entries;
+
+    public WindowTinyLfu(final long maximum) {
+        this(maximum, false);
+    }
+
+    public WindowTinyLfu(final long maximum, final boolean weighted) {
+        this.weighted = weighted;
+        setMaximum(maximum);
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    //the total weight when weighted
+    public long size() {
+        return size;
+    }
+
+    public long entries() {
+        return entries;
+    }
+
+    public void setMaximum(final long val) {
+        maximum = Math.max(val, 0L);
+        windowMaximum = Math.max(1L, (long) (maximum * WINDOW_PERCENT));
+        protectedMaximum = (long) (PROTECTED_PERCENT * (maximum - windowMaximum));
+        //a weight says nothing about how many entries there will be, the sketch grows with them instead
+        sketch.ensureCapacity(weighted ? entries : maximum);
+    }
+
+    public void onAdd(final Node node) {
+        if(node.queue == Node.DEAD) {
+            return;
+        }
+        
+        if(node.queue != Node.NONE) {
+            onAccess(node);
+            return;
+        }
+
+        if(weighted) {
+            sketch.ensureCapacity(entries + 1L);
+        }
+
+        sketch.increment(node.key.hashCode());
+        node.queue = Node.WINDOW;
+        window.addLast(node);
+        windowSize += node.weight;
+        size += node.weight;
+        ++entries;
+    }
+
+    public void onReplace(final Node existing, final Node node) {
+        if(existing.queue == Node.NONE || existing.queue == Node.DEAD || node.queue != Node.NONE) {
+            onRemove(existing);
+            onAdd(node);
+            return;
+        }
+
+        sketch.increment(node.key.hashCode());
+        deque(existing.queue).replace(existing, node);
+        node.queue = existing.queue;
+        existing.queue = Node.DEAD;
+
+        final long delta = (long) node.weight - existing.weight;
+        size += delta;
+        if(node.queue == Node.WINDOW) {
+            windowSize += delta;
+        }
+        else if(node.queue == Node.PROTECTED) {
+            protectedSize += delta;
+            demoteFromProtected();
+        }
+    }
+
+    public void onAccess(final Node node) {
+        switch(node.queue) {
+        case Node.WINDOW:
+            sketch.increment(node.key.hashCode());
+            window.moveToBack(node);
+            break;
+        case Node.PROBATION:
+            sketch.increment(node.key.hashCode());
+            probation.remove(node);
+            protectedDeque.addLast(node);
+            node.queue = Node.PROTECTED;
+            protectedSize += node.weight;
+            demoteFromProtected();
+            break;
+        case Node.PROTECTED:
+            sketch.increment(node.key.hashCode());
+            protectedDeque.moveToBack(node);
+            break;
+        default:
+            //already evicted or removed, nothing to reorder
+            break;
+        }
+    }
+
+    public void onRemove(final Node node) {
+        switch(node.queue) {
+        case Node.WINDOW:
+            window.remove(node);
+            windowSize -= node.weight;
+            break;
+        case Node.PROBATION:
+            probation.remove(node);
+            break;
+        case Node.PROTECTED:
+            protectedDeque.remove(node);
+            protectedSize -= node.weight;
+            break;
+        default:
+            //removed before it was ever added, make sure a late add is ignored
+            node.queue = Node.DEAD;
+            return;
+        }
+
+        node.queue = Node.DEAD;
+        size -= node.weight;
+        --entries;
+    }
+
+    public void evict(final Consumer<Node> evictor) {
+        final Node candidates = evictFromWindow();
+        evictFromMain(candidates, evictor);
+    }
+
+    private AccessOrderDeque deque(final byte queue) {
+        switch(queue) {
+        case Node.WINDOW: return window;
+        case Node.PROBATION: return probation;
+        case Node.PROTECTED: return protectedDeque;
+        default:
+            throw new IllegalArgumentException("Node is not in a queue: " + queue);
+        }
+    }
+
+    private void demoteFromProtected() {
+        while(protectedSize > protectedMaximum) {
+            final Node demoted = protectedDeque.peekFirst();
+            protectedDeque.remove(demoted);
+            probation.addLast(demoted);
+            demoted.queue = Node.PROBATION;
+            protectedSize -= demoted.weight;
+        }
+    }
+
+    //returns the first node moved into probation, everything after it is a candidate
+    private Node evictFromWindow() {
+        Node first = null;
+        while(windowSize > windowMaximum) {
+            final Node node = window.peekFirst();
+            window.remove(node);
+            probation.addLast(node);
+            node.queue = Node.PROBATION;
+            windowSize -= node.weight;
+
+            if(first == null) {
+                first = node;
+            }
+        }
+
+        return first;
+    }
+
+    private void evictFromMain(Node candidate, final Consumer<Node> evictor) {
+        while(size > maximum) {
+            Node victim = probation.peekFirst();
+            if(victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+
+            if(victim == null) {
+                victim = window.peekFirst();
+            }
+
+            if(candidate == null || victim == candidate || victim.queue != Node.PROBATION) {
+                if(victim == candidate) {
+                    candidate = candidate.nextInAccess;
+                }
+
+                evict(victim, evictor);
+            }
+            else if(admit(candidate, victim)) {
+                evict(victim, evictor);
+            }
+            else {
+                final Node next = candidate.nextInAccess;
+                evict(candidate, evictor);
+                candidate = next;
+            }
+        }
+    }
+
+    //an entry heavier than the whole view is turned away rather than emptying it
+    private boolean admit(final Node candidate, final Node victim) {
+        return candidate.weight <= maximum &&
+            sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode());
+    }
+
+    private void evict(final Node node, final Consumer<Node> evictor) {
+        onRemove(node);
+        evictor.accept(node);
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Holds the values put into a view until they are written out. A key put again
+//before its flush just replaces the pending value, so a hot key costs one write
+//per flush however often it changes. A flush starts once batchSize keys are
+//pending or delay after the first of them, whichever comes first, and runs on
+//the writer pool one batch after another so writes to a key stay in order.
+//A failed background flush is retried with the delay doubling each time, a batch
+//still failing after MAX_ATTEMPTS is handed to the writer's dropped hook.
+final class WriteBehind {
+
+    private static final Object NULL = new Object();
+    static final int MAX_ATTEMPTS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 60_000L;
+
+    private final CacheWriter<Object,Object> writer;
+    private final int batchSize;
+    private final long delayMillis;
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final ConcurrentMap<Object,Object> pending = new ConcurrentHashMap<>(64, 0.75f, 4);
+    private final AtomicBoolean submitted = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    //background flushes failed in a row, only touched under the flush lock
+    private volatile int failures;
+
+    @SuppressWarnings("unchecked")
+    WriteBehind(final CacheWriter<?,?> writer, final int batchSize, final long delayMillis,
+                final Executor executor, final ScheduledExecutorService timer) {
+        this.writer = (CacheWriter<Object,Object>) writer;
+        this.batchSize = Math.max(1, batchSize);
+        this.delayMillis = Math.max(1L, delayMillis);
+        this.executor = executor;
+        this.timer = timer;
+    }
+
+    int pending() {
+        return pending.size();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    void add(final Object key, final Object value) {
+        if(pending.put(key, (value == null) ? NULL : value) != null) {
+            return;
+        }
+
+        if(pending.size() >= batchSize) {
+            submit();
+        }
+        else if(scheduled.compareAndSet(false, true)) {
+            try {
+                timer.schedule(() -> {
+                        scheduled.set(false);
+                        submit();
+                    }, delayMillis, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException e) {
+                scheduled.set(false);
+                submit();
+            }
+        }
+    }
+
+    private void submit() {
+        if(submitted.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                    submitted.set(false);
+                    try {
+                        drain(true);
+                    }
+                    catch(RuntimeException e) {
+                        //the failed batch is pending again and goes out with the next flush
+                        retry();
+                    }
+                });
+        }
+    }
+
+    private void retry() {
+        if(!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+            final long backoff = Math.min(delayMillis << Math.min(Math.max(failures - 1, 0), 16),
+                                          Math.max(delayMillis, MAX_BACKOFF_MILLIS));
+            try {
+                timer.schedule(() -> {
+                        scheduled.set(false);
+                        submit();
+                    }, backoff, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException e) {
+                //the timer is gone, what is pending waits for an explicit flush
+                scheduled.set(false);
+            }
+        }
+    }
+
+    //writes out everything pending, a failed batch is put back unless the key was put again
+    synchronized void flush() {
+        drain(false);
+    }
+
+    //only background flushes count attempts, an explicit flush leaves the failure to its caller
+    private synchronized void drain(final boolean background) {
+        while(!pending.isEmpty()) {
+            final Map<Object,Object> batch = new LinkedHashMap<>();
+            final Iterator<Object> keys = pending.keySet().iterator();
+            while(keys.hasNext() && batch.size() < batchSize) {
+                final Object key = keys.next();
+                final Object value = pending.remove(key);
+                if(value != null) {
+                    batch.put(key, (value == NULL) ? null : value);
+                }
+            }
+
+            try {
+                if(batch.size() == 1) {
+                    final Map.Entry<Object,Object> e = batch.entrySet().iterator().next();
+                    writer.write(e.getKey(), e.getValue());
+                }
+                else if(!batch.isEmpty()) {
+                    writer.writeAll(batch);
+                }
+
+                failures = 0;
+            }
+            catch(RuntimeException e) {
+                if(background && ++failures >= MAX_ATTEMPTS) {
+                    failures = 0;
+                    drop(batch, e);
+                    continue;
+                }
+
+                batch.forEach((k, v) -> pending.putIfAbsent(k, (v == null) ? NULL : v));
+                throw e;
+            }
+        }
+    }
+
+    private void drop(final Map<Object,Object> batch, final RuntimeException cause) {
+        dropped.addAndGet(batch.size());
+        try {
+            writer.dropped(batch, cause);
+        }
+        catch(RuntimeException e) {
+            //a failing hook mustn't stall the writes behind it
+        }
+    }
+}
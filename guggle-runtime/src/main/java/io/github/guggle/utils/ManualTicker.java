@@ -0,0 +1,33 @@
+package io.github.guggle.utils;
+
+import java.util.concurrent.TimeUnit;
+
+//Only moves when told to, for deterministic tests of expiration.
+public class ManualTicker implements Ticker {
+
+    private volatile long millis;
+
+    public ManualTicker() {
+        this(System.currentTimeMillis());
+    }
+    
+    public ManualTicker(final long millis) {
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    public void set(final long val) {
+        this.millis = val;
+    }
+
+    public synchronized void advance(final long interval, final TimeUnit units) {
+        this.millis = millis + units.toMillis(interval);
+    }
+
+    public void advance(final TimeUnits val) {
+        advance(val.getInterval(), val.getTimeUnit());
+    }
+}
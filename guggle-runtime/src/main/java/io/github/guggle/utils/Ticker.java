@@ -0,0 +1,9 @@
+package io.github.guggle.utils;
+
+//Source of wall clock milliseconds for everything time based in the caches.
+public interface Ticker {
+
+    long millis();
+
+    public static final Ticker SYSTEM = System::currentTimeMillis;
+}
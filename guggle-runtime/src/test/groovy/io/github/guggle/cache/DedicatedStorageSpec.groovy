@@ -0,0 +1,97 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import spock.lang.*;
+
+class DedicatedStorageSpec extends Specification {
+
+    static class LeftKey implements Permanent<LeftKey> {
+        final int id;
+
+        LeftKey(final int id) {
+            this.id = id;
+        }
+
+        LeftKey permanent() {
+            return this;
+        }
+
+        int hashCode() {
+            return id;
+        }
+
+        boolean equals(final Object o) {
+            return o instanceof LeftKey && o.id == id;
+        }
+    }
+
+    static class RightKey implements Permanent<RightKey> {
+        final int id;
+
+        RightKey(final int id) {
+            this.id = id;
+        }
+
+        RightKey permanent() {
+            return this;
+        }
+
+        int hashCode() {
+            return id;
+        }
+
+        boolean equals(final Object o) {
+            return o instanceof RightKey && o.id == id;
+        }
+    }
+
+    @Unroll
+    def 'size and clear only count their own view with #storage storage'() {
+        setup:
+        def registry = AllCaches.instance();
+        def calls = new AtomicInteger();
+        def lifetime = Lifetime.builder().storage(storage).build();
+        def left = registry.intView(LeftKey, new MethodId(LeftKey, "left${storage}".toString(), [int]),
+                                    { LeftKey k -> calls.incrementAndGet(); k.id } as ToIntFunction, lifetime);
+        def right = registry.intView(RightKey, new MethodId(RightKey, "right${storage}".toString(), [int]),
+                                     { RightKey k -> calls.incrementAndGet(); k.id } as ToIntFunction, lifetime);
+        (0..<100).each { left.value(new LeftKey(it)); }
+        (0..<40).each { right.value(new RightKey(it)); }
+
+        expect:
+        left.backing.is(right.backing) == shared;
+        left.dedicated == !shared;
+        left.size() == 100L;
+        right.size() == 40L;
+        left.keys().count() == 100L;
+
+        when:
+        left.clear();
+
+        then:
+        left.size() == 0L;
+        left.keys().count() == 0L;
+        right.size() == 40L;
+        right.keys().count() == 40L;
+
+        when:
+        def before = calls.get();
+        left.value(new LeftKey(1));
+        right.value(new RightKey(1));
+
+        then:
+        calls.get() == before + 1;
+        left.size() == 1L;
+
+        cleanup:
+        left.clear();
+        right.clear();
+
+        where:
+        storage           | shared
+        Storage.SHARED    | true
+        Storage.DEDICATED | false
+    }
+}
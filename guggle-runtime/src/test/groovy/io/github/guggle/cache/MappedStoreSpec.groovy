@@ -0,0 +1,82 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codecs;
+import java.nio.file.Files;
+import spock.lang.*;
+
+class MappedStoreSpec extends Specification {
+
+    def 'entries survive rolling, compaction and reopening'() {
+        setup:
+        def dir = Files.createTempDirectory('guggle-store');
+        def store = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+        (0..<500).each { store.write("k${it}".toString(), 1_000L + it, "value-${it}".toString()); }
+        (0..<500).step(2) { store.remove("k${it}".toString()); }
+        (1..<500).step(2) { store.write("k${it}".toString(), 5_000L + it, "again-${it}".toString()); }
+        store.close();
+
+        when:
+        def reopened = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+
+        then:
+        reopened.size() == 250;
+        reopened.read('k2') == null;
+        reopened.read('k499').value == 'again-499';
+        reopened.read('k499').written == 5_499L;
+
+        cleanup:
+        reopened?.close();
+    }
+
+    def 'a torn record at the tail is ignored'() {
+        setup:
+        def dir = Files.createTempDirectory('guggle-store');
+        def store = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+        store.write('a', 1L, 'first');
+        store.write('b', 2L, 'second');
+        store.close();
+        def segment = Files.list(dir).sorted().toArray()[-1];
+        def bytes = Files.readAllBytes(segment);
+        //flip a byte in the value of the last record so its checksum no longer matches
+        def last = bytes.length - 1;
+        while(bytes[last] == 0) { --last; }
+        bytes[last] ^= 0x55;
+        Files.write(segment, bytes);
+
+        when:
+        def reopened = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+        reopened.write('c', 3L, 'third');
+
+        then:
+        reopened.read('a').value == 'first';
+        reopened.read('b') == null;
+        reopened.read('c').value == 'third';
+
+        cleanup:
+        reopened?.close();
+    }
+
+    def 'every write lands even when compaction leaves the tail nearly full'() {
+        setup:
+        def dir = Files.createTempDirectory('guggle-store');
+        def store = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+        def random = new Random(7);
+        def latest = [:];
+
+        when:
+        def failed = (0..<3_000).findAll {
+            def key = "k${random.nextInt(40)}".toString();
+            latest[key] = ('v' * (1 + random.nextInt(300))) + it;
+            !store.write(key, 1_000L + it, latest[key]);
+        };
+        store.close();
+        def reopened = new MappedStore(dir, 4096, Codecs.of(String), Codecs.of(String));
+
+        then:
+        failed.isEmpty();
+        latest.every { k, v -> reopened.read(k).value == v };
+
+        cleanup:
+        reopened?.close();
+    }
+}
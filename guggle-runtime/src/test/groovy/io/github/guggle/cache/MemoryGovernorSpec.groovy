@@ -0,0 +1,88 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.*;
+import java.util.function.Function;
+import spock.lang.*;
+
+class MemoryGovernorSpec extends Specification {
+
+    static class GovernedKey implements Permanent<GovernedKey> {
+        final int id;
+
+        GovernedKey(final int id) {
+            this.id = id;
+        }
+
+        GovernedKey permanent() {
+            return this;
+        }
+
+        int hashCode() {
+            return id;
+        }
+
+        boolean equals(final Object o) {
+            return o instanceof GovernedKey && o.id == id;
+        }
+    }
+
+    static def view(final String name, final int priority) {
+        def registry = AllCaches.instance();
+        def methodId = new MethodId(GovernedKey, name, [int]);
+        registry.priority(methodId, priority);
+        def ret = registry.objectView(GovernedKey, methodId, { GovernedKey k -> "value-${k.id}".toString() } as Function,
+                                      Lifetime.builder().maxSize(1_000).storage(Storage.DEDICATED).build(), String);
+        (0..<1_000).each { ret.value(new GovernedKey(it)); }
+        return ret;
+    }
+
+    def 'occupancy is reported as a fraction of the old generation'() {
+        setup:
+        def reported = [];
+        def governor = new MemoryGovernor(0.9d, { it.run() }, { reported << it });
+
+        when:
+        System.gc();
+        governor.report();
+
+        then:
+        !reported.isEmpty();
+        reported.every { it >= 0d && it <= 1d };
+
+        cleanup:
+        governor.close();
+    }
+
+    def 'the lowest priority gives up memory first and the highest gets it back first'() {
+        setup:
+        def registry = AllCaches.instance();
+        def low = view('governedLow', -1);
+        def high = view('governedHigh', 1);
+        registry.setMemoryThreshold(0.8d);
+
+        when:
+        registry.govern(0.9d);
+
+        then:
+        low.size() == 750;
+        high.size() == 1_000;
+
+        when:
+        20.times { registry.govern(0.9d); }
+
+        then:
+        low.size() == 100;
+        high.size() == 100;
+
+        when:
+        registry.govern(0.75d);
+        registry.govern(0.5d);
+
+        then:
+        low.scale == 0.1d;
+        high.scale > 0.1d;
+
+        cleanup:
+        registry.setMemoryThreshold(null);
+    }
+}
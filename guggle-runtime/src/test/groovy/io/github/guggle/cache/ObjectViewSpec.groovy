@@ -0,0 +1,271 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.*;
+import io.github.guggle.utils.ManualTicker;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import spock.lang.*;
+import spock.util.concurrent.PollingConditions;
+
+class ObjectViewSpec extends Specification {
+
+    //reused between calls like the searchers generated for @Cache methods
+    static class SearchKey implements Permanent<SearchKey>, Serializable {
+        int id;
+
+        SearchKey(final int id) {
+            this.id = id;
+        }
+
+        SearchKey permanent() {
+            return new SearchKey(id);
+        }
+
+        int hashCode() {
+            return id;
+        }
+
+        boolean equals(final Object o) {
+            return o instanceof SearchKey && o.id == id;
+        }
+    }
+
+    def previous = CacheRegistry.instance().getTicker();
+    def ticker = new ManualTicker(System.currentTimeMillis());
+
+    def setup() {
+        CacheRegistry.instance().setTicker(ticker);
+    }
+
+    def cleanup() {
+        CacheRegistry.instance().setTicker(previous);
+    }
+
+    //every view here shares the key class, so none of them can use the shared backing
+    static def view(final String name, final Lifetime lifetime, final Function<SearchKey,String> function) {
+        def own = (lifetime.storage == null) ? lifetime.toBuilder().storage(Storage.DEDICATED).build() : lifetime;
+        return AllCaches.instance().objectView(SearchKey, new MethodId(SearchKey, name, [int]), function, own, String);
+    }
+
+    def 'a searcher reused while its load runs in the background'() {
+        setup:
+        def latch = new CountDownLatch(1);
+        def view = view('searched', Lifetime.builder().build(), { SearchKey k -> latch.await(); "v${k.id}".toString() });
+        def searcher = new SearchKey(1);
+
+        when:
+        def future = view.valueAsync(searcher);
+        searcher.id = 2;
+        latch.countDown();
+
+        then:
+        future.get(5, TimeUnit.SECONDS) == 'v1';
+        view.get(new SearchKey(1)) == 'v1';
+        view.get(new SearchKey(2)) == null;
+    }
+
+    def 'a stale read reloads its own key while the searcher moves on'() {
+        setup:
+        def gate = new CountDownLatch(0);
+        def calls = new AtomicInteger();
+        def lifetime = Lifetime.builder().expires(Expires.FIXED).refresh(Refresh.ON_DEMAND)
+            .units(10L, TimeUnit.SECONDS).maxStale(5L, TimeUnit.SECONDS).build();
+        def view = view('staleSearched', lifetime, { SearchKey k -> gate.await(); "v${k.id}-${calls.incrementAndGet()}".toString() });
+        def conditions = new PollingConditions(timeout: 5);
+        def searcher = new SearchKey(1);
+        view.value(searcher);
+
+        when:
+        gate = new CountDownLatch(1);
+        ticker.advance(12L, TimeUnit.SECONDS);
+        def served = view.value(searcher);
+        searcher.id = 2;
+        gate.countDown();
+
+        then:
+        served == 'v1-1';
+        conditions.eventually {
+            assert view.values().collect(Collectors.toList()) == ['v1-2'];
+        }
+    }
+
+    def 'an early refresh reloads its own key while the searcher moves on'() {
+        setup:
+        def gate = new CountDownLatch(0);
+        def calls = new AtomicInteger();
+        //the chance of reloading early is near certain with such a large beta
+        def lifetime = Lifetime.builder().expires(Expires.FIXED).units(10L, TimeUnit.SECONDS).earlyRefresh(1_000_000.0d).build();
+        def view = view('earlySearched', lifetime, { SearchKey k -> gate.await(); "v${k.id}-${calls.incrementAndGet()}".toString() });
+        def conditions = new PollingConditions(timeout: 5);
+        def searcher = new SearchKey(1);
+        view.value(searcher);
+
+        when:
+        gate = new CountDownLatch(1);
+        def served = view.value(searcher);
+        searcher.id = 2;
+        gate.countDown();
+
+        then:
+        served == 'v1-1';
+        conditions.eventually {
+            assert view.values().collect(Collectors.toList()) == ['v1-2'];
+        }
+    }
+
+    def 'a value overwritten within the same second is the one on disk'() {
+        setup:
+        def registry = AllCaches.instance();
+        def directory = registry.persistentDirectory;
+        registry.persistentDirectory = Files.createTempDirectory('guggle-persisted');
+        def view = view('persisted', Lifetime.builder().storage(Storage.PERSISTENT).build(), { SearchKey k -> 'loaded' });
+        def key = new SearchKey(1);
+
+        when:
+        //the ticker stands still, both writes land in the same second
+        view.put(key, 'A');
+        view.put(key, 'B');
+        view.persistent.close();
+        def reopened = new MappedStore(registry.persistentDirectory.resolve(MappedStore.directoryName(view.methodId)),
+                                       MappedStore.SEGMENT_BYTES, Codecs.of(SearchKey), view.valueCodec());
+
+        then:
+        view.get(key) == 'B';
+        reopened.read(key).value == 'B';
+
+        cleanup:
+        reopened?.close();
+        registry.persistentDirectory = directory;
+    }
+
+    def 'a bulk read batch loads its misses and falls back for what the batch left out'() {
+        setup:
+        def calls = new AtomicInteger();
+        def batches = [];
+        def view = view('bulk', Lifetime.builder().build(), { SearchKey k -> calls.incrementAndGet(); "v${k.id}".toString() });
+        view.batchLoader { keys -> batches << keys*.id; keys.findAll { it.id != 3 }.collectEntries { [(it): "b${it.id}".toString()] } };
+        view.value(new SearchKey(1));
+
+        when:
+        def values = view.values([1, 2, 3, 2].collect { new SearchKey(it) });
+
+        then:
+        values.collectEntries { k, v -> [(k.id): v] } == [1: 'v1', 2: 'b2', 3: 'v3'];
+        batches == [[2, 3]];
+        calls.get() == 2;
+
+        when:
+        view.values([2, 3].collect { new SearchKey(it) });
+
+        then:
+        batches.size() == 1;
+        calls.get() == 2;
+    }
+
+    def 'a failing key in a bulk read leaves the others loaded'() {
+        setup:
+        def view = view('bulkFailing', Lifetime.builder().build(), { SearchKey k -> throw new IllegalStateException("${k.id}".toString()); });
+        view.batchLoader { keys -> keys.findAll { it.id != 2 }.collectEntries { [(it): "b${it.id}".toString()] } };
+
+        when:
+        view.values([1, 2, 3].collect { new SearchKey(it) });
+
+        then:
+        def failure = thrown(IllegalStateException);
+        failure.message == '2';
+        view.get(new SearchKey(1)) == 'b1';
+        view.get(new SearchKey(3)) == 'b3';
+    }
+
+    def 'a failed batch is remembered like any other failed load'() {
+        setup:
+        def batches = new AtomicInteger();
+        def view = view('bulkRemembered', Lifetime.builder().failureTtl(10L, TimeUnit.SECONDS).build(), { SearchKey k -> "v${k.id}".toString() });
+        view.batchLoader { keys -> batches.incrementAndGet(); throw new IllegalStateException(); };
+
+        when:
+        view.values([new SearchKey(1)]);
+
+        then:
+        def first = thrown(IllegalStateException);
+
+        when:
+        view.values([new SearchKey(1)]);
+
+        then:
+        def second = thrown(IllegalStateException);
+        second.is(first);
+        batches.get() == 1;
+    }
+
+    def 'concurrent misses on one key share a single load'() {
+        setup:
+        def latch = new CountDownLatch(1);
+        def calls = new AtomicInteger();
+        def view = view('deduplicated', Lifetime.builder().build(), { SearchKey k -> latch.await(); calls.incrementAndGet(); "v${k.id}".toString() });
+
+        when:
+        def first = view.valueAsync(new SearchKey(1));
+        def second = view.valueAsync(new SearchKey(1));
+        def thread = Thread.start { view.value(new SearchKey(1)); };
+        latch.countDown();
+        thread.join();
+
+        then:
+        first.get(5, TimeUnit.SECONDS) == 'v1';
+        second.get(5, TimeUnit.SECONDS) == 'v1';
+        calls.get() == 1;
+    }
+
+    def 'values demoted off heap are still read, listed and counted'() {
+        setup:
+        def lifetime = Lifetime.builder().storage(Storage.TIERED).maxSize(10).offHeapBytes(1L << 20).build();
+        def view = view('tiered', lifetime, { SearchKey k -> "v${k.id}".toString() });
+        (0..<100).each { view.value(new SearchKey(it)); }
+        def demoted = view.keys().filter { !view.backing.containsKey(it) }.collect(Collectors.toList());
+
+        expect:
+        !demoted.isEmpty();
+        view.size() == 100;
+        view.keys().count() == 100;
+        view.values().collect(Collectors.toSet()) == (0..<100).collect { "v${it}".toString() } as Set;
+        demoted.every { view.contains(it) && view.get(it) == "v${it.id}".toString() };
+
+        when:
+        def last = demoted.last();
+        view.put(last, 'overwritten');
+
+        then:
+        view.get(last) == 'overwritten';
+        view.keys().count() == view.values().count();
+    }
+
+    def 'demoted entries keep the deadlines of their Expiry rather than units'() {
+        setup:
+        def lifetime = Lifetime.builder().storage(Storage.TIERED).maxSize(10).offHeapBytes(1L << 20)
+            .units(1L, TimeUnit.SECONDS).expiry(Expiry.writeOrAccess(60_000L, Expiry.NEVER)).build();
+        def view = view('tieredExpiry', lifetime, { SearchKey k -> "v${k.id}".toString() });
+        (0..<100).each { view.value(new SearchKey(it)); }
+        def demoted = { view.keys().filter { !view.backing.containsKey(it) }.collect(Collectors.toList()) };
+
+        when:
+        ticker.advance(5L, TimeUnit.SECONDS);
+        def early = demoted();
+
+        then:
+        !early.isEmpty();
+        early.every { view.get(it) == "v${it.id}".toString() };
+
+        when:
+        def late = demoted();
+        ticker.advance(60L, TimeUnit.SECONDS);
+
+        then:
+        !late.isEmpty();
+        late.every { view.get(it) == null };
+    }
+}
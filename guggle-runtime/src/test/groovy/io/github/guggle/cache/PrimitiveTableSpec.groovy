@@ -0,0 +1,84 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.utils.TimeUnits;
+import spock.lang.*;
+
+class PrimitiveTableSpec extends Specification {
+
+    @Unroll
+    def 'stores, finds and removes entries when direct is #direct'() {
+        setup:
+        def table = new PrimitiveTable(Long.MAX_VALUE, direct);
+        (0..<10_000).each { table.put(it, it * 3L, 0); }
+
+        when:
+        (0..<10_000).step(2) { table.remove(it); }
+
+        then:
+        table.size() == 5_000;
+        (0..<10_000).every { i -> table.containsKey(i) == (i % 2 == 1); }
+        (1..<10_000).step(2).every { i -> table.get(i, -1L) == i * 3L; }
+        table.get(2, -1L) == -1L;
+        table.values().sum() == (1..<10_000).step(2).sum() * 3L;
+
+        where:
+        direct << [false, true];
+    }
+
+    def 'loader only runs on a miss'() {
+        setup:
+        def table = new PrimitiveTable(Long.MAX_VALUE, false);
+        def loads = 0;
+        def loader = { k -> ++loads; 42L };
+        table.put('present', 7L, 0);
+
+        expect:
+        table.getOrLoad('present', 0, loader) == 7L;
+        table.getOrLoad('absent', 0, loader) == 42L;
+        loads == 1;
+    }
+
+    def 'never grows past its maximum'() {
+        setup:
+        def table = new PrimitiveTable(1_000L, false);
+
+        when:
+        (0..<50_000).each { table.put(it, it, it); }
+
+        then:
+        table.size() <= 1_000;
+        table.size() > 500;
+    }
+
+    def 'keeps what is read often over what was written last'() {
+        setup:
+        def table = new PrimitiveTable(64L, false);
+        (0..<16).each { table.put("hot${it}".toString(), it, 0); }
+
+        when:
+        //the hot entries are the oldest, evicting by stamp alone would drop them first
+        (0..<2_000).each { n ->
+            (0..<16).each { table.getOrLoad("hot${it}".toString(), 0, { k -> -1L }); }
+            table.put("cold${n}".toString(), n, n);
+        }
+
+        then:
+        table.size() <= 64;
+        (0..<16).every { table.containsKey("hot${it}".toString()) };
+    }
+
+    def 'expires entries past their deadline'() {
+        setup:
+        def table = new PrimitiveTable(Long.MAX_VALUE, false);
+        def expired = [];
+        (0..<100).each { table.put(it, it, it < 50 ? 0 : 100); }
+
+        when:
+        def delay = table.expire(20_000L, TimeUnits.seconds(10L), { k -> expired << k; true }, []);
+
+        then:
+        expired.sort() == (0..<50).toList();
+        table.size() == 50;
+        delay == 90_000L;
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.guggle.cache;
+
+import java.lang.ref.WeakReference;
+import spock.lang.*;
+
+class ReferenceBackingSpec extends Specification {
+
+    def 'weak keys match by identity and go with their referent'() {
+        setup:
+        def backing = new ReferenceBacking(null, true, false);
+        def held = new Object();
+        def dropped = new Object();
+        backing.put(held, 'held');
+        backing.put(dropped, 'dropped');
+        backing.put('plain', 'plain');
+        def ref = new WeakReference(dropped);
+        dropped = null;
+
+        when:
+        for(int i = 0; i < 50 && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        backing.drain();
+
+        then:
+        ref.get() == null;
+        backing.get(held) == 'held';
+        backing.get(new Object()) == null;
+        backing.get('plain') == 'plain';
+        backing.size() == 2;
+        backing.collectedCount() == 1L;
+        backing.keySet() == [held, 'plain'] as Set;
+    }
+
+    def 'soft values read through their holders'() {
+        setup:
+        def backing = new ReferenceBacking(null, false, true);
+        def value = 'value';
+
+        when:
+        backing.put('key', value);
+
+        then:
+        backing.get('key') == 'value';
+        backing.values() as List == ['value'];
+        !backing.remove('key', 'other');
+        backing.remove('key', value);
+        backing.isEmpty();
+    }
+
+    def 'a replaced value still lets its key go'() {
+        setup:
+        def backing = new ReferenceBacking(null, true, true);
+        def dropped = new Object();
+        backing.put(dropped, 'first');
+        backing.replace(dropped, 'second');
+        backing.replace(dropped, 'second', 'third');
+        def ref = new WeakReference(dropped);
+        dropped = null;
+
+        when:
+        for(int i = 0; i < 50 && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        backing.drain();
+
+        then:
+        ref.get() == null;
+        backing.isEmpty();
+    }
+}
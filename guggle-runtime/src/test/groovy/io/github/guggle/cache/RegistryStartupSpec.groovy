@@ -0,0 +1,53 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.*;
+import java.util.concurrent.*;
+import java.util.function.ToIntFunction;
+import spock.lang.*;
+
+class RegistryStartupSpec extends Specification {
+
+    static final int METHODS = 4_000;
+    static final int THREADS = 16;
+
+    static class StartupKey implements Permanent<StartupKey> {
+        final int id;
+
+        StartupKey(final int id) {
+            this.id = id;
+        }
+
+        StartupKey permanent() {
+            return this;
+        }
+    }
+
+    static MethodId methodId(final int i) {
+        return new MethodId(StartupKey, "startup${i}".toString(), [int]);
+    }
+
+    def 'thousands of cached methods register concurrently'() {
+        setup:
+        def registry = CacheRegistry.instance();
+        def pool = Executors.newFixedThreadPool(THREADS);
+        def start = new CountDownLatch(1);
+        def function = { StartupKey k -> k.id } as ToIntFunction;
+        def lifetime = Lifetime.builder().build();
+
+        when:
+        def futures = (0..<THREADS).collect { t ->
+            pool.submit({
+                start.await();
+                //every thread walks every id, like many classes sharing cached helpers
+                (0..<METHODS).collect { i -> registry.intView(StartupKey, methodId((i + t * 97) % METHODS), function, lifetime) }
+            } as Callable);
+        };
+        start.countDown();
+        def views = futures.collect { it.get(1, TimeUnit.MINUTES) };
+        pool.shutdown();
+
+        then:
+        (0..<METHODS).every { i -> registry.lifetime(methodId(i)) != null; }
+        views.flatten().toSet().size() == METHODS;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheGroup;
+import spock.lang.*;
+
+class SharedBudgetSpec extends Specification {
+
+    static class StubMember implements SharedBudget.Member {
+        final Ghosts ghosts = new Ghosts(Ghosts.capacityFor(1_000));
+        long used;
+        long allotted = -1L;
+
+        Ghosts ghosts() {
+            return ghosts;
+        }
+
+        long used() {
+            return used;
+        }
+
+        void allot(final SharedBudget budget, final long val) {
+            allotted = val;
+            used = Math.min(used, Math.max(val, 0L));
+        }
+    }
+
+    def 'members start with equal shares of the whole budget'() {
+        setup:
+        def budget = new SharedBudget(CacheGroup.entries('equal', 1_000));
+        def members = (0..<3).collect { new StubMember() };
+
+        when:
+        members.each { budget.join(it); }
+
+        then:
+        members*.allotted.sum() == 1_000;
+        members.every { it.allotted >= 333 };
+
+        when:
+        budget.leave(members[0]);
+
+        then:
+        members[0].allotted == -1L;
+        members[1].allotted + members[2].allotted == 1_000;
+    }
+
+    def 'budget moves to the member its ghosts say would hit more'() {
+        setup:
+        def budget = new SharedBudget(CacheGroup.entries('ghosts', 1_000));
+        def hot = new StubMember();
+        def cold = new StubMember();
+        budget.join(hot);
+        budget.join(cold);
+        (0..<100).each { hot.ghosts.evicted(it, 1); cold.ghosts.evicted(it + 10_000, 1); }
+
+        when:
+        10.times {
+            hot.used = hot.allotted;
+            cold.used = cold.allotted;
+            (0..<100).each { hot.ghosts.missed(it); }
+            budget.rebalance();
+        }
+
+        then:
+        //a step is 5% of the budget, no member goes below a tenth of an equal share
+        hot.allotted == 950;
+        cold.allotted == 50;
+    }
+}
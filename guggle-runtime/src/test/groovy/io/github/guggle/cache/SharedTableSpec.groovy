@@ -0,0 +1,96 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheRegistry;
+import io.github.guggle.api.Codecs;
+import io.github.guggle.utils.ManualTicker;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import spock.lang.*;
+
+class SharedTableSpec extends Specification {
+
+    def 'the first to open writes, later ones read'() {
+        setup:
+        def file = Files.createTempDirectory('shared').resolve('test.table');
+        def writer = new SharedTable(file, 1 << 22, Codecs.of(String), Codecs.of(String));
+        def reader = new SharedTable(file, 1 << 20, Codecs.of(String), Codecs.of(String));
+
+        when:
+        (0..<1_000).each { writer.put("key-${it}".toString(), "value-${it}".toString(), it); }
+        writer.remove('key-5');
+
+        then:
+        writer.isWriter();
+        !reader.isWriter();
+        !reader.put('key-0', 'other', 0);
+        reader.get('key-5') == null;
+        reader.get('key-6').value == 'value-6';
+        reader.get('key-6').accessed == 6;
+        (0..<1_000).findAll { it != 5 && reader.get("key-${it}".toString())?.value != "value-${it}" }.isEmpty();
+        !writer.put('big', 'x' * 300, 0);
+
+        cleanup:
+        reader.close();
+        writer.close();
+    }
+
+    def 'readers never see a torn entry'() {
+        setup:
+        def file = Files.createTempDirectory('shared').resolve('test.table');
+        def writer = new SharedTable(file, 1 << 20, Codecs.of(String), Codecs.of(String));
+        def reader = new SharedTable(file, 1 << 20, Codecs.of(String), Codecs.of(String));
+        def done = new AtomicBoolean();
+        def thread = Thread.start {
+            for(int n = 0; !done.get(); ++n) {
+                writer.put("key-${n % 100}".toString(), ("value-${n % 100}-" + ('y' * (n % 150))).toString(), n);
+            }
+        };
+
+        when:
+        def torn = (0..<50_000).findAll {
+            def entry = reader.get("key-${it % 100}".toString());
+            entry != null && !(entry.value ==~ /value-${it % 100}-y*/);
+        };
+        done.set(true);
+        thread.join();
+
+        then:
+        torn.isEmpty();
+
+        cleanup:
+        reader.close();
+        writer.close();
+    }
+
+    def 'a reader takes over once the writer has gone'() {
+        setup:
+        def previous = CacheRegistry.instance().getTicker();
+        def ticker = new ManualTicker(System.currentTimeMillis());
+        CacheRegistry.instance().setTicker(ticker);
+        def file = Files.createTempDirectory('shared').resolve('test.table');
+        def writer = new SharedTable(file, 1 << 22, Codecs.of(String), Codecs.of(String));
+        def reader = new SharedTable(file, 1 << 20, Codecs.of(String), Codecs.of(String));
+        writer.put('key', 'value', 0);
+
+        when:
+        writer.close();
+        reader.get('key');
+
+        then:
+        !reader.isWriter();
+
+        when:
+        ticker.advance(2L, TimeUnit.SECONDS);
+
+        then:
+        reader.get('key').value == 'value';
+        reader.isWriter();
+        reader.put('other', 'value', 0);
+        reader.get('other').value == 'value';
+
+        cleanup:
+        reader.close();
+        CacheRegistry.instance().setTicker(previous);
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Codecs;
+import spock.lang.*;
+
+class SlabStoreSpec extends Specification {
+
+    def 'values are taken back out once'() {
+        setup:
+        def store = new SlabStore(1 << 20, Codecs.of(String));
+        (0..<1_000).each { store.put(it, "value-${it}".toString(), it); }
+
+        when:
+        def entry = store.take(7);
+
+        then:
+        entry.value == 'value-7';
+        entry.accessed == 7;
+        store.take(7) == null;
+        store.size() == 999;
+        store.evictionCount() == 0L;
+    }
+
+    def 'wrapping around drops the oldest slab'() {
+        setup:
+        def store = new SlabStore(4 * 4096, Codecs.of(String));
+        def value = 'x' * 100;
+        (0..<1_000).each { store.put(it, value, 0); }
+
+        expect:
+        store.size() < 1_000;
+        store.size() + store.evictionCount() == 1_000L;
+        store.take(999).value == value;
+        store.take(0) == null;
+    }
+}
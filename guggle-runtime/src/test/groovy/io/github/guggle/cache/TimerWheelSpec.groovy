@@ -0,0 +1,98 @@
+package io.github.guggle.cache;
+
+import spock.lang.*;
+
+class TimerWheelSpec extends Specification {
+
+    static TimedNode node(final int key) {
+        def ret = new FixedExpiration.ForInt(key, 0);
+        ret.key = key;
+        return ret;
+    }
+
+    def 'only due entries are expired'() {
+        setup:
+        def wheel = new TimerWheel(0L);
+        def expired = [];
+        [500L, 5_000L, 90_000L, 4_000_000L].eachWithIndex { deadline, i -> wheel.schedule(node(i), deadline); }
+
+        when:
+        wheel.advance(10_000L, Integer.MAX_VALUE, { n -> expired << n.key; true });
+
+        then:
+        expired == [0, 1];
+
+        when:
+        wheel.advance(5_000_000L, Integer.MAX_VALUE, { n -> expired << n.key; true });
+
+        then:
+        expired == [0, 1, 2, 3];
+    }
+
+    def 'descheduled entries are never expired'() {
+        setup:
+        def wheel = new TimerWheel(0L);
+        def expired = [];
+        def n = node(1);
+        wheel.schedule(n, 2_000L);
+        wheel.deschedule(n);
+        wheel.advance(10_000L, Integer.MAX_VALUE, { expired << it.key; true });
+
+        expect:
+        expired.isEmpty();
+    }
+
+    def 'entries can push their own deadline out'() {
+        setup:
+        def wheel = new TimerWheel(0L);
+        def expired = [];
+        def n = node(1);
+        wheel.schedule(n, 2_000L);
+
+        when:
+        wheel.advance(3_000L, Integer.MAX_VALUE, { it.deadline = 60_000L; false });
+        wheel.advance(30_000L, Integer.MAX_VALUE, { expired << it.key; true });
+
+        then:
+        expired.isEmpty();
+
+        when:
+        wheel.advance(70_000L, Integer.MAX_VALUE, { expired << it.key; true });
+
+        then:
+        expired == [1];
+    }
+
+    def 'expirations past the budget carry over'() {
+        setup:
+        def wheel = new TimerWheel(0L);
+        def expired = [];
+        (0..<10).each { wheel.schedule(node(it), 1_000L + it); }
+
+        when:
+        def first = wheel.advance(5_000L, 4, { expired << it.key; true });
+
+        then:
+        first == 4;
+        wheel.hasOverdue();
+        wheel.getExpirationDelay() == 0L;
+
+        when:
+        wheel.advance(5_000L, 100, { expired << it.key; true });
+
+        then:
+        expired == (0..<10).toList();
+        !wheel.hasOverdue();
+    }
+
+    def 'expiration delay points at the next busy bucket'() {
+        setup:
+        def wheel = new TimerWheel(0L);
+        wheel.schedule(node(1), 5_000L);
+
+        expect:
+        wheel.getExpirationDelay() > 4_000L;
+        wheel.getExpirationDelay() <= 6_144L;
+        new TimerWheel(0L).getExpirationDelay() == Long.MAX_VALUE;
+    }
+}
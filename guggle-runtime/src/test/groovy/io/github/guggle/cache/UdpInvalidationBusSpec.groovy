@@ -0,0 +1,71 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Invalidation;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import spock.lang.*;
+
+class UdpInvalidationBusSpec extends Specification {
+
+    def 'batches split into datagrams and decode back'() {
+        setup:
+        def bus = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def other = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def batch = (0..<300).collect { new Invalidation("Type.m${it % 3}(int)".toString(), "key-${it}".bytes, it % 2 == 0) };
+
+        when:
+        def datagrams = bus.encode(batch);
+
+        then:
+        datagrams.size() > 1;
+        datagrams.every { it.remaining() <= UdpInvalidationBus.MAX_DATAGRAM };
+        datagrams.collectMany { other.decode(it.duplicate()) } as Set == batch as Set;
+        bus.decode(datagrams[0].duplicate()) == null;
+
+        cleanup:
+        bus.close();
+        other.close();
+    }
+
+    def 'peers receive published batches'() {
+        setup:
+        def sender = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def receiver = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def received = new LinkedBlockingQueue();
+        receiver.subscribe { received.put(it); };
+        sender.addPeer(receiver.localAddress);
+        def invalidation = new Invalidation('Type.m(int)', [1, 2, 3] as byte[], true);
+
+        when:
+        sender.publish([invalidation]);
+
+        then:
+        received.poll(5, TimeUnit.SECONDS) == [invalidation];
+
+        cleanup:
+        sender.close();
+        receiver.close();
+    }
+
+    def 'a failing peer does not hold up the others'() {
+        setup:
+        def sender = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def receiver = new UdpInvalidationBus(new InetSocketAddress('127.0.0.1', 0), []);
+        def received = new LinkedBlockingQueue();
+        receiver.subscribe { received.put(it); };
+        sender.addPeer(InetSocketAddress.createUnresolved('nowhere.invalid', 9));
+        sender.addPeer(receiver.localAddress);
+        def invalidation = new Invalidation('Type.m(int)', [1, 2, 3] as byte[], true);
+
+        when:
+        sender.publish([invalidation]);
+
+        then:
+        received.poll(5, TimeUnit.SECONDS) == [invalidation];
+        sender.failedSends == 1L;
+
+        cleanup:
+        sender.close();
+        receiver.close();
+    }
+}
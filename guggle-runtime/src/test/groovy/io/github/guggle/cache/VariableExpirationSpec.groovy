@@ -0,0 +1,48 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.Expires;
+import io.github.guggle.api.Expiry;
+import spock.lang.*;
+
+class VariableExpirationSpec extends Specification {
+
+    def 'whichever deadline comes first is the one that counts'() {
+        setup:
+        def holder = new VariableExpiration.ForObject("value", 0);
+
+        when:
+        holder.written(0L, 10_000L, 3_000L);
+
+        then:
+        holder.deadline() == 3_000L;
+        holder.expired(Expires.VARIABLE, null, 2_500L) == Expired.FALSE;
+        holder.expired(Expires.VARIABLE, null, 3_500L) == Expired.TRUE;
+
+        when:
+        holder.read(2_000L, 3_000L);
+        holder.read(8_000L, 3_000L);
+
+        then:
+        holder.deadline() == 10_000L;
+        holder.getRead() == 8;
+    }
+
+    def 'deadlines are rounded up to the second and NEVER means none'() {
+        setup:
+        def holder = new VariableExpiration.ForLong(1L, 0);
+
+        when:
+        holder.written(1_200L, 500L, Expiry.NEVER);
+
+        then:
+        holder.deadline() == 2_000L;
+        holder.remaining(1_500L) == 500L;
+
+        when:
+        holder.written(1_200L, Expiry.NEVER, Expiry.NEVER);
+
+        then:
+        holder.deadline() == Long.MAX_VALUE;
+        holder.remaining(1_500L) == Expiry.NEVER;
+    }
+}
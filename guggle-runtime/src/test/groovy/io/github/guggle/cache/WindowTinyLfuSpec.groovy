@@ -0,0 +1,86 @@
+package io.github.guggle.cache;
+
+import spock.lang.*;
+
+class WindowTinyLfuSpec extends Specification {
+
+    static Node node(final int key) {
+        def ret = new NeverExpires.ForInt(key);
+        ret.key = key;
+        return ret;
+    }
+
+    def 'frequency sketch counts and saturates'() {
+        setup:
+        def sketch = new FrequencySketch();
+        sketch.ensureCapacity(64);
+        5.times { sketch.increment(42); }
+        20.times { sketch.increment(7); }
+
+        expect:
+        sketch.frequency(42) == 5;
+        sketch.frequency(7) == 15;
+        sketch.frequency(1000) == 0;
+    }
+
+    def 'evicts down to the maximum'() {
+        setup:
+        def policy = new WindowTinyLfu(10);
+        def evicted = [];
+        (0..<25).each { policy.onAdd(node(it)); }
+        policy.evict({ evicted << it.key });
+
+        expect:
+        policy.size() == 10;
+        evicted.size() == 15;
+    }
+
+    def 'frequently used entries survive a scan'() {
+        setup:
+        def policy = new WindowTinyLfu(100);
+        def hot = (0..<50).collect { node(it) };
+        def evicted = [] as Set;
+        hot.each { policy.onAdd(it); }
+        policy.evict({ evicted << it.key });
+        10.times { hot.each { n -> policy.onAccess(n); } }
+        (1000..<2000).each {
+            policy.onAdd(node(it));
+            policy.evict({ n -> evicted << n.key });
+        }
+
+        expect:
+        policy.size() == 100;
+        hot.every { !evicted.contains(it.key) };
+    }
+
+    def 'removed nodes are never re-added'() {
+        setup:
+        def policy = new WindowTinyLfu(10);
+        def n = node(1);
+        policy.onRemove(n);
+        policy.onAdd(n);
+
+        expect:
+        policy.size() == 0;
+    }
+
+    def 'weighted entries are evicted down to the maximum weight'() {
+        setup:
+        def policy = new WindowTinyLfu(1000, true);
+        def evicted = [];
+        (0..<50).each {
+            def n = node(it);
+            n.weight = 100;
+            policy.onAdd(n);
+        }
+        def huge = node(99);
+        huge.weight = 5000;
+        policy.onAdd(huge);
+        policy.evict({ evicted << it.key });
+
+        expect:
+        policy.size() <= 1000;
+        policy.size() == 100 * policy.entries();
+        evicted.contains(99);
+    }
+}
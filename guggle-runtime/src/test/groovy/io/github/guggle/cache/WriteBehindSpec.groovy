@@ -0,0 +1,105 @@
+package io.github.guggle.cache;
+
+import io.github.guggle.api.CacheWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import spock.lang.*;
+
+class WriteBehindSpec extends Specification {
+
+    def 'repeated puts coalesce into batches of the latest values'() {
+        setup:
+        def batches = [];
+        def timer = Executors.newSingleThreadScheduledExecutor();
+        def behind = new WriteBehind(new CacheWriter() {
+                void write(Object k, Object v) { batches << [(k): v]; }
+                void writeAll(Map m) { batches << new LinkedHashMap(m); }
+            }, 4, 60_000L, { it.run() } as Executor, timer);
+
+        when:
+        (0..<100).each { behind.add(it % 3, it); }
+        behind.flush();
+
+        then:
+        batches == [[0: 99, 1: 97, 2: 98]];
+        behind.pending() == 0;
+
+        when:
+        batches.clear();
+        (0..<4).each { behind.add("k${it}".toString(), null); }
+
+        then:
+        batches.size() == 1;
+        batches[0].size() == 4;
+        batches[0].values().every { it == null };
+
+        cleanup:
+        timer.shutdownNow();
+    }
+
+    def 'a failed batch stays pending'() {
+        setup:
+        def timer = Executors.newSingleThreadScheduledExecutor();
+        def fail = true;
+        def written = [:];
+        def behind = new WriteBehind({ k, v -> if(fail) { throw new IllegalStateException(); }; written[k] = v; } as CacheWriter,
+                                     10, 60_000L, { it.run() } as Executor, timer);
+
+        when:
+        behind.add('a', 1);
+        behind.flush();
+
+        then:
+        thrown(IllegalStateException);
+        behind.pending() == 1;
+
+        when:
+        fail = false;
+        behind.add('b', 2);
+        behind.flush();
+
+        then:
+        written == [a: 1, b: 2];
+
+        cleanup:
+        timer.shutdownNow();
+    }
+
+    def 'a batch that keeps failing is retried less often and then dropped'() {
+        setup:
+        def delays = [].asSynchronized();
+        def timer = new ScheduledThreadPoolExecutor(1) {
+            ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+                delays << delay;
+                return super.schedule(task, delay, unit);
+            }
+        };
+        def attempts = new AtomicInteger();
+        def dropped = new CompletableFuture();
+        def behind = new WriteBehind(new CacheWriter() {
+                void write(Object k, Object v) { attempts.incrementAndGet(); throw new IllegalStateException(); }
+                void dropped(Map m, RuntimeException e) { dropped.complete([new LinkedHashMap(m), e]); }
+            }, 10, 5L, ForkJoinPool.commonPool(), timer);
+
+        when:
+        behind.add('a', 1);
+        def (entries, cause) = dropped.get(10, TimeUnit.SECONDS);
+
+        then:
+        entries == [a: 1];
+        cause instanceof IllegalStateException;
+        attempts.get() == WriteBehind.MAX_ATTEMPTS;
+        delays == [5L, 5L, 10L, 20L, 40L];
+        behind.pending() == 0;
+        behind.dropped() == 1L;
+
+        cleanup:
+        timer.shutdownNow();
+    }
+}
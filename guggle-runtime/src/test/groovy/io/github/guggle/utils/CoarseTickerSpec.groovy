@@ -0,0 +1,46 @@
+package io.github.guggle.utils;
+
+import io.github.guggle.api.CacheRegistry;
+import java.util.concurrent.TimeUnit;
+import spock.lang.*;
+import spock.util.concurrent.PollingConditions;
+
+class CoarseTickerSpec extends Specification {
+
+    def 'moves on once per resolution and keeps reading the clock once closed'() {
+        setup:
+        def ticker = new CoarseTicker(10L, TimeUnit.MILLISECONDS);
+        def conditions = new PollingConditions(timeout: 5);
+        def first = ticker.millis();
+
+        expect:
+        first <= System.currentTimeMillis();
+        conditions.eventually {
+            assert ticker.millis() >= first + 50L;
+        }
+
+        when:
+        ticker.close();
+
+        then:
+        ticker.updater.awaitTermination(5L, TimeUnit.SECONDS);
+        Math.abs(ticker.millis() - System.currentTimeMillis()) <= 5L;
+    }
+
+    def 'the registry closes the ticker it replaces'() {
+        setup:
+        def registry = CacheRegistry.instance();
+        def previous = registry.getTicker();
+        def replaced = new CoarseTicker(10L, TimeUnit.MILLISECONDS);
+        registry.setTicker(replaced);
+
+        when:
+        registry.setTicker(new ManualTicker());
+
+        then:
+        replaced.updater.isShutdown();
+
+        cleanup:
+        registry.setTicker(previous);
+    }
+}